@@ -0,0 +1,74 @@
+package com.example.notification_service.benchmark;
+
+import com.example.notification_service.codec.NotificationEventCodec;
+import com.example.notification_service.model.NotificationEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding a payment event with the {@link JsonDeserializer} configured the way
+ * {@code KafkaConsumerConfig} configures it, against the {@link NotificationEventCodec}
+ * binary form of the same event; encoding both ways for the producer side.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@SuppressWarnings("deprecation")
+public class EventDeserializationBenchmark {
+
+    private JsonDeserializer<NotificationEvent> deserializer;
+    private JsonSerializer<NotificationEvent> serializer;
+    private NotificationEvent event;
+    private byte[] payload;
+    private byte[] binaryPayload;
+
+    @Setup
+    public void setUp() {
+        deserializer = new JsonDeserializer<>();
+        deserializer.configure(Map.of(
+                "spring.json.trusted.packages", "com.example.notification_service.model",
+                "spring.json.value.default.type", NotificationEvent.class.getName(),
+                "spring.json.use.type.headers", false), false);
+        serializer = new JsonSerializer<>();
+        event = Fixtures.paymentEvent("evt-bench-1");
+        payload = serializer.serialize("notifications", event);
+        binaryPayload = NotificationEventCodec.encode(event);
+    }
+
+    @TearDown
+    public void tearDown() {
+        deserializer.close();
+        serializer.close();
+    }
+
+    @Benchmark
+    public NotificationEvent deserialize() {
+        return deserializer.deserialize("notifications", payload);
+    }
+
+    @Benchmark
+    public NotificationEvent decodeBinary() {
+        return NotificationEventCodec.decode(binaryPayload);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize("notifications", event);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return NotificationEventCodec.encode(event);
+    }
+}
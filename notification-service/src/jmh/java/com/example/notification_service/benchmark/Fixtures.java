@@ -0,0 +1,70 @@
+package com.example.notification_service.benchmark;
+
+import com.example.notification_service.mail.SmtpTransportPool;
+import com.example.notification_service.metrics.NotificationMetrics;
+import com.example.notification_service.model.NotificationEvent;
+import com.example.notification_service.service.EmailService;
+import com.example.notification_service.template.TemplateEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Wires the real components the benchmarks exercise without a Spring context.
+ */
+final class Fixtures {
+
+    static final NotificationMetrics METRICS = new NotificationMetrics(new SimpleMeterRegistry());
+
+    private Fixtures() {
+    }
+
+    static TemplateEngine templates(int renderCacheSize) throws IOException {
+        TemplateEngine templates = new TemplateEngine(METRICS);
+        ReflectionTestUtils.setField(templates, "directory", "");
+        ReflectionTestUtils.setField(templates, "renderCacheSize", renderCacheSize);
+        templates.load();
+        return templates;
+    }
+
+    static EmailService emailService(TemplateEngine templates) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        SmtpTransportPool pool = new SmtpTransportPool(mailSender, METRICS, false, 1,
+                Duration.ofMinutes(1), Duration.ofSeconds(1), Duration.ofSeconds(15));
+        return new EmailService(mailSender, pool, templates);
+    }
+
+    static Map<String, String> paymentData() {
+        Map<String, String> data = new LinkedHashMap<>();
+        data.put("billNumber", "INV-2024-00042");
+        data.put("customerName", "Nadee Perera");
+        data.put("paymentMethod", "Card");
+        data.put("items", "Bridal dress rental x1, Jewellery set x1");
+        data.put("subtotal", "45000.00");
+        data.put("discount", "4500.00");
+        data.put("discountPercent", "10");
+        data.put("netAmount", "40500.00");
+        data.put("date", "2024-05-12");
+        return data;
+    }
+
+    static NotificationEvent paymentEvent(String eventId) {
+        return NotificationEvent.builder()
+                .eventId(eventId)
+                .eventType("PAYMENT_CONFIRMED")
+                .recipientPhone("0771234567")
+                .recipientEmail("nadee@example.com")
+                .recipientName("Nadee Perera")
+                .templateData(paymentData())
+                .priority(1)
+                .timestamp(LocalDateTime.of(2024, 5, 12, 10, 30))
+                .build();
+    }
+}
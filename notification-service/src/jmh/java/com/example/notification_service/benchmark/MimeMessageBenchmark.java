@@ -0,0 +1,50 @@
+package com.example.notification_service.benchmark;
+
+import com.example.notification_service.service.EmailService;
+import jakarta.mail.internet.MimeMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the multipart HTML + text MimeMessage through {@code MimeMessageHelper}, and
+ * the {@code saveChanges()} the transport pool runs before every send.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MimeMessageBenchmark {
+
+    private EmailService emailService;
+    private Map<String, String> payment;
+
+    @Setup
+    public void setUp() throws Exception {
+        emailService = Fixtures.emailService(Fixtures.templates(0));
+        payment = Fixtures.paymentData();
+    }
+
+    @Benchmark
+    public MimeMessage welcomeMessage() {
+        return emailService.welcomeMessage("nadee@example.com", "Nadee Perera");
+    }
+
+    @Benchmark
+    public MimeMessage paymentMessage() {
+        return emailService.paymentConfirmationMessage("nadee@example.com", payment);
+    }
+
+    @Benchmark
+    public MimeMessage paymentMessageSaved() throws Exception {
+        MimeMessage message = emailService.paymentConfirmationMessage("nadee@example.com", payment);
+        message.saveChanges();
+        return message;
+    }
+}
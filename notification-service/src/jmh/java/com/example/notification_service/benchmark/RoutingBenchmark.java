@@ -0,0 +1,104 @@
+package com.example.notification_service.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.example.notification_service.campaign.CampaignEngine;
+import com.example.notification_service.consumer.NotificationConsumer;
+import com.example.notification_service.dispatch.ChannelFanOut;
+import com.example.notification_service.dispatch.DeliveryCoalescer;
+import com.example.notification_service.dispatch.DeliveryStatus;
+import com.example.notification_service.dispatch.DispatchEngine;
+import com.example.notification_service.dispatch.FanOutResult;
+import com.example.notification_service.model.Channel;
+import com.example.notification_service.model.NotificationEvent;
+import com.example.notification_service.offset.OffsetTracker;
+import com.example.notification_service.scheduler.NotificationScheduler;
+import com.example.notification_service.spool.DeliverySpool;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.common.TopicPartition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The listener path with stubbed channels: offset registration, hand-off to the keyed
+ * dispatch workers, fan-out call and completion. One invocation consumes a poll's worth
+ * of records for distinct recipients and waits until all of them completed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RoutingBenchmark {
+
+    private static final int RECORDS = 500;
+
+    private DispatchEngine dispatchEngine;
+    private OffsetTracker offsetTracker;
+    private NotificationConsumer consumer;
+    private MockConsumer<String, NotificationEvent> kafkaConsumer;
+    private NotificationEvent[] events;
+    private long offset;
+
+    @Setup
+    public void setUp() {
+        ((Logger) LoggerFactory.getLogger("com.example.notification_service")).setLevel(Level.WARN);
+
+        dispatchEngine = new DispatchEngine();
+        ReflectionTestUtils.setField(dispatchEngine, "workerCount", 16);
+        ReflectionTestUtils.setField(dispatchEngine, "queueCapacity", 256);
+        ReflectionTestUtils.setField(dispatchEngine, "bulkQueueCapacity", 1024);
+        ReflectionTestUtils.setField(dispatchEngine, "reservedWorkers", 4);
+        ReflectionTestUtils.setField(dispatchEngine, "latencyTarget", Duration.ofSeconds(1));
+        dispatchEngine.start();
+
+        offsetTracker = new OffsetTracker(RECORDS, Duration.ofSeconds(5));
+        ChannelFanOut stubbedChannels = new ChannelFanOut(null, null, Fixtures.METRICS, null) {
+            @Override
+            public FanOutResult fanOut(NotificationEvent event, long receivedAtNanos) {
+                return new FanOutResult(event.getEventId(), Channel.WHATSAPP,
+                        Map.of(Channel.WHATSAPP, DeliveryStatus.DELIVERED, Channel.EMAIL, DeliveryStatus.DELIVERED));
+            }
+        };
+        consumer = new NotificationConsumer(stubbedChannels, dispatchEngine, null, offsetTracker, Fixtures.METRICS,
+                new NotificationScheduler(null, null, null, null), new CampaignEngine(null, null, null, null),
+                new DeliveryCoalescer(null, null, null), new DeliverySpool(null));
+
+        kafkaConsumer = new MockConsumer<>("earliest");
+        kafkaConsumer.assign(List.of(new TopicPartition("notifications", 0)));
+
+        events = new NotificationEvent[RECORDS];
+        for (int i = 0; i < RECORDS; i++) {
+            NotificationEvent event = Fixtures.paymentEvent("evt-" + i);
+            event.setRecipientPhone("07712" + String.format("%05d", i));
+            events[i] = event;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        dispatchEngine.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void consumePoll() {
+        for (NotificationEvent event : events) {
+            consumer.consume(new ConsumerRecord<>("notifications", 0, offset++, event.getRecipientPhone(), event), kafkaConsumer);
+        }
+        while (offsetTracker.inFlight() > 0) Thread.onSpinWait();
+    }
+}
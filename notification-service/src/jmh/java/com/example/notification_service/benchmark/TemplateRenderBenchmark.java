@@ -0,0 +1,58 @@
+package com.example.notification_service.benchmark;
+
+import com.example.notification_service.template.TemplateEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Template rendering, with the render cache off (every call renders) and on (repeat inputs).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TemplateRenderBenchmark {
+
+    @Param({"0", "1024"})
+    private int renderCacheSize;
+
+    private TemplateEngine templates;
+    private Map<String, String> welcome;
+    private Map<String, String> payment;
+
+    @Setup
+    public void setUp() throws Exception {
+        templates = Fixtures.templates(renderCacheSize);
+        welcome = Map.of("name", "Nadee Perera", "profileUrl", "https://example.com/",
+                "catalogUrl", "https://example.com/catalog", "bookingUrl", "https://example.com/book");
+        payment = Fixtures.paymentData();
+    }
+
+    @Benchmark
+    public String welcomeHtml() {
+        return templates.render("email/welcome.html", welcome);
+    }
+
+    @Benchmark
+    public String welcomeText() {
+        return templates.render("email/welcome.txt", welcome);
+    }
+
+    @Benchmark
+    public String paymentHtml() {
+        return templates.render("email/payment-confirmation.html", payment);
+    }
+
+    @Benchmark
+    public String paymentWhatsApp() {
+        return templates.render("whatsapp/payment-confirmation.txt", payment);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.notification_service.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.example.notification_service.logging.DeliveryLog;
+import com.example.notification_service.phone.PhoneNormalizer;
+import com.example.notification_service.phone.PhoneNumber;
+import com.example.notification_service.service.WhatsAppService;
+import com.example.notification_service.whatsapp.WhatsAppTransport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Phone normalization on its own (uncached and cached), and a whole WhatsApp payment send (payload map, render,
+ * normalization) against a transport that completes immediately.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class WhatsAppBenchmark {
+
+    @Param({"0771234567", "+94 77 123 4567", "771234567", "94771234567"})
+    private String phone;
+
+    private PhoneNormalizer uncached;
+    private PhoneNormalizer cached;
+    private WhatsAppService whatsAppService;
+    private Map<String, String> payment;
+
+    @Setup
+    public void setUp() throws Exception {
+        // console logging would dominate and flood the JMH output
+        ((Logger) LoggerFactory.getLogger("com.example.notification_service")).setLevel(Level.WARN);
+
+        CompletableFuture<WhatsAppTransport.WhatsAppReceipt> accepted =
+                CompletableFuture.completedFuture(new WhatsAppTransport.WhatsAppReceipt("SM0", "queued"));
+        uncached = new PhoneNormalizer("94", "0", 9, 0);
+        cached = new PhoneNormalizer("94", "0", 9, 1024);
+        whatsAppService = new WhatsAppService(Fixtures.templates(0), (to, from, body) -> accepted, cached,
+                new DeliveryLog(false, 0));
+        ReflectionTestUtils.setField(whatsAppService, "accountSid", "AC00000000000000000000000000000000");
+        ReflectionTestUtils.setField(whatsAppService, "authToken", "token");
+        ReflectionTestUtils.setField(whatsAppService, "fromNumber", "whatsapp:+14155238886");
+        payment = Fixtures.paymentData();
+    }
+
+    @Benchmark
+    public PhoneNumber normalizePhone() {
+        return uncached.normalize(phone);
+    }
+
+    @Benchmark
+    public PhoneNumber normalizePhoneCached() {
+        return cached.normalize(phone);
+    }
+
+    @Benchmark
+    public void paymentConfirmation(Blackhole blackhole) {
+        whatsAppService.sendPaymentConfirmation(phone, payment);
+        blackhole.consume(phone);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.notification_service.campaign;
+
+import com.example.notification_service.model.NotificationEvent;
+import lombok.extern.slf4j.Slf4j;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Campaign progress on local disk: {@code <id>.json} holds the campaign event while it
+ * runs, {@code <id>.cursor} the segment cursor up to which every recipient has been
+ * sent, or {@code done} once the campaign finished, or {@code failed} when its segment
+ * cannot be read at all. The cursor file is replaced atomically, so a crash leaves
+ * either the old or the new checkpoint. File names are the URL-encoded event id, or a
+ * hash of it when that would be too long, so two ids never share a file.
+ */
+@Slf4j
+class CampaignCheckpoints {
+
+    private static final String DONE = "done";
+    private static final String FAILED = "failed";
+    private static final int MAX_NAME_LENGTH = 128;
+
+    record Unfinished(NotificationEvent campaign, long cursor) {
+    }
+
+    private final Path directory;
+    private final JsonMapper json;
+
+    CampaignCheckpoints(Path directory, JsonMapper json) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.json = json;
+    }
+
+    /** True when the campaign has been started before, finished or not. */
+    boolean known(String id) {
+        return Files.exists(cursorFile(id));
+    }
+
+    void create(NotificationEvent campaign) throws IOException {
+        String id = campaign.getEventId();
+        Files.write(eventFile(id), json.writeValueAsBytes(campaign));
+        advance(id, 0);
+    }
+
+    void advance(String id, long cursor) throws IOException {
+        write(id, Long.toString(cursor));
+    }
+
+    /** The cursor of a running campaign. */
+    long cursor(String id) throws IOException {
+        return Long.parseLong(Files.readString(cursorFile(id)).trim());
+    }
+
+    void complete(String id) throws IOException {
+        write(id, DONE);
+        Files.deleteIfExists(eventFile(id));
+    }
+
+    /** Ends a campaign that can never run, so it is neither resumed nor started again. */
+    void fail(String id) throws IOException {
+        write(id, FAILED);
+        Files.deleteIfExists(eventFile(id));
+    }
+
+    List<Unfinished> unfinished() throws IOException {
+        List<Unfinished> result = new ArrayList<>();
+        List<Path> events;
+        try (Stream<Path> files = Files.list(directory)) {
+            events = files.filter(p -> p.getFileName().toString().endsWith(".json")).sorted().toList();
+        }
+        for (Path file : events) {
+            try {
+                NotificationEvent campaign = json.readValue(Files.readAllBytes(file), NotificationEvent.class);
+                String cursor = Files.readString(cursorFile(campaign.getEventId())).trim();
+                if (!DONE.equals(cursor) && !FAILED.equals(cursor)) result.add(new Unfinished(campaign, Long.parseLong(cursor)));
+            } catch (IOException | RuntimeException e) {
+                log.error("Skipping unreadable campaign checkpoint {}: {}", file.getFileName(), e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    private void write(String id, String content) throws IOException {
+        Path target = cursorFile(id);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.writeString(temp, content);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path eventFile(String id) {
+        return directory.resolve(fileName(id) + ".json");
+    }
+
+    private Path cursorFile(String id) {
+        return directory.resolve(fileName(id) + ".cursor");
+    }
+
+    // URL encoding is one-to-one and leaves plain ids readable; it never produces '~', so
+    // hashed names cannot clash with encoded ones
+    static String fileName(String id) {
+        String encoded = URLEncoder.encode(id, StandardCharsets.UTF_8);
+        if (encoded.length() <= MAX_NAME_LENGTH && !encoded.startsWith(".")) return encoded;
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(id.getBytes(StandardCharsets.UTF_8));
+            return "~" + HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.example.notification_service.campaign;
+
+import com.example.notification_service.dispatch.ChannelFanOut;
+import com.example.notification_service.dispatch.DispatchEngine;
+import com.example.notification_service.dispatch.Lane;
+import com.example.notification_service.model.NotificationEvent;
+import com.example.notification_service.ratelimit.TokenBucket;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+
+import javax.sql.DataSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk PROMOTION campaigns. A campaign is one event whose {@code segment} names the
+ * recipients: {@code file:<name>} for a CSV file under {@code notification.campaign.segment-dir}
+ * or {@code table:<name>} for a table in the configured database (see
+ * {@link CsvRecipientSource} and {@link JdbcRecipientSource}).
+ * <p>
+ * Each campaign runs on its own virtual thread. The segment is read a page at a time
+ * and every recipient becomes a PROMOTION event on the bulk lane of the
+ * {@link DispatchEngine}, paced by a per-campaign token bucket; the bounded bulk queues
+ * push back further when transactional work needs the workers. Recipients with the same
+ * variant share one template data map, so each variant's templates are rendered once.
+ * <p>
+ * Once every recipient of a page has been sent, the page's cursor is checkpointed; after
+ * a restart the campaign resumes from the last checkpoint. Recipients of a page that was
+ * in flight may be sent again, which the deduplicator absorbs when it has a persistent
+ * store. Per-recipient event ids are {@code <campaign id>:<cursor>}. A campaign whose
+ * segment cannot be opened is checkpointed as failed and not retried. Any other error,
+ * such as a page read failing on a database blip, restarts the campaign from its last
+ * checkpoint after a backoff that doubles up to {@code max-retry-backoff}.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class CampaignEngine {
+
+    private final ChannelFanOut channelFanOut;
+    private final DispatchEngine dispatchEngine;
+    // only resolved for table segments; the pool is created on first use
+    private final ObjectProvider<DataSource> dataSource;
+    private final JsonMapper json;
+
+    @Value("${notification.campaign.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notification.campaign.dir:data/campaigns}")
+    private Path directory;
+
+    @Value("${notification.campaign.segment-dir:data/segments}")
+    private Path segmentDirectory;
+
+    @Value("${notification.campaign.page-size:500}")
+    private int pageSize;
+
+    // recipients per second, per campaign; each recipient may get two messages
+    @Value("${notification.campaign.rate:20}")
+    private double rate;
+
+    @Value("${spring.datasource.url:}")
+    private String url;
+
+    @Value("${notification.campaign.retry-backoff:1s}")
+    private Duration retryBackoff;
+
+    @Value("${notification.campaign.max-retry-backoff:5m}")
+    private Duration maxRetryBackoff;
+
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+    private final ExecutorService runners = Executors.newVirtualThreadPerTaskExecutor();
+    private CampaignCheckpoints checkpoints;
+    private volatile boolean stopping;
+
+    private static final class Page {
+        final long cursor;
+        final CountDownLatch remaining;
+
+        Page(long cursor, int size) {
+            this.cursor = cursor;
+            this.remaining = new CountDownLatch(size);
+        }
+
+        boolean done() {
+            return remaining.getCount() == 0;
+        }
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) return;
+        checkpoints = new CampaignCheckpoints(directory, json);
+        List<CampaignCheckpoints.Unfinished> unfinished = checkpoints.unfinished();
+        for (CampaignCheckpoints.Unfinished campaign : unfinished) {
+            log.info("Resuming campaign {} from cursor {}", campaign.campaign().getEventId(), campaign.cursor());
+            run(campaign.campaign(), campaign.cursor());
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        stopping = true;
+        runners.shutdownNow();
+        // whatever is not checkpointed by now is resumed on the next start
+        runners.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Takes over a campaign event (a PROMOTION with a segment) and starts expanding it in
+     * the background. Returns false for any other event, which the caller delivers itself.
+     * A campaign that was started before, e.g. a redelivered record, is not started again.
+     */
+    public boolean launch(NotificationEvent event) {
+        if (!"PROMOTION".equals(event.getEventType()) || event.getSegment() == null || event.getSegment().isBlank()) {
+            return false;
+        }
+        String id = event.getEventId();
+        if (!enabled || id == null) {
+            log.warn("Dropping campaign {} for segment {}: {}", id, event.getSegment(),
+                    enabled ? "a campaign needs an eventId" : "campaigns are disabled");
+            return true;
+        }
+        synchronized (this) {
+            if (running.contains(id) || checkpoints.known(id)) {
+                log.info("Campaign {} was already started, ignoring it", id);
+                return true;
+            }
+            try {
+                checkpoints.create(event);
+            } catch (IOException e) {
+                // still run it; only resuming after a restart is lost
+                log.error("Could not checkpoint campaign {}: {}", id, e.getMessage());
+            }
+            log.info("Starting campaign {} for segment {}", id, event.getSegment());
+            run(event, 0);
+        }
+        return true;
+    }
+
+    public int active() {
+        return running.size();
+    }
+
+    private void run(NotificationEvent campaign, long cursor) {
+        String id = campaign.getEventId();
+        running.add(id);
+        runners.execute(() -> {
+            try {
+                long from = cursor;
+                Duration backoff = retryBackoff;
+                while (true) {
+                    try {
+                        expand(campaign, from);
+                        return;
+                    } catch (InterruptedException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        if (stopping) throw new InterruptedException();
+                        log.error("Campaign {} failed, retrying from its last checkpoint in {}: {}", id, backoff, e.getMessage());
+                    }
+                    TimeUnit.NANOSECONDS.sleep(backoff.toNanos());
+                    backoff = backoff.multipliedBy(2);
+                    if (backoff.compareTo(maxRetryBackoff) > 0) backoff = maxRetryBackoff;
+                    from = lastCheckpoint(id, from);
+                }
+            } catch (InterruptedException e) {
+                log.info("Campaign {} paused for shutdown", id);
+            } finally {
+                running.remove(id);
+            }
+        });
+    }
+
+    private void expand(NotificationEvent campaign, long cursor) throws IOException, InterruptedException {
+        String id = campaign.getEventId();
+        TokenBucket pace = new TokenBucket(rate, 1);
+        Map<String, Map<String, String>> variants = new HashMap<>();
+        ArrayDeque<Page> inFlight = new ArrayDeque<>();
+        long sent = 0;
+        RecipientSource segment;
+        try {
+            segment = open(campaign.getSegment(), cursor);
+        } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+            // bad segment name, missing or malformed file, no datasource: the same on every restart
+            log.error("Campaign {} failed, segment {} cannot be read: {}", id, campaign.getSegment(), e.getMessage());
+            checkpoints.fail(id);
+            return;
+        }
+        try (RecipientSource source = segment) {
+            List<Recipient> recipients;
+            while (!(recipients = source.next(pageSize)).isEmpty()) {
+                Page page = new Page(recipients.getLast().cursor(), recipients.size());
+                inFlight.add(page);
+                for (Recipient recipient : recipients) {
+                    if (stopping) throw new InterruptedException();
+                    long wait = pace.reserve(Long.MAX_VALUE);
+                    if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+                    NotificationEvent event = recipientEvent(campaign, recipient, variants);
+                    dispatchEngine.submit(DispatchEngine.recipientKey(event), Lane.BULK, () -> {
+                        try {
+                            channelFanOut.fanOut(event, System.nanoTime());
+                        } finally {
+                            page.remaining.countDown();
+                        }
+                    });
+                }
+                sent += recipients.size();
+                checkpointFinished(id, inFlight);
+            }
+        }
+        for (Page page : inFlight) page.remaining.await();
+        checkpointFinished(id, inFlight);
+        checkpoints.complete(id);
+        log.info("Campaign {} finished, {} recipients", id, sent);
+    }
+
+    // where a retry starts; the cursor the run started from when checkpointing fails as well
+    private long lastCheckpoint(String id, long fallback) {
+        try {
+            return checkpoints.cursor(id);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not read the checkpoint of campaign {}, retrying from cursor {}: {}", id, fallback, e.getMessage());
+            return fallback;
+        }
+    }
+
+    // the cursor only moves past a page once it and every page before it are sent
+    private void checkpointFinished(String id, ArrayDeque<Page> inFlight) throws IOException {
+        long cursor = -1;
+        while (!inFlight.isEmpty() && inFlight.peek().done()) cursor = inFlight.poll().cursor;
+        if (cursor >= 0) checkpoints.advance(id, cursor);
+    }
+
+    private RecipientSource open(String segment, long cursor) throws IOException {
+        if (segment.startsWith("file:")) {
+            Path root = segmentDirectory.toAbsolutePath().normalize();
+            Path file = root.resolve(segment.substring("file:".length())).normalize();
+            if (!file.startsWith(root)) throw new IllegalArgumentException("Segment file outside " + root + ": " + segment);
+            return new CsvRecipientSource(file, cursor);
+        }
+        if (segment.startsWith("table:")) {
+            if (url.isBlank()) throw new IllegalStateException("Segment " + segment + " needs spring.datasource.url");
+            return new JdbcRecipientSource(dataSource.getObject(), segment.substring("table:".length()), cursor);
+        }
+        throw new IllegalArgumentException("Unknown segment '" + segment + "', expected file:<name> or table:<name>");
+    }
+
+    private static NotificationEvent recipientEvent(NotificationEvent campaign, Recipient recipient,
+                                                    Map<String, Map<String, String>> variants) {
+        String variant = recipient.variant() == null ? "" : recipient.variant();
+        // one shared, unchanging map per variant: the template engine renders each variant once
+        Map<String, String> templateData = variants.computeIfAbsent(variant, v -> variantData(campaign, v));
+        return NotificationEvent.builder()
+                .eventId(campaign.getEventId() + ":" + recipient.cursor())
+                .eventType("PROMOTION")
+                .recipientPhone(recipient.phone())
+                .recipientEmail(recipient.email())
+                .recipientName(recipient.name())
+                .templateData(templateData)
+                .priority(campaign.getPriority())
+                .timestamp(campaign.getTimestamp())
+                .build();
+    }
+
+    private static Map<String, String> variantData(NotificationEvent campaign, String variant) {
+        Map<String, String> data = new HashMap<>();
+        if (campaign.getTemplateData() != null) {
+            campaign.getTemplateData().forEach((key, value) -> {
+                if (value != null) data.put(key, value);
+            });
+        }
+        if (!variant.isEmpty()) data.put("variant", variant);
+        return Map.copyOf(data);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.notification_service.campaign;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Recipients from a CSV file with a header row naming the columns {@code phone},
+ * {@code email}, {@code name} and optionally {@code variant}, in any order. Fields may
+ * be double-quoted. The cursor is the number of data rows read.
+ */
+class CsvRecipientSource implements RecipientSource {
+
+    private final BufferedReader reader;
+    private final int phone;
+    private final int email;
+    private final int name;
+    private final int variant;
+    private long row;
+
+    CsvRecipientSource(Path file, long cursor) throws IOException {
+        this.reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        try {
+            String header = reader.readLine();
+            if (header == null) throw new IOException("Segment file " + file + " is empty");
+            List<String> columns = split(header.startsWith("\uFEFF") ? header.substring(1) : header)
+                    .stream().map(c -> c.trim().toLowerCase(Locale.ROOT)).toList();
+            phone = columns.indexOf("phone");
+            email = columns.indexOf("email");
+            name = columns.indexOf("name");
+            variant = columns.indexOf("variant");
+            if (phone < 0 && email < 0) throw new IOException("Segment file " + file + " has neither a phone nor an email column");
+            // resuming: skip what a previous run already handed out
+            while (row < cursor && reader.readLine() != null) row++;
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Recipient> next(int max) throws IOException {
+        List<Recipient> page = new ArrayList<>(max);
+        String line;
+        while (page.size() < max && (line = reader.readLine()) != null) {
+            row++;
+            if (line.isBlank()) continue;
+            List<String> fields = split(line);
+            page.add(new Recipient(row, field(fields, phone), field(fields, email), field(fields, name), field(fields, variant)));
+        }
+        return page;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static String field(List<String> fields, int index) {
+        if (index < 0 || index >= fields.size()) return null;
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.notification_service.campaign;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Recipients from a table in the {@code spring.datasource.*} database with the columns
+ * {@code id} (numeric, unique), {@code phone}, {@code email}, {@code name} and
+ * {@code variant}. Pages are read by id (keyset pagination, {@code WHERE id > cursor}),
+ * so every page costs the same however deep into the table the campaign is, and rows
+ * added behind the cursor are not picked up twice. Each page borrows a connection from
+ * the pool only while it is read.
+ */
+class JdbcRecipientSource implements RecipientSource {
+
+    private static final Pattern TABLE_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)?");
+
+    private final DataSource dataSource;
+    private final String query;
+    private long cursor;
+
+    JdbcRecipientSource(DataSource dataSource, String table, long cursor) {
+        // the name ends up in the SQL text, so only plain (optionally schema-qualified) identifiers
+        if (!TABLE_NAME.matcher(table).matches()) throw new IllegalArgumentException("Invalid segment table name: " + table);
+        this.dataSource = dataSource;
+        this.query = "SELECT id, phone, email, name, variant FROM " + table + " WHERE id > ? ORDER BY id LIMIT ?";
+        this.cursor = cursor;
+    }
+
+    @Override
+    public List<Recipient> next(int max) throws IOException {
+        List<Recipient> page = new ArrayList<>(max);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setLong(1, cursor);
+            statement.setInt(2, max);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    page.add(new Recipient(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5)));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IOException("Reading segment page after id " + cursor + " failed: " + e.getMessage(), e);
+        }
+        if (!page.isEmpty()) cursor = page.getLast().cursor();
+        return page;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.notification_service.campaign;
+
+/**
+ * One row of a campaign segment. {@code cursor} is where the segment resumes after this
+ * row: the row number for a file, the row id for a table.
+ */
+public record Recipient(long cursor, String phone, String email, String name, String variant) {
+}
@@ -0,0 +1,19 @@
+package com.example.notification_service.campaign;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Streams the recipients of a campaign segment page by page, starting after a cursor,
+ * so a segment of any size is never held in memory at once.
+ */
+public interface RecipientSource extends Closeable {
+
+    /** The next recipients, at most {@code max}; empty once the segment is exhausted. */
+    List<Recipient> next(int max) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.notification_service.codec;
+
+import com.example.notification_service.model.NotificationEvent;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact binary form of a {@link NotificationEvent}, used instead of JSON for records
+ * that carry the {@link #HEADER} header.
+ * <p>
+ * Layout: one version byte, then one field per non-null property as
+ * {@code tag (varint), length (varint), payload}. Fields may come in any order and a
+ * reader skips tags it does not know, so a field can be added under a new tag without
+ * breaking older consumers; the version only changes for a layout older readers cannot
+ * skip through. Payloads:
+ * <ul>
+ *   <li>strings: UTF-8 bytes</li>
+ *   <li>event type: a varint code for the known types (see {@link #EVENT_TYPES}), or the
+ *       name as a string under its own tag</li>
+ *   <li>priority: zigzag varint</li>
+ *   <li>date-times: zigzag varint seconds of the local date-time read as UTC, varint nanos</li>
+ *   <li>template data: varint entry count, then per entry the key (varint length, bytes)
+ *       and the value (varint length + 1, bytes; 0 for null)</li>
+ * </ul>
+ * Decoding reads straight from the record bytes, without an intermediate tree.
+ */
+public final class NotificationEventCodec {
+
+    public static final String HEADER = "x-notification-codec";
+    public static final String BINARY = "binary";
+
+    static final byte VERSION = 1;
+
+    // index = code; code 0 is never written. Append only: codes are on the wire
+    static final String[] EVENT_TYPES = {null, "WELCOME", "PAYMENT_CONFIRMED", "PROMOTION"};
+
+    private static final int EVENT_ID = 1;
+    private static final int EVENT_TYPE_CODE = 2;
+    private static final int EVENT_TYPE_NAME = 3;
+    private static final int RECIPIENT_PHONE = 4;
+    private static final int RECIPIENT_EMAIL = 5;
+    private static final int RECIPIENT_NAME = 6;
+    private static final int TEMPLATE_DATA = 7;
+    private static final int PRIORITY = 8;
+    private static final int TIMESTAMP = 9;
+    private static final int SEGMENT = 10;
+    private static final int SEND_AT = 11;
+
+    private NotificationEventCodec() {
+    }
+
+    public static byte[] encode(NotificationEvent event) {
+        Writer out = new Writer(512);
+        out.buf[out.count++] = VERSION;
+        out.string(EVENT_ID, event.getEventId());
+        String eventType = event.getEventType();
+        int code = eventTypeCode(eventType);
+        if (code > 0) {
+            out.varint(EVENT_TYPE_CODE);
+            out.varint(varintSize(code));
+            out.varint(code);
+        } else {
+            out.string(EVENT_TYPE_NAME, eventType);
+        }
+        out.string(RECIPIENT_PHONE, event.getRecipientPhone());
+        out.string(RECIPIENT_EMAIL, event.getRecipientEmail());
+        out.string(RECIPIENT_NAME, event.getRecipientName());
+        if (event.getTemplateData() != null) {
+            out.varint(TEMPLATE_DATA);
+            int start = out.reserve();
+            Map<String, String> data = event.getTemplateData();
+            out.varint(data.size());
+            for (Map.Entry<String, String> entry : data.entrySet()) {
+                out.text(entry.getKey(), 0);
+                if (entry.getValue() == null) {
+                    out.varint(0);
+                } else {
+                    out.text(entry.getValue(), 1);
+                }
+            }
+            out.complete(start);
+        }
+        if (event.getPriority() != null) {
+            long priority = zigzag(event.getPriority());
+            out.varint(PRIORITY);
+            out.varint(varintSize(priority));
+            out.varint(priority);
+        }
+        out.dateTime(TIMESTAMP, event.getTimestamp());
+        out.string(SEGMENT, event.getSegment());
+        out.dateTime(SEND_AT, event.getSendAt());
+        return Arrays.copyOf(out.buf, out.count);
+    }
+
+    public static NotificationEvent decode(byte[] data) {
+        if (data == null || data.length == 0) {
+            throw new SerializationException("Empty binary notification event");
+        }
+        if (data[0] != VERSION) {
+            throw new SerializationException("Unsupported binary notification event version " + data[0]);
+        }
+        Reader in = new Reader(data, 1);
+        NotificationEvent event = new NotificationEvent();
+        try {
+            while (in.pos < data.length) {
+                int tag = (int) in.varint();
+                int length = in.length(data.length, "Field " + tag);
+                int end = in.pos + length;
+                switch (tag) {
+                    case EVENT_ID -> event.setEventId(in.string(length));
+                    case EVENT_TYPE_CODE -> event.setEventType(eventType((int) in.varint()));
+                    case EVENT_TYPE_NAME -> event.setEventType(in.string(length));
+                    case RECIPIENT_PHONE -> event.setRecipientPhone(in.string(length));
+                    case RECIPIENT_EMAIL -> event.setRecipientEmail(in.string(length));
+                    case RECIPIENT_NAME -> event.setRecipientName(in.string(length));
+                    case TEMPLATE_DATA -> event.setTemplateData(in.templateData(end));
+                    case PRIORITY -> event.setPriority((int) unzigzag(in.varint()));
+                    case TIMESTAMP -> event.setTimestamp(in.dateTime());
+                    case SEGMENT -> event.setSegment(in.string(length));
+                    case SEND_AT -> event.setSendAt(in.dateTime());
+                    default -> {
+                        // written by a newer producer; skipped by its length
+                    }
+                }
+                in.pos = end;
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new SerializationException("Truncated binary notification event", e);
+        }
+        return event;
+    }
+
+    private static int eventTypeCode(String eventType) {
+        if (eventType == null) return 0;
+        for (int code = 1; code < EVENT_TYPES.length; code++) {
+            if (EVENT_TYPES[code].equals(eventType)) return code;
+        }
+        return 0;
+    }
+
+    private static String eventType(int code) {
+        if (code <= 0 || code >= EVENT_TYPES.length) {
+            throw new SerializationException("Unknown event type code " + code);
+        }
+        return EVENT_TYPES[code];
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static final class Writer {
+        byte[] buf;
+        int count;
+
+        Writer(int capacity) {
+            this.buf = new byte[capacity];
+        }
+
+        void ensure(int extra) {
+            if (count + extra > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + extra));
+        }
+
+        void varint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buf[count++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[count++] = (byte) value;
+        }
+
+        void bytes(byte[] value) {
+            ensure(value.length);
+            System.arraycopy(value, 0, buf, count, value.length);
+            count += value.length;
+        }
+
+        void string(int tag, String value) {
+            if (value == null) return;
+            varint(tag);
+            text(value, 0);
+        }
+
+        // UTF-8 length (plus bias), then the bytes; ASCII, the usual case, is copied without an intermediate array
+        void text(String value, int bias) {
+            int length = value.length();
+            for (int i = 0; i < length; i++) {
+                if (value.charAt(i) >= 0x80) {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    varint(bytes.length + bias);
+                    bytes(bytes);
+                    return;
+                }
+            }
+            varint(length + bias);
+            ensure(length);
+            for (int i = 0; i < length; i++) buf[count++] = (byte) value.charAt(i);
+        }
+
+        void dateTime(int tag, LocalDateTime value) {
+            if (value == null) return;
+            long seconds = zigzag(value.toEpochSecond(ZoneOffset.UTC));
+            int nanos = value.getNano();
+            varint(tag);
+            varint(varintSize(seconds) + varintSize(nanos));
+            varint(seconds);
+            varint(nanos);
+        }
+
+        // payload of unknown length: written first, then moved up behind its length
+        int reserve() {
+            return count;
+        }
+
+        void complete(int start) {
+            int length = count - start;
+            int size = varintSize(length);
+            ensure(size);
+            System.arraycopy(buf, start, buf, start + size, length);
+            int end = count + size;
+            count = start;
+            varint(length);
+            count = end;
+        }
+    }
+
+    private static final class Reader {
+        final byte[] buf;
+        int pos;
+
+        Reader(byte[] buf, int pos) {
+            this.buf = buf;
+            this.pos = pos;
+        }
+
+        long varint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buf[pos++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return value;
+            }
+            throw new SerializationException("Malformed varint at " + pos);
+        }
+
+        String string(int length) {
+            return new String(buf, pos, length, StandardCharsets.UTF_8);
+        }
+
+        LocalDateTime dateTime() {
+            long seconds = unzigzag(varint());
+            return LocalDateTime.ofEpochSecond(seconds, (int) varint(), ZoneOffset.UTC);
+        }
+
+        // a length or count read from the record, which must fit in what is left before end
+        int length(int end, String what) {
+            long value = varint();
+            if (value < 0 || value > end - pos) {
+                throw new SerializationException("Length " + value + " of " + what + " runs past its end");
+            }
+            return (int) value;
+        }
+
+        Map<String, String> templateData(int end) {
+            int size = length(end, "Template data size");
+            // every entry takes at least two bytes, so a corrupt count cannot size a huge map
+            if (size > (end - pos) / 2) {
+                throw new SerializationException("Template data size " + size + " exceeds its field");
+            }
+            Map<String, String> data = HashMap.newHashMap(size);
+            for (int i = 0; i < size; i++) {
+                int keyLength = length(end, "Template data key");
+                String key = string(keyLength);
+                pos += keyLength;
+                // biased by one for null
+                int valueLength = length(end + 1, "Template data value");
+                String value = null;
+                if (valueLength > 0) {
+                    value = string(valueLength - 1);
+                    pos += valueLength - 1;
+                }
+                data.put(key, value);
+            }
+            return data;
+        }
+    }
+}
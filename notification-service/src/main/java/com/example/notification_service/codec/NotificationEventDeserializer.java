@@ -0,0 +1,54 @@
+package com.example.notification_service.codec;
+
+import com.example.notification_service.model.NotificationEvent;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Value deserializer of the notification topics: records with the
+ * {@link NotificationEventCodec#HEADER} header set to {@code binary} are decoded by the
+ * {@link NotificationEventCodec}, everything else by a {@link JsonDeserializer} configured
+ * from the same properties, so JSON producers keep working next to binary ones.
+ */
+@SuppressWarnings("deprecation")
+public class NotificationEventDeserializer implements Deserializer<NotificationEvent> {
+
+    private static final byte[] BINARY = NotificationEventCodec.BINARY.getBytes(StandardCharsets.UTF_8);
+
+    private final JsonDeserializer<NotificationEvent> json = new JsonDeserializer<>();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        json.configure(configs, isKey);
+    }
+
+    @Override
+    public NotificationEvent deserialize(String topic, byte[] data) {
+        return json.deserialize(topic, data);
+    }
+
+    @Override
+    public NotificationEvent deserialize(String topic, Headers headers, byte[] data) {
+        if (data != null && binary(headers)) {
+            return NotificationEventCodec.decode(data);
+        }
+        return json.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+
+    static boolean binary(Headers headers) {
+        if (headers == null) return false;
+        Header header = headers.lastHeader(NotificationEventCodec.HEADER);
+        return header != null && Arrays.equals(header.value(), BINARY);
+    }
+}
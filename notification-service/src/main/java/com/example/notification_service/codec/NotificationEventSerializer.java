@@ -0,0 +1,60 @@
+package com.example.notification_service.codec;
+
+import com.example.notification_service.model.NotificationEvent;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Value serializer of the notification topics. Writes JSON by default, or the
+ * {@link NotificationEventCodec} binary form when {@link #CODEC_CONFIG} is {@code binary};
+ * binary records are marked with the {@link NotificationEventCodec#HEADER} header so the
+ * {@link NotificationEventDeserializer} can tell them apart. Without headers to mark the
+ * record, JSON is always written.
+ */
+@SuppressWarnings("deprecation")
+public class NotificationEventSerializer implements Serializer<NotificationEvent> {
+
+    public static final String CODEC_CONFIG = "notification.codec";
+
+    private static final byte[] BINARY = NotificationEventCodec.BINARY.getBytes(StandardCharsets.UTF_8);
+
+    private final JsonSerializer<NotificationEvent> json = new JsonSerializer<>();
+    private boolean binary;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        json.configure(configs, isKey);
+        Object codec = configs.get(CODEC_CONFIG);
+        if (codec != null && !"json".equals(codec.toString()) && !NotificationEventCodec.BINARY.equals(codec.toString())) {
+            throw new IllegalArgumentException("Unknown " + CODEC_CONFIG + " '" + codec + "', expected json or binary");
+        }
+        binary = codec != null && NotificationEventCodec.BINARY.equals(codec.toString());
+    }
+
+    @Override
+    public byte[] serialize(String topic, NotificationEvent data) {
+        return json.serialize(topic, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, NotificationEvent data) {
+        if (headers != null) {
+            // a republished record must not keep a marker that no longer matches its payload
+            headers.remove(NotificationEventCodec.HEADER);
+            if (binary && data != null) {
+                headers.add(NotificationEventCodec.HEADER, BINARY);
+                return NotificationEventCodec.encode(data);
+            }
+        }
+        return json.serialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+}
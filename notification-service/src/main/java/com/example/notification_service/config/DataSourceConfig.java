@@ -0,0 +1,37 @@
+package com.example.notification_service.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+import java.time.Duration;
+
+// Pooled connections to the spring.datasource.* database, for the JDBC dedup store and table campaign segments.
+// Lazy: the database is optional, so nothing connects until one of them first needs it
+@Configuration
+public class DataSourceConfig {
+
+    @Bean(destroyMethod = "close")
+    @Lazy
+    public HikariDataSource dataSource(@Value("${spring.datasource.url:}") String url,
+                                       @Value("${spring.datasource.username:}") String username,
+                                       @Value("${spring.datasource.password:}") String password,
+                                       @Value("${spring.datasource.hikari.maximum-pool-size:8}") int maxPoolSize,
+                                       @Value("${spring.datasource.hikari.connection-timeout:5s}") Duration connectionTimeout) {
+        if (url.isBlank()) throw new IllegalStateException("spring.datasource.url is not set");
+
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("notification-db");
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(maxPoolSize);
+        config.setMinimumIdle(1);
+        config.setConnectionTimeout(connectionTimeout.toMillis());
+
+        return new HikariDataSource(config);
+    }
+}
@@ -1,6 +1,10 @@
 package com.example.notification_service.config;
 
+import com.example.notification_service.codec.NotificationEventDeserializer;
 import com.example.notification_service.model.NotificationEvent;
+import com.example.notification_service.offset.DrainCoordinator;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.beans.factory.annotation.Value;
@@ -9,52 +13,146 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
-import org.springframework.kafka.support.serializer.JsonDeserializer;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
 @Configuration
+@RequiredArgsConstructor
 public class KafkaConsumerConfig {
 
+    private final MeterRegistry meterRegistry;
+
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    // listener threads only decode and hand off; delivery parallelism comes from notification.dispatch.workers
+    @Value("${notification.kafka.concurrency:1}")
+    private int concurrency;
+
+    // earliest: a new group (or one whose offsets expired) starts with what was published while it was down
+    @Value("${spring.kafka.consumer.auto-offset-reset:earliest}")
+    private String autoOffsetReset;
+
+    @Value("${notification.kafka.batch.max-poll-records:500}")
+    private int batchMaxPollRecords;
+
+    @Value("${notification.kafka.batch.fetch-min-bytes:1}")
+    private int batchFetchMinBytes;
+
+    @Value("${notification.kafka.batch.fetch-max-wait:500ms}")
+    private Duration batchFetchMaxWait;
+
+    @Value("${notification.kafka.commit.interval:5s}")
+    private Duration commitInterval;
+
+    @Value("${notification.drain.shutdown-timeout:20s}")
+    private Duration drainShutdownTimeout;
+
     @Bean
     public ConsumerFactory<String, NotificationEvent> consumerFactory() {
-        Map<String, Object> props = new HashMap<>();
+        return consumerFactory(consumerProps());
+    }
 
-        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(ConsumerConfig.GROUP_ID_CONFIG, "notification-service-group");
-        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
-        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, true);
+    // Offsets are committed by the OffsetTracker once deliveries finish; the container never commits on its own.
+    // The DrainCoordinator lets in-flight deliveries finish before partitions are revoked or the consumer closes
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, NotificationEvent>
+    kafkaListenerContainerFactory(DrainCoordinator drainCoordinator) {
 
-        // Note: JsonDeserializer is deprecated in Spring Kafka 4.0+
-        // but still works. Will migrate when upgrading to 5.x
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+        ConcurrentKafkaListenerContainerFactory<String, NotificationEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
 
-        props.put(ErrorHandlingDeserializer.KEY_DESERIALIZER_CLASS, StringDeserializer.class.getName());
-        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class.getName());
+        factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(concurrency);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setConsumerRebalanceListener(drainCoordinator);
+        // stop() waits for the consumer thread, which drains before it closes the consumer
+        factory.getContainerProperties().setShutdownTimeout(drainShutdownTimeout.plusSeconds(5).toMillis());
+        // idle events give the tracker a chance to commit when no new records arrive
+        factory.getContainerProperties().setIdleEventInterval(commitInterval.toMillis());
 
-        props.put("spring.json.trusted.packages", "com.example.notification_service.model");
-        props.put("spring.json.value.default.type", NotificationEvent.class.getName());
-        props.put("spring.json.use.type.headers", false);
+        return factory;
+    }
+
+    // Batch mode (notification.kafka.batch.enabled=true): larger polls, one listener call per poll
+    @Bean
+    public ConsumerFactory<String, NotificationEvent> batchConsumerFactory() {
+        Map<String, Object> props = consumerProps();
 
-        return new DefaultKafkaConsumerFactory<>(props);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchMaxPollRecords);
+        props.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, batchFetchMinBytes);
+        props.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, (int) batchFetchMaxWait.toMillis());
+
+        return consumerFactory(props);
     }
 
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, NotificationEvent>
-    kafkaListenerContainerFactory() {
+    batchKafkaListenerContainerFactory(DrainCoordinator drainCoordinator) {
 
         ConcurrentKafkaListenerContainerFactory<String, NotificationEvent> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
 
-        factory.setConsumerFactory(consumerFactory());
-        factory.setConcurrency(1);
+        factory.setConsumerFactory(batchConsumerFactory());
+        factory.setConcurrency(concurrency);
+        factory.setBatchListener(true);
+        // a poll is acknowledged only once all its micro-batches finished
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        // a poll past its await timeout may leave micro-batches running; the drain waits for them too
+        factory.getContainerProperties().setConsumerRebalanceListener(drainCoordinator);
+        factory.getContainerProperties().setShutdownTimeout(drainShutdownTimeout.plusSeconds(5).toMillis());
 
         return factory;
     }
-}
\ No newline at end of file
+
+    // Retry tiers: manual acks so a record that is not due yet can be nack'ed (partition paused) until it is
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, NotificationEvent>
+    retryKafkaListenerContainerFactory() {
+        Map<String, Object> props = consumerProps();
+
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+
+        ConcurrentKafkaListenerContainerFactory<String, NotificationEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+
+        factory.setConsumerFactory(consumerFactory(props));
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+
+        return factory;
+    }
+
+    // binds the Kafka client metrics, including records-lag per assigned partition, to the registry
+    private ConsumerFactory<String, NotificationEvent> consumerFactory(Map<String, Object> props) {
+        DefaultKafkaConsumerFactory<String, NotificationEvent> factory = new DefaultKafkaConsumerFactory<>(props);
+        factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return factory;
+    }
+
+    private Map<String, Object> consumerProps() {
+        Map<String, Object> props = new HashMap<>();
+
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, "notification-service-group");
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, autoOffsetReset);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+
+        // JSON, or the binary codec for records marked with its header; the spring.json.* settings apply to JSON
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+
+        props.put(ErrorHandlingDeserializer.KEY_DESERIALIZER_CLASS, StringDeserializer.class.getName());
+        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, NotificationEventDeserializer.class.getName());
+
+        props.put("spring.json.trusted.packages", "com.example.notification_service.model");
+        props.put("spring.json.value.default.type", NotificationEvent.class.getName());
+        props.put("spring.json.use.type.headers", false);
+
+        return props;
+    }
+}
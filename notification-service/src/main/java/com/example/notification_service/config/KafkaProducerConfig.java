@@ -0,0 +1,51 @@
+package com.example.notification_service.config;
+
+import com.example.notification_service.codec.NotificationEventSerializer;
+import com.example.notification_service.model.NotificationEvent;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Used to republish failed channel deliveries to the retry tiers and the dead-letter topic
+@Configuration
+public class KafkaProducerConfig {
+
+    @Value("${spring.kafka.bootstrap-servers}")
+    private String bootstrapServers;
+
+    // json or binary; consumers read both, so switch only once every consumer understands binary
+    @Value("${notification.kafka.codec:json}")
+    private String codec;
+
+    @Bean
+    public ProducerFactory<String, NotificationEvent> producerFactory() {
+        Map<String, Object> props = new HashMap<>();
+
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        props.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, NotificationEventSerializer.class);
+        props.put(NotificationEventSerializer.CODEC_CONFIG, codec);
+        // Note: JsonSerializer is deprecated in Spring Kafka 4.0+ like JsonDeserializer; same payload format
+        props.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false);
+
+        return new DefaultKafkaProducerFactory<>(props);
+    }
+
+    @Bean
+    public KafkaTemplate<String, NotificationEvent> kafkaTemplate() {
+        return new KafkaTemplate<>(producerFactory());
+    }
+}
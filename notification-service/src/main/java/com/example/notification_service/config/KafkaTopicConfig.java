@@ -0,0 +1,39 @@
+package com.example.notification_service.config;
+
+import com.example.notification_service.retry.RetryTopics;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+// Retry tiers and dead-letter topic are owned by this service, so it creates them on startup
+@Configuration
+public class KafkaTopicConfig {
+
+    @Value("${notification.retry.partitions:3}")
+    private int partitions;
+
+    @Value("${notification.retry.replicas:1}")
+    private int replicas;
+
+    @Bean
+    public NewTopic retryTier1Topic() {
+        return TopicBuilder.name(RetryTopics.TIER_1).partitions(partitions).replicas(replicas).build();
+    }
+
+    @Bean
+    public NewTopic retryTier2Topic() {
+        return TopicBuilder.name(RetryTopics.TIER_2).partitions(partitions).replicas(replicas).build();
+    }
+
+    @Bean
+    public NewTopic retryTier3Topic() {
+        return TopicBuilder.name(RetryTopics.TIER_3).partitions(partitions).replicas(replicas).build();
+    }
+
+    @Bean
+    public NewTopic deadLetterTopic() {
+        return TopicBuilder.name(RetryTopics.DLT).partitions(partitions).replicas(replicas).build();
+    }
+}
@@ -1,147 +1,153 @@
 package com.example.notification_service.consumer;
 
+import com.example.notification_service.campaign.CampaignEngine;
+import com.example.notification_service.dispatch.ChannelDeliverer;
+import com.example.notification_service.dispatch.ChannelFanOut;
+import com.example.notification_service.dispatch.DeliveryCoalescer;
+import com.example.notification_service.dispatch.DispatchEngine;
+import com.example.notification_service.dispatch.Lane;
+import com.example.notification_service.dispatch.MicroBatchDispatcher;
+import com.example.notification_service.metrics.NotificationMetrics;
+import com.example.notification_service.model.Channel;
 import com.example.notification_service.model.NotificationEvent;
-import com.example.notification_service.service.EmailService;
-import com.example.notification_service.service.WhatsAppService;
+import com.example.notification_service.offset.OffsetTracker;
+import com.example.notification_service.scheduler.NotificationScheduler;
+import com.example.notification_service.spool.DeliverySpool;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.List;
+
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class NotificationConsumer {
 
-    private final WhatsAppService whatsAppService;
-    private final EmailService emailService;
+    public static final String LISTENER_ID = "notification-main";
+    public static final String BATCH_LISTENER_ID = "notification-main-batch";
+
+    private final ChannelFanOut channelFanOut;
+    private final DispatchEngine dispatchEngine;
+    private final MicroBatchDispatcher microBatchDispatcher;
+    private final OffsetTracker offsetTracker;
+    private final NotificationMetrics metrics;
+    private final NotificationScheduler scheduler;
+    private final CampaignEngine campaigns;
+    private final DeliveryCoalescer coalescer;
+    private final DeliverySpool spool;
 
+    @Value("${notification.kafka.batch.redelivery-backoff:5s}")
+    private Duration redeliveryBackoff;
+
+    // exactly one of the two listeners below is started, depending on notification.kafka.batch.enabled
     @KafkaListener(
+            id = LISTENER_ID,
             topics = "notifications",
             groupId = "notification-service-group",
-            containerFactory = "kafkaListenerContainerFactory"
+            containerFactory = "kafkaListenerContainerFactory",
+            autoStartup = "#{!${notification.kafka.batch.enabled:false}}"
     )
-    public void consume(NotificationEvent event) {
+    public void consume(ConsumerRecord<String, NotificationEvent> record, Consumer<?, ?> consumer) {
 
-        if (event == null) {
-            log.error("Received null event");
+        long receivedAt = System.nanoTime();
+        NotificationEvent event = record.value();
+        if (!offsetTracker.register(record.topic(), record.partition(), record.offset())) {
+            // the partition's previous owner delivered it before a rebalance
+            offsetTracker.maybeCommit(consumer);
             return;
         }
 
-        try {
-            switch (event.getEventType()) {
-                case "WELCOME" -> sendWelcome(event);
-                case "PAYMENT_CONFIRMED" -> sendPayment(event);
-                default -> log.warn("Unknown event type: {}", event.getEventType());
-            }
-        } catch (Exception e) {
-            log.error("Notification failed", e);
-        }
-    }
-
-    // Added helper methods to dispatch notifications based on priority and available recipients.
-    private void sendWelcome(NotificationEvent event) {
-        if (event == null) return;
-
-        Integer priority = event.getPriority();
-        String phone = event.getRecipientPhone();
-        String email = event.getRecipientEmail();
-        String name = event.getRecipientName();
-
-        // priority: 1 = WhatsApp preferred, 2 = Email preferred. If null, try WhatsApp then Email.
-        if (priority != null && priority == 2) {
-            // Email preferred
-            if (email != null && !email.isBlank()) {
-                try {
-                    emailService.sendWelcome(email, name);
-                } catch (Exception e) {
-                    log.error("Failed to send welcome email to {}: {}", email, e.getMessage());
-                }
-            } else {
-                log.warn("No recipient email available for welcome event {}", event.getEventId());
-            }
-
-            // send WhatsApp as secondary if phone available
-            if (phone != null && !phone.isBlank()) {
-                try {
-                    whatsAppService.sendWelcome(phone, name);
-                } catch (Exception e) {
-                    log.error("Failed to send welcome WhatsApp to {}: {}", phone, e.getMessage());
-                }
-            }
+        if (event == null) {
+            log.error("Received null event");
+            offsetTracker.complete(record.topic(), record.partition(), record.offset());
         } else {
-            // WhatsApp preferred (priority == 1 or null)
-            if (phone != null && !phone.isBlank()) {
+            // hand off to the dispatch workers so a slow provider never holds the listener thread;
+            // the offset becomes committable only once the delivery finished
+            Runnable done = () -> offsetTracker.complete(record.topic(), record.partition(), record.offset());
+            Runnable task = () -> {
+                // revoked while queued: left uncommitted for the partition's next owner
+                if (!offsetTracker.owns(record.topic(), record.partition(), record.offset())) return;
+                boolean held = false;
                 try {
-                    whatsAppService.sendWelcome(phone, name);
-                } catch (Exception e) {
-                    log.error("Failed to send welcome WhatsApp to {}: {}", phone, e.getMessage());
+                    held = deliver(event, receivedAt, done);
+                } finally {
+                    if (!held) done.run();
                 }
-            } else {
-                log.warn("No recipient phone available for welcome event {}", event.getEventId());
-            }
-
-            // send Email as secondary if email available
-            if (email != null && !email.isBlank()) {
-                try {
-                    emailService.sendWelcome(email, name);
-                } catch (Exception e) {
-                    log.error("Failed to send welcome email to {}: {}", email, e.getMessage());
+            };
+            String key = DispatchEngine.recipientKey(event);
+            Lane lane = Lane.of(event.getEventType());
+            if (lane != Lane.BULK) {
+                dispatchEngine.submit(key, lane, task);
+            } else if (!dispatchEngine.trySubmit(key, lane, task)) {
+                // bulk lane full: spool the event rather than stall the transactional records behind it
+                if (spill(event)) {
+                    done.run();
+                } else {
+                    dispatchEngine.submit(key, lane, task);
                 }
             }
         }
+        offsetTracker.maybeCommit(consumer);
     }
 
-    private void sendPayment(NotificationEvent event) {
-        if (event == null) return;
-
-        Integer priority = event.getPriority();
-        String phone = event.getRecipientPhone();
-        String email = event.getRecipientEmail();
-        java.util.Map<String, String> data = event.getTemplateData();
-
-        if (data == null) data = java.util.Collections.emptyMap();
-
-        // priority: 1 = WhatsApp preferred, 2 = Email preferred. If null, try WhatsApp then Email.
-        if (priority != null && priority == 2) {
-            // Email preferred
-            if (email != null && !email.isBlank()) {
-                try {
-                    emailService.sendPaymentConfirmation(email, data);
-                } catch (Exception e) {
-                    log.error("Failed to send payment confirmation email to {}: {}", email, e.getMessage());
-                }
-            } else {
-                log.warn("No recipient email available for payment event {}", event.getEventId());
-            }
-
-            if (phone != null && !phone.isBlank()) {
-                try {
-                    whatsAppService.sendPaymentConfirmation(phone, data);
-                } catch (Exception e) {
-                    log.error("Failed to send payment confirmation WhatsApp to {}: {}", phone, e.getMessage());
-                }
-            }
+    @KafkaListener(
+            id = BATCH_LISTENER_ID,
+            topics = "notifications",
+            groupId = "notification-service-group",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            autoStartup = "${notification.kafka.batch.enabled:false}"
+    )
+    public void consumeBatch(List<NotificationEvent> events, Acknowledgment ack) {
+        if (microBatchDispatcher.dispatch(events)) {
+            ack.acknowledge();
         } else {
-            // WhatsApp preferred (priority == 1 or null)
-            if (phone != null && !phone.isBlank()) {
-                try {
-                    whatsAppService.sendPaymentConfirmation(phone, data);
-                } catch (Exception e) {
-                    log.error("Failed to send payment confirmation WhatsApp to {}: {}", phone, e.getMessage());
-                }
-            } else {
-                log.warn("No recipient phone available for payment event {}", event.getEventId());
-            }
+            // redeliver the whole poll; deduplication skips what already went out
+            ack.nack(0, redeliveryBackoff);
+        }
+    }
 
-            if (email != null && !email.isBlank()) {
-                try {
-                    emailService.sendPaymentConfirmation(email, data);
-                } catch (Exception e) {
-                    log.error("Failed to send payment confirmation email to {}: {}", email, e.getMessage());
-                }
-            }
+    // true when the coalescer took the event; it runs done once the digest went out
+    private boolean deliver(NotificationEvent event, long receivedAt, Runnable done) {
+        if (!ChannelDeliverer.supports(event.getEventType())) {
+            log.warn("Unknown event type: {}", event.getEventType());
+            metrics.unsupportedEvent();
+            return false;
         }
+        // future sendAt: stored and timed by the scheduler, so the offset can be committed now
+        if (scheduler.schedule(event)) return false;
+        // a PROMOTION with a segment is expanded in the background, checkpointed on disk
+        if (campaigns.launch(event)) return false;
+        // bursts for one recipient are merged into a digest (notification.coalesce.enabled)
+        if (coalescer.hold(event, receivedAt, done)) return true;
+
+        try {
+            // both channels go out together; priority only decides which one is primary
+            channelFanOut.fanOut(event, receivedAt);
+        } catch (Exception e) {
+            log.error("Notification failed", e);
+        }
+        return false;
     }
 
+    // plain bulk events go to the spool per channel and are replayed by the SpoolDrainer at the
+    // provider's pace; scheduled and campaign events only need a disk write, so they are taken here.
+    // False when the spool cannot take the event, and the caller waits for the lane instead
+    private boolean spill(NotificationEvent event) {
+        if (!spool.isEnabled() || !ChannelDeliverer.supports(event.getEventType())) return false;
+        if (scheduler.schedule(event) || campaigns.launch(event)) return true;
+        for (Channel channel : Channel.values()) {
+            if (ChannelDeliverer.recipient(channel, event) == null) continue;
+            // a channel spooled before a failure is sent again by the task; deduplication skips it
+            if (!spool.append(channel, event)) return false;
+        }
+        metrics.spilled();
+        return true;
+    }
 }
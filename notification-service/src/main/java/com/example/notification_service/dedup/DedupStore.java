@@ -0,0 +1,19 @@
+package com.example.notification_service.dedup;
+
+import java.time.Instant;
+import java.util.function.Consumer;
+
+/**
+ * Durable record of deliveries that survives restarts. Only consulted when the in-memory
+ * prefilter cannot rule a key out, so lookups may be comparatively slow.
+ */
+public interface DedupStore {
+
+    boolean contains(String key);
+
+    /** Records a completed delivery. May be buffered and written later. */
+    void record(String key);
+
+    /** Streams keys recorded since the given time, used to warm the prefilter at startup. */
+    void forEachSince(Instant since, Consumer<String> action);
+}
@@ -0,0 +1,128 @@
+package com.example.notification_service.dedup;
+
+import com.example.notification_service.model.Channel;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Makes channel deliveries idempotent per {@code eventId + channel}, so a record that
+ * Kafka redelivers after a rebalance or crash is not sent twice.
+ * <p>
+ * {@link #tryClaim} is a {@code putIfAbsent} on a {@link ConcurrentHashMap} of live
+ * claims, which is O(1) and only contends per bin. A pair of rotating Bloom filters
+ * remembers every key seen in the last TTL; only when the filter says "maybe" for a key
+ * that is not in the map (evicted, or delivered before a restart) is the optional
+ * {@link DedupStore} asked to confirm.
+ */
+@Component
+@Slf4j
+public class DeliveryDeduplicator {
+
+    private final DedupStore store;
+
+    @Value("${notification.dedup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notification.dedup.ttl:24h}")
+    private Duration ttl;
+
+    @Value("${notification.dedup.max-entries:500000}")
+    private int maxEntries;
+
+    // key -> claim expiry (epoch millis)
+    private final Map<String, Long> claims = new ConcurrentHashMap<>();
+    private volatile BloomFilter current;
+    private volatile BloomFilter previous;
+
+    public DeliveryDeduplicator(ObjectProvider<DedupStore> store) {
+        this.store = store.getIfAvailable();
+    }
+
+    @PostConstruct
+    public void init() {
+        current = newFilter();
+        previous = newFilter();
+        if (enabled && store != null) {
+            int[] loaded = {0};
+            store.forEachSince(Instant.now().minus(ttl), key -> {
+                current.put(key);
+                loaded[0]++;
+            });
+            log.info("Dedup prefilter warmed with {} keys from the persistent store", loaded[0]);
+        }
+    }
+
+    /**
+     * Claims the delivery of an event on a channel. Returns false when it was already
+     * delivered (or is being delivered) within the TTL. Events without an id are never
+     * treated as duplicates.
+     */
+    public boolean tryClaim(String eventId, Channel channel) {
+        if (!enabled || eventId == null || eventId.isBlank()) return true;
+        String key = key(eventId, channel);
+        long now = System.currentTimeMillis();
+        long expiry = now + ttl.toMillis();
+
+        boolean maybeSeen = current.mightContain(key) || previous.mightContain(key);
+
+        Long existing = claims.putIfAbsent(key, expiry);
+        if (existing != null) {
+            if (existing > now || !claims.replace(key, existing, expiry)) return false;
+        } else if (maybeSeen && store != null && store.contains(key)) {
+            return false;
+        }
+
+        current.put(key);
+        return true;
+    }
+
+    /** Records a successful delivery durably. */
+    public void confirm(String eventId, Channel channel) {
+        if (!enabled || eventId == null || eventId.isBlank() || store == null) return;
+        store.record(key(eventId, channel));
+    }
+
+    /** Gives a claim back after a failed delivery so a retry is not mistaken for a duplicate. */
+    public void release(String eventId, Channel channel) {
+        if (!enabled || eventId == null || eventId.isBlank()) return;
+        claims.remove(key(eventId, channel));
+    }
+
+    @Scheduled(fixedDelayString = "${notification.dedup.sweep-interval:1m}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        claims.values().removeIf(expiry -> expiry <= now);
+
+        // still over budget: drop arbitrary entries; with a store configured the Bloom filter still routes them to it
+        int excess = claims.size() - maxEntries;
+        for (Iterator<String> it = claims.keySet().iterator(); excess > 0 && it.hasNext(); excess--) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${notification.dedup.ttl:24h}", fixedDelayString = "${notification.dedup.ttl:24h}")
+    public void rotateFilters() {
+        // keys stay visible for between one and two TTLs
+        previous = current;
+        current = newFilter();
+    }
+
+    private BloomFilter newFilter() {
+        return new BloomFilter(maxEntries, 0.01);
+    }
+
+    private static String key(String eventId, Channel channel) {
+        return eventId + '|' + channel.name();
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.notification_service.dedup;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * {@link DedupStore} in the PostgreSQL database from {@code spring.datasource.*}, using
+ * plain JDBC over the pooled {@link DataSource} so the service does not pull in JPA.
+ * Records are written behind in batches; rows older than the dedup TTL are purged on the
+ * same schedule.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "notification.dedup.store", havingValue = "jdbc")
+public class JdbcDedupStore implements DedupStore {
+
+    private final DataSource dataSource;
+
+    @Value("${notification.dedup.ttl:24h}")
+    private Duration ttl;
+
+    private final ConcurrentLinkedQueue<String> pending = new ConcurrentLinkedQueue<>();
+
+    @PostConstruct
+    public void createTable() throws SQLException {
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    CREATE TABLE IF NOT EXISTS notification_dedup (
+                        dedup_key    VARCHAR(255) PRIMARY KEY,
+                        delivered_at TIMESTAMP NOT NULL
+                    )""");
+            statement.execute("CREATE INDEX IF NOT EXISTS notification_dedup_delivered_at ON notification_dedup (delivered_at)");
+        }
+    }
+
+    @Override
+    public boolean contains(String key) {
+        try (Connection connection = connect();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT 1 FROM notification_dedup WHERE dedup_key = ? AND delivered_at > ?")) {
+            statement.setString(1, key);
+            statement.setTimestamp(2, Timestamp.from(Instant.now().minus(ttl)));
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            // fail open: a missed duplicate is better than a dropped notification
+            log.error("Dedup lookup failed: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public void record(String key) {
+        pending.add(key);
+    }
+
+    @Override
+    public void forEachSince(Instant since, Consumer<String> action) {
+        try (Connection connection = connect();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT dedup_key FROM notification_dedup WHERE delivered_at > ?")) {
+            statement.setFetchSize(5_000);
+            statement.setTimestamp(1, Timestamp.from(since));
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) action.accept(rs.getString(1));
+            }
+        } catch (SQLException e) {
+            log.error("Loading dedup keys failed: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notification.dedup.flush-interval:1s}")
+    public void flush() {
+        if (pending.isEmpty()) return;
+        List<String> batch = new ArrayList<>();
+        String key;
+        while ((key = pending.poll()) != null) batch.add(key);
+
+        Timestamp now = Timestamp.from(Instant.now());
+        try (Connection connection = connect();
+             PreparedStatement statement = connection.prepareStatement(
+                     "INSERT INTO notification_dedup (dedup_key, delivered_at) VALUES (?, ?) " +
+                             "ON CONFLICT (dedup_key) DO UPDATE SET delivered_at = EXCLUDED.delivered_at")) {
+            for (String k : batch) {
+                statement.setString(1, k);
+                statement.setTimestamp(2, now);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        } catch (SQLException e) {
+            log.error("Writing {} dedup keys failed, will retry: {}", batch.size(), e.getMessage());
+            pending.addAll(batch);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notification.dedup.purge-interval:1h}")
+    public void purgeExpired() {
+        try (Connection connection = connect();
+             PreparedStatement statement = connection.prepareStatement(
+                     "DELETE FROM notification_dedup WHERE delivered_at < ?")) {
+            statement.setTimestamp(1, Timestamp.from(Instant.now().minus(ttl)));
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            log.error("Purging dedup keys failed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    private Connection connect() throws SQLException {
+        return dataSource.getConnection();
+    }
+}
@@ -0,0 +1,321 @@
+package com.example.notification_service.dispatch;
+
+import com.example.notification_service.dedup.DeliveryDeduplicator;
+import com.example.notification_service.logging.DeliveryLog;
+import com.example.notification_service.metrics.NotificationMetrics;
+import com.example.notification_service.metrics.NotificationMetrics.Outcome;
+import com.example.notification_service.model.Channel;
+import com.example.notification_service.model.NotificationEvent;
+import com.example.notification_service.ratelimit.DeliveryRateLimiter;
+import com.example.notification_service.ratelimit.ProviderThrottling;
+import com.example.notification_service.ratelimit.ThrottledException;
+import com.example.notification_service.resilience.BulkheadFullException;
+import com.example.notification_service.resilience.CircuitOpenException;
+import com.example.notification_service.resilience.ProviderGuard;
+import com.example.notification_service.resilience.ProviderRejection;
+import com.example.notification_service.retry.DeliveryFailureHandler;
+import com.example.notification_service.service.EmailService;
+import com.example.notification_service.service.WhatsAppService;
+import jakarta.mail.internet.MimeMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.InterruptedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Sends one event over one channel. Throws when the provider call fails.
+ */
+@Component
+@RequiredArgsConstructor
+public class ChannelDeliverer {
+
+    private final WhatsAppService whatsAppService;
+    private final EmailService emailService;
+    private final DeliveryDeduplicator deduplicator;
+    private final DeliveryFailureHandler failureHandler;
+    private final DeliveryRateLimiter rateLimiter;
+    private final ProviderGuard providerGuard;
+    private final NotificationMetrics metrics;
+    private final DeliveryLog deliveryLog;
+
+    /**
+     * Returns false without sending when this event was already delivered on the channel.
+     */
+    public boolean deliver(Channel channel, NotificationEvent event) {
+        return deliver(channel, event, System.nanoTime());
+    }
+
+    /**
+     * @param receivedAtNanos {@link System#nanoTime()} when the record was consumed; the
+     *                        delivery latency metric is measured from it
+     */
+    public boolean deliver(Channel channel, NotificationEvent event, long receivedAtNanos) {
+        if (!deduplicator.tryClaim(event.getEventId(), channel)) {
+            metrics.outcome(channel, Outcome.DUPLICATE);
+            deliveryLog.skipped(channel, event, Outcome.DUPLICATE, receivedAtNanos);
+            return false;
+        }
+        String recipient = recipient(channel, event);
+        metrics.callStarted(channel);
+        try {
+            providerGuard.checkCircuit(channel);
+            rateLimiter.acquire(channel, recipient);
+            providerGuard.call(channel, () -> {
+                switch (channel) {
+                    case WHATSAPP -> deliverWhatsApp(event);
+                    case EMAIL -> deliverEmail(event);
+                }
+            });
+        } catch (RuntimeException e) {
+            deduplicator.release(event.getEventId(), channel);
+            if (ProviderThrottling.isThrottled(e)) rateLimiter.onThrottled(channel, recipient);
+            Outcome outcome = failureOutcome(e);
+            metrics.outcome(channel, outcome);
+            deliveryLog.failed(channel, event, outcome, receivedAtNanos, e);
+            throw e;
+        } finally {
+            metrics.callFinished(channel);
+        }
+        rateLimiter.onSuccess(channel, recipient);
+        deduplicator.confirm(event.getEventId(), channel);
+        metrics.delivered(channel, event.getEventType(), receivedAtNanos);
+        deliveryLog.delivered(channel, event, receivedAtNanos);
+        return true;
+    }
+
+    /**
+     * Sends a micro-batch of same-type events over one channel. A failure for one event
+     * does not stop the rest of the batch. Returns the number delivered.
+     */
+    public int deliverBatch(Channel channel, List<NotificationEvent> events, long receivedAtNanos) {
+        return deliverBatch(channel, events, receivedAtNanos, () -> false);
+    }
+
+    /**
+     * Like {@link #deliverBatch(Channel, List, long)}, but stops before the next event once
+     * {@code cancelled} is true; events not started are left to the caller, which redelivers them.
+     */
+    public int deliverBatch(Channel channel, List<NotificationEvent> events, long receivedAtNanos,
+                            BooleanSupplier cancelled) {
+        if (channel == Channel.EMAIL) {
+            return deliverEmailBatch(events, receivedAtNanos, cancelled);
+        }
+        int delivered = 0;
+        for (NotificationEvent event : events) {
+            if (cancelled.getAsBoolean()) break;
+            try {
+                if (deliver(channel, event, receivedAtNanos)) delivered++;
+            } catch (Exception e) {
+                // already logged and counted by deliver()
+                failureHandler.onFailure(channel, event, 0, e);
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * Sends events held for one recipient as a single digest message on the channel, see
+     * {@link DeliveryCoalescer}; one event on its own is sent as its usual message. Events
+     * already delivered are left out. When the send fails, each event goes to the retry
+     * tiers on its own. Returns the number delivered.
+     *
+     * @param receivedAtNanos when the oldest of the events was consumed
+     */
+    public int deliverDigest(Channel channel, List<NotificationEvent> events, long receivedAtNanos) {
+        List<NotificationEvent> claimed = new ArrayList<>(events.size());
+        for (NotificationEvent event : events) {
+            if (deduplicator.tryClaim(event.getEventId(), channel)) {
+                claimed.add(event);
+            } else {
+                metrics.outcome(channel, Outcome.DUPLICATE);
+                deliveryLog.skipped(channel, event, Outcome.DUPLICATE, receivedAtNanos);
+            }
+        }
+        if (claimed.isEmpty()) return 0;
+
+        NotificationEvent first = claimed.getFirst();
+        String recipient = recipient(channel, first);
+        metrics.callStarted(channel);
+        try {
+            providerGuard.checkCircuit(channel);
+            rateLimiter.acquire(channel, recipient);
+            providerGuard.call(channel, () -> {
+                if (claimed.size() == 1) {
+                    switch (channel) {
+                        case WHATSAPP -> deliverWhatsApp(first);
+                        case EMAIL -> deliverEmail(first);
+                    }
+                    return;
+                }
+                List<String> items = claimed.stream().map(event -> digestItem(channel, event)).toList();
+                switch (channel) {
+                    case WHATSAPP -> whatsAppService.sendDigest(recipient, first.getRecipientName(), items);
+                    case EMAIL -> emailService.sendDigest(recipient, first.getRecipientName(), items);
+                }
+            });
+        } catch (RuntimeException e) {
+            if (ProviderThrottling.isThrottled(e)) rateLimiter.onThrottled(channel, recipient);
+            Outcome outcome = failureOutcome(e);
+            for (NotificationEvent event : claimed) {
+                deduplicator.release(event.getEventId(), channel);
+                metrics.outcome(channel, outcome);
+                deliveryLog.failed(channel, event, outcome, receivedAtNanos, e);
+                failureHandler.onFailure(channel, event, 0, e);
+            }
+            return 0;
+        } finally {
+            metrics.callFinished(channel);
+        }
+        rateLimiter.onSuccess(channel, recipient);
+        for (NotificationEvent event : claimed) {
+            deduplicator.confirm(event.getEventId(), channel);
+            metrics.delivered(channel, event.getEventType(), receivedAtNanos);
+            deliveryLog.delivered(channel, event, receivedAtNanos);
+        }
+        if (claimed.size() > 1) metrics.coalesced(channel, claimed.size() - 1);
+        return claimed.size();
+    }
+
+    // one pooled SMTP connection carries the whole micro-batch
+    private int deliverEmailBatch(List<NotificationEvent> events, long receivedAtNanos, BooleanSupplier cancelled) {
+        List<NotificationEvent> built = new ArrayList<>(events.size());
+        List<MimeMessage> messages = new ArrayList<>(events.size());
+        for (NotificationEvent event : events) {
+            if (cancelled.getAsBoolean()) break;
+            if (!deduplicator.tryClaim(event.getEventId(), Channel.EMAIL)) {
+                metrics.outcome(Channel.EMAIL, Outcome.DUPLICATE);
+                deliveryLog.skipped(Channel.EMAIL, event, Outcome.DUPLICATE, receivedAtNanos);
+                continue;
+            }
+            try {
+                providerGuard.checkCircuit(Channel.EMAIL);
+                rateLimiter.acquire(Channel.EMAIL, event.getRecipientEmail());
+                messages.add(emailMessage(event));
+                built.add(event);
+            } catch (Exception e) {
+                deduplicator.release(event.getEventId(), Channel.EMAIL);
+                emailFailed(event, e, receivedAtNanos);
+            }
+        }
+        if (messages.isEmpty()) return 0;
+
+        List<? extends Exception> failures;
+        metrics.callStarted(Channel.EMAIL);
+        try {
+            failures = providerGuard.call(Channel.EMAIL, messages.size(), () -> emailService.sendAll(messages));
+        } catch (RuntimeException e) {
+            for (NotificationEvent event : built) {
+                deduplicator.release(event.getEventId(), Channel.EMAIL);
+                emailFailed(event, e, receivedAtNanos);
+            }
+            return 0;
+        } finally {
+            metrics.callFinished(Channel.EMAIL);
+        }
+        int delivered = 0;
+        for (int i = 0; i < failures.size(); i++) {
+            Exception failure = failures.get(i);
+            NotificationEvent event = built.get(i);
+            if (failure == null) {
+                rateLimiter.onSuccess(Channel.EMAIL, event.getRecipientEmail());
+                deduplicator.confirm(event.getEventId(), Channel.EMAIL);
+                metrics.delivered(Channel.EMAIL, event.getEventType(), receivedAtNanos);
+                deliveryLog.delivered(Channel.EMAIL, event, receivedAtNanos);
+                delivered++;
+            } else {
+                deduplicator.release(event.getEventId(), Channel.EMAIL);
+                if (ProviderThrottling.isThrottled(failure)) rateLimiter.onThrottled(Channel.EMAIL, event.getRecipientEmail());
+                emailFailed(event, failure, receivedAtNanos);
+            }
+        }
+        return delivered;
+    }
+
+    private void emailFailed(NotificationEvent event, Exception error, long receivedAtNanos) {
+        Outcome outcome = failureOutcome(error);
+        metrics.outcome(Channel.EMAIL, outcome);
+        deliveryLog.failed(Channel.EMAIL, event, outcome, receivedAtNanos, error);
+        failureHandler.onFailure(Channel.EMAIL, event, 0, error);
+    }
+
+    public static boolean supports(String eventType) {
+        return "WELCOME".equals(eventType) || "PAYMENT_CONFIRMED".equals(eventType) || "PROMOTION".equals(eventType);
+    }
+
+    /** The address for the channel, or null when the event has none. */
+    public static String recipient(Channel channel, NotificationEvent event) {
+        String value = channel == Channel.WHATSAPP ? event.getRecipientPhone() : event.getRecipientEmail();
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    private void deliverWhatsApp(NotificationEvent event) {
+        String phone = event.getRecipientPhone();
+        switch (event.getEventType()) {
+            case "WELCOME" -> whatsAppService.sendWelcome(phone, event.getRecipientName());
+            case "PAYMENT_CONFIRMED" -> whatsAppService.sendPaymentConfirmation(phone, templateData(event));
+            case "PROMOTION" -> whatsAppService.sendPromotion(phone, event.getRecipientName(), templateData(event));
+            default -> throw new IllegalArgumentException("Unsupported event type: " + event.getEventType());
+        }
+    }
+
+    private void deliverEmail(NotificationEvent event) {
+        String email = event.getRecipientEmail();
+        switch (event.getEventType()) {
+            case "WELCOME" -> emailService.sendWelcome(email, event.getRecipientName());
+            case "PAYMENT_CONFIRMED" -> emailService.sendPaymentConfirmation(email, templateData(event));
+            case "PROMOTION" -> emailService.sendPromotion(email, event.getRecipientName(), templateData(event));
+            default -> throw new IllegalArgumentException("Unsupported event type: " + event.getEventType());
+        }
+    }
+
+    // the text the event's message would have had on its own
+    private String digestItem(Channel channel, NotificationEvent event) {
+        String name = event.getRecipientName();
+        return switch (channel) {
+            case WHATSAPP -> switch (event.getEventType()) {
+                case "WELCOME" -> whatsAppService.welcomeText(name);
+                case "PROMOTION" -> whatsAppService.promotionText(name, templateData(event));
+                default -> throw new IllegalArgumentException("Event type cannot be coalesced: " + event.getEventType());
+            };
+            case EMAIL -> switch (event.getEventType()) {
+                case "WELCOME" -> emailService.welcomeText(name);
+                case "PROMOTION" -> emailService.promotionText(name, templateData(event));
+                default -> throw new IllegalArgumentException("Event type cannot be coalesced: " + event.getEventType());
+            };
+        };
+    }
+
+    private MimeMessage emailMessage(NotificationEvent event) {
+        String email = event.getRecipientEmail();
+        return switch (event.getEventType()) {
+            case "WELCOME" -> emailService.welcomeMessage(email, event.getRecipientName());
+            case "PAYMENT_CONFIRMED" -> emailService.paymentConfirmationMessage(email, templateData(event));
+            case "PROMOTION" -> emailService.promotionMessage(email, event.getRecipientName(), templateData(event));
+            default -> throw new IllegalArgumentException("Unsupported event type: " + event.getEventType());
+        };
+    }
+
+    private static Outcome failureOutcome(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof ThrottledException) return Outcome.RATE_LIMITED;
+            if (t instanceof CircuitOpenException) return Outcome.CIRCUIT_OPEN;
+            if (t instanceof BulkheadFullException) return Outcome.BULKHEAD_FULL;
+            if (t instanceof IllegalArgumentException) return Outcome.INVALID;
+            // only the fan-out deadline interrupts a send
+            if (t instanceof InterruptedException || t instanceof InterruptedIOException
+                    || t instanceof ClosedByInterruptException) return Outcome.TIMED_OUT;
+        }
+        if (ProviderThrottling.isThrottled(error)) return Outcome.PROVIDER_THROTTLED;
+        return ProviderRejection.isPermanent(error) ? Outcome.REJECTED : Outcome.PROVIDER_ERROR;
+    }
+
+    private static Map<String, String> templateData(NotificationEvent event) {
+        return event.getTemplateData() == null ? Collections.emptyMap() : event.getTemplateData();
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.notification_service.dispatch;
+
+import com.example.notification_service.logging.DeliveryLog;
+import com.example.notification_service.metrics.NotificationMetrics;
+import com.example.notification_service.metrics.NotificationMetrics.Outcome;
+import com.example.notification_service.model.Channel;
+import com.example.notification_service.model.NotificationEvent;
+import com.example.notification_service.retry.DeliveryFailureHandler;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sends an event on WhatsApp and Email at the same time and waits for both, each with
+ * its own deadline, so the event takes as long as the slower channel instead of the sum.
+ * <p>
+ * Each channel's send reports its own final outcome: a failed send goes to the retry
+ * tiers from the send itself, after its dedup claim is released. A send still running at
+ * its deadline is interrupted and reported as {@link DeliveryStatus#TIMED_OUT}, but not
+ * retried from here: an interrupt cannot stop every blocking SMTP or HTTP call, so the
+ * send may still go through, and a retry racing it would be skipped as a duplicate.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ChannelFanOut {
+
+    private final ChannelDeliverer channelDeliverer;
+    private final DeliveryFailureHandler failureHandler;
+    private final NotificationMetrics metrics;
+    private final DeliveryLog deliveryLog;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${notification.fanout.whatsapp-timeout:15s}")
+    private Duration whatsAppTimeout;
+
+    @Value("${notification.fanout.email-timeout:20s}")
+    private Duration emailTimeout;
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * @param receivedAtNanos {@link System#nanoTime()} when the record was consumed
+     */
+    public FanOutResult fanOut(NotificationEvent event, long receivedAtNanos) {
+        // priority: 1 = WhatsApp preferred, 2 = Email preferred. If null, WhatsApp is primary.
+        Channel primary = event.getPriority() != null && event.getPriority() == 2 ? Channel.EMAIL : Channel.WHATSAPP;
+
+        Map<Channel, Future<Boolean>> started = new EnumMap<>(Channel.class);
+        Map<Channel, DeliveryStatus> statuses = new EnumMap<>(Channel.class);
+        for (Channel channel : Channel.values()) {
+            if (ChannelDeliverer.recipient(channel, event) == null) {
+                statuses.put(channel, DeliveryStatus.SKIPPED);
+                metrics.outcome(channel, Outcome.NO_RECIPIENT);
+                deliveryLog.skipped(channel, event, Outcome.NO_RECIPIENT, receivedAtNanos);
+                continue;
+            }
+            started.put(channel, executor.submit(() -> deliver(channel, event, receivedAtNanos)));
+        }
+
+        // deadlines are measured from the start of the fan-out, not from when we begin waiting
+        long startNanos = System.nanoTime();
+        for (Map.Entry<Channel, Future<Boolean>> entry : started.entrySet()) {
+            Channel channel = entry.getKey();
+            long remaining = timeout(channel).toNanos() - (System.nanoTime() - startNanos);
+            statuses.put(channel, await(entry.getValue(), remaining, channel, event));
+        }
+
+        FanOutResult result = new FanOutResult(event.getEventId(), primary, statuses);
+        if (result.primaryStatus() == DeliveryStatus.SKIPPED) {
+            log.warn("No recipient {} available for {} event {}", primary == Channel.EMAIL ? "email" : "phone",
+                    event.getEventType(), event.getEventId());
+        }
+        if (!result.delivered()) {
+            log.error("Event {} ({}) not delivered on primary channel {}: {}",
+                    event.getEventId(), event.getEventType(), primary, statuses);
+        }
+        return result;
+    }
+
+    private boolean deliver(Channel channel, NotificationEvent event, long receivedAtNanos) {
+        try {
+            return channelDeliverer.deliver(channel, event, receivedAtNanos);
+        } catch (RuntimeException e) {
+            // ChannelDeliverer has logged and counted the failure and released the claim,
+            // so the retry is not mistaken for a duplicate
+            failureHandler.onFailure(channel, event, 0, e);
+            throw e;
+        }
+    }
+
+    private DeliveryStatus await(Future<Boolean> future, long remainingNanos, Channel channel, NotificationEvent event) {
+        try {
+            boolean sent = future.get(Math.max(0, remainingNanos), TimeUnit.NANOSECONDS);
+            return sent ? DeliveryStatus.DELIVERED : DeliveryStatus.DUPLICATE;
+        } catch (TimeoutException e) {
+            // best effort; whatever the send ends with, it reports itself
+            future.cancel(true);
+            log.warn("{} send for event {} still running at its deadline", channel, event.getEventId());
+            return DeliveryStatus.TIMED_OUT;
+        } catch (ExecutionException e) {
+            return DeliveryStatus.FAILED;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return DeliveryStatus.FAILED;
+        }
+    }
+
+    private Duration timeout(Channel channel) {
+        return channel == Channel.WHATSAPP ? whatsAppTimeout : emailTimeout;
+    }
+}
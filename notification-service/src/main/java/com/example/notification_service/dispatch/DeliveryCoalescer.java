@@ -0,0 +1,191 @@
+package com.example.notification_service.dispatch;
+
+import com.example.notification_service.logging.DeliveryLog;
+import com.example.notification_service.metrics.NotificationMetrics;
+import com.example.notification_service.metrics.NotificationMetrics.Outcome;
+import com.example.notification_service.model.Channel;
+import com.example.notification_service.model.NotificationEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Optional stage (notification.coalesce.enabled) that merges a burst of events for one
+ * recipient into a single digest message per channel. The first event for a (channel,
+ * address) opens a digest; events for the same address join it until the window has
+ * passed since it opened, or it holds max-per-digest events, and then it goes out as one
+ * provider call through {@link ChannelDeliverer#deliverDigest}.
+ * <p>
+ * Only the configured event types are held; PAYMENT_CONFIRMED never is. An event that
+ * is not held flushes the open digests of its recipient, so nothing waits behind a
+ * payment confirmation. At most max-held events are held at once; past that, events are
+ * sent on their own, so a peak costs more provider calls but never unbounded memory.
+ * <p>
+ * A held event's {@code done} callback runs once all of its digests went out or were
+ * handed to the retry tiers; the consumer completes the record's offset there, so a
+ * crash while events are held redelivers them. Commits lag by up to one window.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class DeliveryCoalescer {
+
+    private static final String EXEMPT = "PAYMENT_CONFIRMED";
+
+    private final ChannelDeliverer channelDeliverer;
+    private final NotificationMetrics metrics;
+    private final DeliveryLog deliveryLog;
+
+    @Value("${notification.coalesce.enabled:false}")
+    private boolean enabled;
+
+    @Value("${notification.coalesce.window:3s}")
+    private Duration window;
+
+    @Value("${notification.coalesce.max-per-digest:10}")
+    private int maxPerDigest;
+
+    @Value("${notification.coalesce.max-held:10000}")
+    private int maxHeld;
+
+    @Value("${notification.coalesce.event-types:WELCOME,PROMOTION}")
+    private Set<String> eventTypes;
+
+    private final Map<Key, Digest> open = new ConcurrentHashMap<>();
+    private final AtomicInteger held = new AtomicInteger();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("coalesce-timer").daemon().factory());
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile boolean stopping;
+
+    private record Key(Channel channel, String address) {
+    }
+
+    // only changed inside open.compute while mapped; read by the sender once removed
+    private static final class Digest {
+        final List<Held> events = new ArrayList<>();
+    }
+
+    private final class Held {
+        final NotificationEvent event;
+        final long receivedAtNanos;
+        final Runnable done;
+        final AtomicInteger parts;
+
+        Held(NotificationEvent event, long receivedAtNanos, Runnable done, int parts) {
+            this.event = event;
+            this.receivedAtNanos = receivedAtNanos;
+            this.done = done;
+            this.parts = new AtomicInteger(parts);
+        }
+
+        void partDone() {
+            if (parts.decrementAndGet() > 0) return;
+            held.decrementAndGet();
+            done.run();
+        }
+    }
+
+    /**
+     * Holds the event for a digest and returns true, in which case {@code done} runs once
+     * it has been sent. Returns false when the caller should send the event itself.
+     */
+    public boolean hold(NotificationEvent event, long receivedAtNanos, Runnable done) {
+        if (!enabled || stopping) return false;
+        String type = event.getEventType();
+        List<Key> keys = new ArrayList<>(2);
+        for (Channel channel : Channel.values()) {
+            String address = ChannelDeliverer.recipient(channel, event);
+            if (address != null) keys.add(new Key(channel, address));
+        }
+        if (EXEMPT.equals(type) || !eventTypes.contains(type)) {
+            for (Key key : keys) flush(key);
+            return false;
+        }
+        if (keys.isEmpty()) return false;
+        if (held.incrementAndGet() > maxHeld) {
+            held.decrementAndGet();
+            return false;
+        }
+        for (Channel channel : Channel.values()) {
+            if (ChannelDeliverer.recipient(channel, event) != null) continue;
+            metrics.outcome(channel, Outcome.NO_RECIPIENT);
+            deliveryLog.skipped(channel, event, Outcome.NO_RECIPIENT, receivedAtNanos);
+        }
+        Held entry = new Held(event, receivedAtNanos, done, keys.size());
+        for (Key key : keys) add(key, entry);
+        return true;
+    }
+
+    /** Events currently held for a digest. */
+    public int held() {
+        return held.get();
+    }
+
+    /** Sends every open digest now instead of at the end of its window. */
+    public void flush() {
+        for (Key key : List.copyOf(open.keySet())) flush(key);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        stopping = true;
+        timer.shutdownNow();
+        flush();
+        senders.shutdown();
+        if (!senders.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Digests still sending at shutdown; their records are redelivered");
+        }
+    }
+
+    private void add(Key key, Held entry) {
+        Digest[] full = new Digest[1];
+        open.compute(key, (k, digest) -> {
+            if (digest == null) {
+                Digest opened = new Digest();
+                timer.schedule(() -> {
+                    if (open.remove(k, opened)) send(k, opened);
+                }, window.toNanos(), TimeUnit.NANOSECONDS);
+                digest = opened;
+            }
+            digest.events.add(entry);
+            if (digest.events.size() < maxPerDigest) return digest;
+            full[0] = digest;
+            return null;
+        });
+        if (full[0] != null) send(key, full[0]);
+    }
+
+    private void flush(Key key) {
+        Digest digest = open.remove(key);
+        if (digest != null) send(key, digest);
+    }
+
+    private void send(Key key, Digest digest) {
+        senders.execute(() -> {
+            List<NotificationEvent> events = digest.events.stream().map(entry -> entry.event).toList();
+            try {
+                channelDeliverer.deliverDigest(key.channel(), events, digest.events.getFirst().receivedAtNanos);
+            } catch (Exception e) {
+                // deliverDigest hands its own failures to the retry tiers
+                log.error("Digest of {} events on {} failed: {}", events.size(), key.channel(), e.getMessage());
+            } finally {
+                for (Held entry : digest.events) entry.partDone();
+            }
+        });
+    }
+}
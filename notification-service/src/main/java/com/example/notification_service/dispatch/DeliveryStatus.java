@@ -0,0 +1,9 @@
+package com.example.notification_service.dispatch;
+
+public enum DeliveryStatus {
+    DELIVERED,
+    DUPLICATE, // already delivered earlier (redelivered record)
+    FAILED,
+    TIMED_OUT,
+    SKIPPED // no recipient address for the channel
+}
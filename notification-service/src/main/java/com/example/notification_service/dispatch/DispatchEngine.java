@@ -0,0 +1,297 @@
+package com.example.notification_service.dispatch;
+
+import com.example.notification_service.model.NotificationEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hands notification work to a fixed set of virtual-thread workers.
+ * <p>
+ * Every task is routed to a worker by the hash of its key (the recipient), so tasks for
+ * the same recipient run one after the other in submission order while different
+ * recipients are processed in parallel. Each worker owns a bounded queue; when it is
+ * full {@link #submit} blocks the caller, which pushes back on the Kafka listener.
+ * {@link #trySubmit} returns false instead, so a caller can put bulk work elsewhere
+ * rather than stall transactional records behind a full bulk lane.
+ * <p>
+ * Each worker has two queues, one per {@link Lane}. A worker always takes transactional
+ * work first; bulk work only runs on leftover capacity: at most {@code workers -
+ * reserved-workers} bulk tasks run at once, and none start while a transactional task
+ * has recently waited longer than the latency target. A worker with nothing of its own
+ * to run takes transactional work queued on another worker, so a transactional task
+ * never waits behind a bulk task: at least {@code reserved-workers} workers are not
+ * running bulk work and pick it up. Only one thread at a time runs the transactional
+ * queue of a worker, which keeps the per-key order. A worker with nothing it may run
+ * blocks until a task is queued for it or for a busy worker, a bulk slot frees up or
+ * the hold ends.
+ */
+@Component
+@Slf4j
+public class DispatchEngine {
+
+    @Value("${notification.dispatch.workers:16}")
+    private int workerCount;
+
+    @Value("${notification.dispatch.queue-capacity:256}")
+    private int queueCapacity;
+
+    @Value("${notification.dispatch.bulk-queue-capacity:1024}")
+    private int bulkQueueCapacity;
+
+    // workers kept free of bulk work; they take transactional work queued behind a bulk task
+    @Value("${notification.dispatch.reserved-workers:4}")
+    private int reservedWorkers;
+
+    @Value("${notification.dispatch.transactional-latency-target:1s}")
+    private Duration latencyTarget;
+
+    private final List<Worker> queues = new ArrayList<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private Semaphore bulkSlots;
+    private volatile long bulkHeldUntil;
+    private volatile boolean running;
+
+    private record Queued(Runnable task, long enqueuedAt) {
+    }
+
+    private static final class Worker {
+        final int index;
+        final BlockingQueue<Queued> transactional;
+        final BlockingQueue<Queued> bulk;
+        // wake-up signal: released when a task is queued here or a bulk slot frees up
+        final Semaphore ready = new Semaphore(0);
+        // held by whichever thread runs this worker's transactional queue, owner or not
+        final AtomicBoolean transactionalTurn = new AtomicBoolean();
+        // looking for work or waiting for it, so free to take a busy worker's transactional work
+        volatile boolean idle;
+
+        Worker(int index, int transactionalCapacity, int bulkCapacity) {
+            this.index = index;
+            transactional = new ArrayBlockingQueue<>(transactionalCapacity);
+            bulk = new ArrayBlockingQueue<>(bulkCapacity);
+        }
+
+        BlockingQueue<Queued> queue(Lane lane) {
+            return lane == Lane.BULK ? bulk : transactional;
+        }
+
+        int size() {
+            return transactional.size() + bulk.size();
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (workerCount < 1) workerCount = 1;
+        int bulkWorkers = Math.max(1, workerCount - Math.max(0, reservedWorkers));
+        bulkSlots = new Semaphore(bulkWorkers);
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            Worker worker = new Worker(i, queueCapacity, bulkQueueCapacity);
+            queues.add(worker);
+            workers.add(Thread.ofVirtual().name("dispatch-" + i).start(() -> runWorker(worker)));
+        }
+        log.info("Dispatch engine started with {} workers, at most {} running bulk work (queue capacity {}/{})",
+                workerCount, bulkWorkers, queueCapacity, bulkQueueCapacity);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        for (Thread worker : workers) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Queues a task behind any earlier task with the same key and lane. Blocks while
+     * that lane of the worker owning the key is saturated.
+     */
+    public void submit(String key, Lane lane, Runnable task) {
+        submit(workerFor(key), lane, task);
+    }
+
+    /**
+     * Queues a task on a specific worker, as returned by {@link #workerFor}. Used to
+     * keep a micro-batch of several recipients on the worker that owns them.
+     */
+    public void submit(int worker, Lane lane, Runnable task) {
+        checkRunning();
+        Worker target = queues.get(worker);
+        try {
+            target.queue(lane).put(new Queued(task, System.nanoTime()));
+            wake(target, lane);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing notification", e);
+        }
+    }
+
+    /**
+     * Like {@link #submit(String, Lane, Runnable)}, but returns false instead of blocking
+     * when that lane of the owning worker is full.
+     */
+    public boolean trySubmit(String key, Lane lane, Runnable task) {
+        checkRunning();
+        Worker target = queues.get(workerFor(key));
+        if (!target.queue(lane).offer(new Queued(task, System.nanoTime()))) return false;
+        wake(target, lane);
+        return true;
+    }
+
+    public int workerFor(String key) {
+        int h = key == null ? 0 : key.hashCode();
+        // spread the hash so keys that differ only in high bits still land on different workers
+        h ^= (h >>> 16);
+        return Math.floorMod(h, queues.size());
+    }
+
+    public int pending() {
+        int total = 0;
+        for (Worker worker : queues) total += worker.size();
+        return total;
+    }
+
+    public int pending(Lane lane) {
+        int total = 0;
+        for (Worker worker : queues) total += worker.queue(lane).size();
+        return total;
+    }
+
+    /**
+     * Ordering key for an event: the phone number when present, otherwise the email,
+     * otherwise the event id (no ordering constraint).
+     */
+    public static String recipientKey(NotificationEvent event) {
+        if (event.getRecipientPhone() != null && !event.getRecipientPhone().isBlank()) {
+            return event.getRecipientPhone();
+        }
+        if (event.getRecipientEmail() != null && !event.getRecipientEmail().isBlank()) {
+            return event.getRecipientEmail();
+        }
+        return event.getEventId() != null ? event.getEventId() : "";
+    }
+
+    private void checkRunning() {
+        if (!running) {
+            throw new IllegalStateException("Dispatch engine is not running");
+        }
+    }
+
+    private void wake(Worker target, Lane lane) {
+        target.ready.release();
+        if (lane == Lane.BULK || target.idle) return;
+        // the owner is busy: let idle workers race for the task. All of them, since one that
+        // is idle right now may be about to start a bulk task of its own
+        for (Worker worker : queues) {
+            if (worker != target && worker.idle) worker.ready.release();
+        }
+    }
+
+    private void runWorker(Worker worker) {
+        while (running || worker.size() > 0) {
+            // idle before the scan: a task queued after the flag is seen either by the scan or
+            // by the wait below, through the permit its submitter releases
+            worker.idle = true;
+            // permits are wake-ups, not task counts: clear them before looking at the queues,
+            // so a task queued from here on leaves a permit for the wait below
+            worker.ready.drainPermits();
+            if (runTransactional(worker, worker) || steal(worker)) continue;
+            if (!worker.bulk.isEmpty() && acquireBulkSlot()) {
+                try {
+                    Queued next = worker.bulk.poll();
+                    if (next != null) run(worker, next);
+                } finally {
+                    releaseBulkSlot();
+                }
+                continue;
+            }
+            try {
+                worker.ready.tryAcquire(idleWait(worker), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // one task of owner's transactional queue, unless another thread is running that queue
+    private boolean runTransactional(Worker worker, Worker owner) {
+        if (owner.transactional.isEmpty() || !owner.transactionalTurn.compareAndSet(false, true)) return false;
+        try {
+            Queued next = owner.transactional.poll();
+            if (next == null) return false;
+            noteTransactionalWait(next);
+            run(worker, next);
+            return true;
+        } finally {
+            owner.transactionalTurn.set(false);
+            // the owner may have skipped its queue while the turn was taken
+            if (owner != worker && !owner.transactional.isEmpty()) owner.ready.release();
+        }
+    }
+
+    private boolean steal(Worker worker) {
+        for (int i = 1; i < queues.size(); i++) {
+            if (runTransactional(worker, queues.get((worker.index + i) % queues.size()))) return true;
+        }
+        return false;
+    }
+
+    private boolean acquireBulkSlot() {
+        if (System.nanoTime() - bulkHeldUntil < 0) return false;
+        return bulkSlots.tryAcquire();
+    }
+
+    private void releaseBulkSlot() {
+        bulkSlots.release();
+        for (Worker worker : queues) {
+            if (!worker.bulk.isEmpty()) worker.ready.release();
+        }
+    }
+
+    // bounded so a stopped engine is noticed; bulk work waiting out a hold wakes when it ends
+    private long idleWait(Worker worker) {
+        long idle = TimeUnit.MILLISECONDS.toNanos(200);
+        long held = bulkHeldUntil - System.nanoTime();
+        if (worker.bulk.isEmpty() || held <= 0) return idle;
+        return Math.min(idle, held);
+    }
+
+    private void noteTransactionalWait(Queued queued) {
+        long now = System.nanoTime();
+        long waited = now - queued.enqueuedAt();
+        long target = latencyTarget.toNanos();
+        if (waited > target) {
+            // transactional work is falling behind: keep bulk work off all workers for a while
+            bulkHeldUntil = now + target;
+            log.debug("Transactional task waited {} ms, holding bulk work back", TimeUnit.NANOSECONDS.toMillis(waited));
+        }
+    }
+
+    private static void run(Worker worker, Queued queued) {
+        worker.idle = false;
+        try {
+            queued.task().run();
+        } catch (Exception e) {
+            log.error("Dispatch task failed", e);
+        }
+    }
+}
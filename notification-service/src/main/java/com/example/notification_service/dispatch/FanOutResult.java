@@ -0,0 +1,27 @@
+package com.example.notification_service.dispatch;
+
+import com.example.notification_service.model.Channel;
+
+import java.util.Map;
+
+/**
+ * Combined outcome of one event across all channels. The primary channel is the one
+ * preferred by the event's priority; the event counts as delivered when the primary
+ * went out, or when the primary had no address and a secondary went out.
+ */
+public record FanOutResult(String eventId, Channel primary, Map<Channel, DeliveryStatus> statuses) {
+
+    public DeliveryStatus primaryStatus() {
+        return statuses.getOrDefault(primary, DeliveryStatus.SKIPPED);
+    }
+
+    public boolean delivered() {
+        DeliveryStatus primaryStatus = primaryStatus();
+        if (isSent(primaryStatus)) return true;
+        return primaryStatus == DeliveryStatus.SKIPPED && statuses.values().stream().anyMatch(FanOutResult::isSent);
+    }
+
+    private static boolean isSent(DeliveryStatus status) {
+        return status == DeliveryStatus.DELIVERED || status == DeliveryStatus.DUPLICATE;
+    }
+}
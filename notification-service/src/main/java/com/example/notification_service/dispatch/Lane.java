@@ -0,0 +1,15 @@
+package com.example.notification_service.dispatch;
+
+/**
+ * Scheduling class of a notification. Transactional work (welcome, payment receipts)
+ * always runs before bulk work (promotions) on a dispatch worker, and bulk work may
+ * only occupy part of the workers.
+ */
+public enum Lane {
+    TRANSACTIONAL,
+    BULK;
+
+    public static Lane of(String eventType) {
+        return "PROMOTION".equals(eventType) ? BULK : TRANSACTIONAL;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.notification_service.dispatch;
+
+import com.example.notification_service.campaign.CampaignEngine;
+import com.example.notification_service.metrics.NotificationMetrics;
+import com.example.notification_service.model.Channel;
+import com.example.notification_service.model.NotificationEvent;
+import com.example.notification_service.scheduler.NotificationScheduler;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers a whole Kafka poll as micro-batches. Events are grouped by event type and
+ * channel, then split by the dispatch worker that owns each recipient address, so all
+ * events for one address stay on one worker in poll order. Each micro-batch is sent
+ * through {@link ChannelDeliverer#deliverBatch}, which lets a channel reuse one
+ * provider connection for the batch.
+ * <p>
+ * {@link #dispatch} returns once the poll is delivered, so the next poll (and its
+ * commit) only happens after this one went out. It reports whether every micro-batch
+ * finished within the await timeout; the caller only acknowledges the poll if so.
+ * Otherwise the poll is cancelled before returning: queued micro-batches are dropped,
+ * running ones stop before their next event, and {@code dispatch} waits up to the
+ * cancel timeout for them, so nothing from the poll is still sending when it is
+ * redelivered.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class MicroBatchDispatcher {
+
+    private final DispatchEngine dispatchEngine;
+    private final ChannelDeliverer channelDeliverer;
+    private final NotificationMetrics metrics;
+    private final NotificationScheduler scheduler;
+    private final CampaignEngine campaigns;
+
+    @Value("${notification.kafka.batch.micro-batch-size:50}")
+    private int microBatchSize;
+
+    // keep below max.poll.interval.ms so a stuck provider cannot get the consumer kicked out of the group
+    @Value("${notification.kafka.batch.await-timeout:4m}")
+    private Duration awaitTimeout;
+
+    // a cancelled micro-batch finishes the provider call it is in; await-timeout + this stays below max.poll.interval.ms
+    @Value("${notification.kafka.batch.cancel-timeout:30s}")
+    private Duration cancelTimeout;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private record BatchKey(String eventType, Channel channel) {
+    }
+
+    private record MicroBatch(int worker, Lane lane, Channel channel, List<NotificationEvent> events) {
+    }
+
+    public boolean dispatch(List<NotificationEvent> events) {
+        long receivedAt = System.nanoTime();
+        Map<BatchKey, Map<Integer, List<NotificationEvent>>> groups = new LinkedHashMap<>();
+        for (NotificationEvent event : events) {
+            if (event == null) {
+                log.error("Received null event");
+                continue;
+            }
+            if (!ChannelDeliverer.supports(event.getEventType())) {
+                log.warn("Unknown event type: {}", event.getEventType());
+                metrics.unsupportedEvent();
+                continue;
+            }
+            if (scheduler.schedule(event) || campaigns.launch(event)) continue;
+            for (Channel channel : Channel.values()) {
+                String recipient = ChannelDeliverer.recipient(channel, event);
+                if (recipient == null) continue;
+                groups.computeIfAbsent(new BatchKey(event.getEventType(), channel), k -> new LinkedHashMap<>())
+                        .computeIfAbsent(dispatchEngine.workerFor(recipient), k -> new ArrayList<>())
+                        .add(event);
+            }
+        }
+
+        List<MicroBatch> batches = new ArrayList<>();
+        groups.forEach((key, byWorker) -> byWorker.forEach((worker, list) -> {
+            for (int from = 0; from < list.size(); from += microBatchSize) {
+                int to = Math.min(list.size(), from + microBatchSize);
+                batches.add(new MicroBatch(worker, Lane.of(key.eventType()), key.channel(), list.subList(from, to)));
+            }
+        }));
+        if (batches.isEmpty()) return true;
+
+        CountDownLatch done = new CountDownLatch(batches.size());
+        AtomicBoolean cancelled = new AtomicBoolean();
+        inFlight.addAndGet(batches.size());
+        for (MicroBatch batch : batches) {
+            dispatchEngine.submit(batch.worker(), batch.lane(), () -> {
+                try {
+                    if (!cancelled.get()) {
+                        channelDeliverer.deliverBatch(batch.channel(), batch.events(), receivedAt, cancelled::get);
+                    }
+                } finally {
+                    inFlight.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+
+        try {
+            if (done.await(awaitTimeout.toMillis(), TimeUnit.MILLISECONDS)) return true;
+            // the caller redelivers the whole poll: stop this one first so the two never send side by side
+            cancelled.set(true);
+            log.warn("Poll of {} events not fully delivered within {}; cancelling {} micro-batches",
+                    events.size(), awaitTimeout, done.getCount());
+            if (!done.await(cancelTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("{} cancelled micro-batches still in a provider call after {}", done.getCount(), cancelTimeout);
+            }
+        } catch (InterruptedException e) {
+            cancelled.set(true);
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    /** Micro-batches queued or running, over all polls. */
+    public int inFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.notification_service.logging;
+
+import com.example.notification_service.metrics.NotificationMetrics.Outcome;
+import com.example.notification_service.model.Channel;
+import com.example.notification_service.model.NotificationEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One structured log event per channel delivery on the {@code notification.delivery}
+ * logger: event id and type, channel, outcome, latency since the record was consumed
+ * and the masked recipient, as key-value pairs. {@code logback-spring.xml} writes them
+ * through an asynchronous appender that drops rather than blocks a delivery.
+ * <p>
+ * Message bodies are never logged at INFO. With {@code notification.logging.payload.enabled}
+ * a sample of them goes to DEBUG on {@code notification.delivery.payload}.
+ */
+@Component
+public class DeliveryLog {
+
+    private static final Logger log = LoggerFactory.getLogger("notification.delivery");
+    private static final Logger payloadLog = LoggerFactory.getLogger("notification.delivery.payload");
+
+    private final boolean payloadEnabled;
+    private final double payloadSampleRate;
+
+    public DeliveryLog(@Value("${notification.logging.payload.enabled:false}") boolean payloadEnabled,
+                       @Value("${notification.logging.payload.sample-rate:0.01}") double payloadSampleRate) {
+        this.payloadEnabled = payloadEnabled;
+        this.payloadSampleRate = payloadSampleRate;
+    }
+
+    public void delivered(Channel channel, NotificationEvent event, long receivedAtNanos) {
+        if (!log.isInfoEnabled()) return;
+        event(Level.INFO, channel, event, Outcome.DELIVERED, receivedAtNanos).log("delivery");
+    }
+
+    /** Duplicates and missing recipients: nothing was sent and nothing went wrong. */
+    public void skipped(Channel channel, NotificationEvent event, Outcome outcome, long receivedAtNanos) {
+        if (!log.isInfoEnabled()) return;
+        event(Level.INFO, channel, event, outcome, receivedAtNanos).log("delivery");
+    }
+
+    public void failed(Channel channel, NotificationEvent event, Outcome outcome, long receivedAtNanos, Throwable error) {
+        if (!log.isWarnEnabled()) return;
+        event(Level.WARN, channel, event, outcome, receivedAtNanos)
+                .addKeyValue("error", error == null ? null : String.valueOf(error.getMessage()))
+                .log("delivery");
+    }
+
+    /** Logs a sampled rendered message at DEBUG when payload logging is switched on. */
+    public void payload(Channel channel, String recipient, String body) {
+        if (!payloadEnabled || !payloadLog.isDebugEnabled()) return;
+        if (ThreadLocalRandom.current().nextDouble() >= payloadSampleRate) return;
+        payloadLog.atDebug()
+                .addKeyValue("channel", channel)
+                .addKeyValue("to", Masking.recipient(channel, recipient))
+                .log(body);
+    }
+
+    private static LoggingEventBuilder event(Level level, Channel channel, NotificationEvent event, Outcome outcome,
+                                             long receivedAtNanos) {
+        String recipient = channel == Channel.WHATSAPP ? event.getRecipientPhone() : event.getRecipientEmail();
+        return log.atLevel(level)
+                .addKeyValue("eventId", event.getEventId())
+                .addKeyValue("type", event.getEventType())
+                .addKeyValue("channel", channel)
+                .addKeyValue("outcome", outcome.reason())
+                .addKeyValue("latencyMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - receivedAtNanos))
+                .addKeyValue("to", Masking.recipient(channel, recipient));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.notification_service.logging;
+
+import com.example.notification_service.model.Channel;
+
+/**
+ * Masks recipient addresses for logs in one pass over the characters, without regex.
+ * Enough is kept to tell recipients apart when reading a log: the last four digits of a
+ * phone number, the first character and the domain of an email address.
+ */
+public final class Masking {
+
+    private static final int PHONE_DIGITS_KEPT = 4;
+
+    private Masking() {
+    }
+
+    public static String recipient(Channel channel, String value) {
+        return channel == Channel.WHATSAPP ? phone(value) : email(value);
+    }
+
+    /** {@code +94771234567} to {@code +*******4567}; separators and a leading {@code +} stay. */
+    public static String phone(String phone) {
+        if (phone == null) return "-";
+        int digits = 0;
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') digits++;
+        }
+        int hide = digits - PHONE_DIGITS_KEPT;
+        char[] masked = phone.toCharArray();
+        for (int i = 0; i < masked.length && hide > 0; i++) {
+            if (masked[i] >= '0' && masked[i] <= '9') {
+                masked[i] = '*';
+                hide--;
+            }
+        }
+        return new String(masked);
+    }
+
+    /** {@code nadee@example.com} to {@code n***@example.com}. */
+    public static String email(String email) {
+        if (email == null) return "-";
+        int at = email.indexOf('@');
+        if (at <= 0) return "***";
+        return email.charAt(0) + "***" + email.substring(at);
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.notification_service.mail;
+
+import com.example.notification_service.metrics.NotificationMetrics;
+import com.example.notification_service.metrics.NotificationMetrics.ProviderCall;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a small set of connected, authenticated SMTP {@link Transport}s so a send does
+ * not pay the TCP + STARTTLS + AUTH handshake every time.
+ * <p>
+ * Connections are opened lazily up to {@code size}, handed out most-recently-used first,
+ * probed with NOOP when they have been idle longer than {@code validationInterval}, and
+ * closed once idle longer than {@code maxIdle}. A send that fails because the connection
+ * dropped is retried once on a fresh connection. Host, port, credentials and session
+ * properties come from the {@link JavaMailSenderImpl} built from {@code spring.mail.*}.
+ */
+@Component
+@Slf4j
+public class SmtpTransportPool {
+
+    private final JavaMailSenderImpl mailSender;
+    private final NotificationMetrics metrics;
+    private final boolean enabled;
+    private final Duration maxIdle;
+    private final Duration borrowTimeout;
+    private final Duration validationInterval;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+    private volatile boolean closed;
+
+    private static final class PooledTransport {
+        final Transport transport;
+        volatile long lastUsedNanos = System.nanoTime();
+
+        PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+    }
+
+    public SmtpTransportPool(JavaMailSender mailSender,
+                             NotificationMetrics metrics,
+                             @Value("${notification.mail.pool.enabled:true}") boolean enabled,
+                             @Value("${notification.mail.pool.size:4}") int size,
+                             @Value("${notification.mail.pool.max-idle:60s}") Duration maxIdle,
+                             @Value("${notification.mail.pool.borrow-timeout:10s}") Duration borrowTimeout,
+                             @Value("${notification.mail.pool.validation-interval:15s}") Duration validationInterval) {
+        this.mailSender = mailSender instanceof JavaMailSenderImpl impl ? impl : null;
+        this.metrics = metrics;
+        this.enabled = enabled && this.mailSender != null;
+        this.permits = new Semaphore(Math.max(1, size));
+        this.maxIdle = maxIdle;
+        this.borrowTimeout = borrowTimeout;
+        this.validationInterval = validationInterval;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void send(MimeMessage message) throws MessagingException {
+        PooledTransport pooled = borrow();
+        boolean healthy = false;
+        try {
+            sendOne(pooled, message);
+            healthy = true;
+        } catch (MessagingException e) {
+            healthy = isStillUsable(pooled, e);
+            throw e;
+        } finally {
+            release(pooled, healthy);
+        }
+    }
+
+    /**
+     * Sends all messages over one connection. The result has one entry per message:
+     * null when it was sent, otherwise the failure.
+     */
+    public List<MessagingException> sendAll(List<MimeMessage> messages) throws MessagingException {
+        List<MessagingException> failures = new ArrayList<>(messages.size());
+        PooledTransport pooled = borrow();
+        boolean healthy = true;
+        try {
+            for (MimeMessage message : messages) {
+                try {
+                    sendOne(pooled, message);
+                    failures.add(null);
+                } catch (MessagingException e) {
+                    if (isStillUsable(pooled, e)) {
+                        failures.add(e);
+                        continue;
+                    }
+                    // reconnect already failed once inside sendOne; give up on this connection for the rest
+                    healthy = false;
+                    failures.add(e);
+                    for (int i = failures.size(); i < messages.size(); i++) failures.add(e);
+                    break;
+                }
+            }
+        } finally {
+            release(pooled, healthy);
+        }
+        return failures;
+    }
+
+    @Scheduled(fixedDelayString = "${notification.mail.pool.eviction-interval:30s}")
+    public void evictIdle() {
+        int evicted = 0;
+        // the iterator is only a snapshot: borrow() may take a connection at any time, so
+        // only one this thread actually removed from the deque is closed
+        for (PooledTransport p : idle) {
+            if (!isStale(p) || !idle.remove(p)) continue;
+            if (isStale(p)) {
+                closeQuietly(p);
+                evicted++;
+            } else {
+                // borrowed and returned in between
+                idle.offerFirst(p);
+            }
+        }
+        if (evicted > 0) {
+            log.debug("Evicted {} idle SMTP connections", evicted);
+        }
+    }
+
+    private boolean isStale(PooledTransport p) {
+        return System.nanoTime() - p.lastUsedNanos > maxIdle.toNanos() || !p.transport.isConnected();
+    }
+
+    public int idleConnections() {
+        return idle.size();
+    }
+
+    @PreDestroy
+    public void close() {
+        closed = true;
+        PooledTransport p;
+        while ((p = idle.pollFirst()) != null) closeQuietly(p);
+    }
+
+    private void sendOne(PooledTransport pooled, MimeMessage message) throws MessagingException {
+        // same preparation JavaMailSenderImpl does before handing a message to a Transport
+        if (message.getSentDate() == null) message.setSentDate(new Date());
+        String messageId = message.getMessageID();
+        message.saveChanges();
+        if (messageId != null) message.setHeader("Message-ID", messageId);
+
+        try {
+            timedSend(pooled.transport, message);
+        } catch (MessagingException e) {
+            // a dropped connection can also surface as SMTPSendFailedException, so check the transport itself
+            if (pooled.transport.isConnected()) throw e;
+            // the server dropped us (idle timeout, restart); reconnect once and retry
+            log.debug("SMTP connection lost, reconnecting: {}", e.getMessage());
+            pooled.transport.close();
+            connect(pooled.transport);
+            timedSend(pooled.transport, message);
+        }
+        pooled.lastUsedNanos = System.nanoTime();
+    }
+
+    private void timedSend(Transport transport, MimeMessage message) throws MessagingException {
+        long start = System.nanoTime();
+        boolean sent = false;
+        try {
+            transport.sendMessage(message, message.getAllRecipients());
+            sent = true;
+        } finally {
+            metrics.providerCall(ProviderCall.SMTP_SEND, start, sent);
+        }
+    }
+
+    private PooledTransport borrow() throws MessagingException {
+        if (closed) throw new MessagingException("SMTP transport pool is closed");
+        try {
+            if (!permits.tryAcquire(borrowTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("Timed out waiting for an SMTP connection after " + borrowTimeout);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted waiting for an SMTP connection", e);
+        }
+
+        try {
+            PooledTransport pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isUsable(pooled)) return pooled;
+                closeQuietly(pooled);
+            }
+            Session session = mailSender.getSession();
+            Transport transport = session.getTransport(protocol());
+            connect(transport);
+            return new PooledTransport(transport);
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void release(PooledTransport pooled, boolean healthy) {
+        try {
+            if (healthy && !closed) {
+                pooled.lastUsedNanos = System.nanoTime();
+                idle.offerFirst(pooled);
+            } else {
+                closeQuietly(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    // rejected recipients leave the connection fine; anything else means it is suspect
+    private static boolean isStillUsable(PooledTransport pooled, MessagingException e) {
+        return e instanceof SendFailedException && pooled.transport.isConnected();
+    }
+
+    private boolean isUsable(PooledTransport pooled) {
+        long idleNanos = System.nanoTime() - pooled.lastUsedNanos;
+        if (idleNanos > maxIdle.toNanos()) return false;
+        // recently used connections are trusted; older ones get a NOOP round trip
+        return idleNanos < validationInterval.toNanos() || pooled.transport.isConnected();
+    }
+
+    private void connect(Transport transport) throws MessagingException {
+        String username = mailSender.getUsername();
+        String password = mailSender.getPassword();
+        if ("".equals(username)) {
+            username = null;
+            if ("".equals(password)) password = null;
+        }
+        long start = System.nanoTime();
+        boolean connected = false;
+        try {
+            transport.connect(mailSender.getHost(), mailSender.getPort(), username, password);
+            connected = true;
+        } finally {
+            metrics.providerCall(ProviderCall.SMTP_CONNECT, start, connected);
+        }
+    }
+
+    private String protocol() {
+        String protocol = mailSender.getProtocol();
+        return protocol == null ? JavaMailSenderImpl.DEFAULT_PROTOCOL : protocol;
+    }
+
+    private void closeQuietly(PooledTransport pooled) {
+        try {
+            pooled.transport.close();
+        } catch (MessagingException e) {
+            log.debug("Error closing SMTP connection: {}", e.getMessage());
+        }
+    }
+}
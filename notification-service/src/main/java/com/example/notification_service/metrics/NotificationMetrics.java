@@ -0,0 +1,276 @@
+package com.example.notification_service.metrics;
+
+import com.example.notification_service.model.Channel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Meters of the delivery pipeline. Every meter is created once and kept in a field,
+ * enum map or small cache, so the hot path never goes through a registry lookup:
+ * recording is an array or hash lookup plus the meter update itself.
+ * <ul>
+ *     <li>{@code notification.delivery.latency} - consume to delivered, per channel and event type</li>
+ *     <li>{@code notification.deliveries} - outcome counters per channel, result and reason</li>
+ *     <li>{@code notification.deliveries.in_flight} - provider calls running, per channel</li>
+ *     <li>{@code notification.provider.requests} - SMTP connect/send and Twilio request timers</li>
+ *     <li>{@code notification.template.render} - render time per template</li>
+ *     <li>{@code notification.coalesce.saved} - messages merged into digests, so provider calls saved</li>
+ *     <li>{@code notification.dispatch.spilled} - bulk events spooled because their dispatch lane was full</li>
+ *     <li>{@code notification.drain.duration} / {@code notification.drain.abandoned} - draining in-flight
+ *     deliveries on rebalance and shutdown, and what was left to be delivered again</li>
+ *     <li>{@code notification.startup.ready} / {@code notification.startup.partitions_assigned} - JVM
+ *     start to {@link ApplicationReadyEvent} and to the first partition assignment, how long a new
+ *     instance takes to be able to take traffic</li>
+ *     <li>{@code notification.startup.first_delivery} - JVM start to the first delivered message;
+ *     on a quiet topic this also includes the wait for the first record</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class NotificationMetrics {
+
+    private static final Set<String> EVENT_TYPES = Set.of("WELCOME", "PAYMENT_CONFIRMED", "PROMOTION");
+    private static final Duration MAX_EXPECTED = Duration.ofMinutes(2);
+
+    public enum Outcome {
+        DELIVERED("success", "delivered"),
+        DUPLICATE("skip", "duplicate"),
+        NO_RECIPIENT("skip", "no_recipient"),
+        UNSUPPORTED_TYPE("skip", "unsupported_type"),
+        RATE_LIMITED("failure", "rate_limited"),
+        PROVIDER_THROTTLED("failure", "provider_throttled"),
+        INVALID("failure", "invalid"),
+        REJECTED("failure", "rejected"),
+        PROVIDER_ERROR("failure", "provider_error"),
+        TIMED_OUT("failure", "timed_out"),
+        CIRCUIT_OPEN("failure", "circuit_open"),
+        BULKHEAD_FULL("failure", "bulkhead_full");
+
+        final String result;
+        final String reason;
+
+        Outcome(String result, String reason) {
+            this.result = result;
+            this.reason = reason;
+        }
+
+        public String reason() {
+            return reason;
+        }
+    }
+
+    public enum ProviderCall {
+        SMTP_CONNECT("smtp", "connect"),
+        SMTP_SEND("smtp", "send"),
+        TWILIO_REQUEST("twilio", "request");
+
+        final String provider;
+        final String operation;
+
+        ProviderCall(String provider, String operation) {
+            this.provider = provider;
+            this.operation = operation;
+        }
+    }
+
+    public enum Drain {
+        REBALANCE, SHUTDOWN
+    }
+
+    private final MeterRegistry registry;
+    private final Map<Channel, Map<Outcome, Counter>> outcomes = new EnumMap<>(Channel.class);
+    private final Map<Channel, Map<String, Timer>> latency = new EnumMap<>(Channel.class);
+    private final Map<Channel, AtomicInteger> inFlight = new EnumMap<>(Channel.class);
+    private final Map<ProviderCall, Timer[]> providerCalls = new EnumMap<>(ProviderCall.class);
+    private final Map<String, Timer> renders = new ConcurrentHashMap<>();
+    private final Counter unsupportedEvents;
+    private final Counter spilled;
+    private final Map<Channel, Counter> coalesced = new EnumMap<>(Channel.class);
+    private final Map<Drain, Timer> drains = new EnumMap<>(Drain.class);
+    private final Map<Drain, Counter> abandoned = new EnumMap<>(Drain.class);
+    // JVM uptime at each startup milestone, -1 until it is reached
+    private final AtomicLong readyMillis = new AtomicLong(-1);
+    private final AtomicLong assignedMillis = new AtomicLong(-1);
+    private final AtomicLong firstDeliveryMillis = new AtomicLong(-1);
+
+    public NotificationMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (Channel channel : Channel.values()) {
+            Map<Outcome, Counter> counters = new EnumMap<>(Outcome.class);
+            for (Outcome outcome : Outcome.values()) {
+                counters.put(outcome, Counter.builder("notification.deliveries")
+                        .description("Channel deliveries by result and reason")
+                        .tag("channel", tag(channel))
+                        .tag("result", outcome.result)
+                        .tag("reason", outcome.reason)
+                        .register(registry));
+            }
+            outcomes.put(channel, counters);
+
+            Map<String, Timer> timers = new ConcurrentHashMap<>();
+            for (String type : EVENT_TYPES) timers.put(type, latencyTimer(channel, type));
+            timers.put("OTHER", latencyTimer(channel, "OTHER"));
+            latency.put(channel, timers);
+
+            AtomicInteger running = new AtomicInteger();
+            Gauge.builder("notification.deliveries.in_flight", running, AtomicInteger::get)
+                    .description("Provider calls currently running")
+                    .tag("channel", tag(channel))
+                    .register(registry);
+            inFlight.put(channel, running);
+
+            coalesced.put(channel, Counter.builder("notification.coalesce.saved")
+                    .description("Messages merged into a digest instead of being sent on their own")
+                    .tag("channel", tag(channel))
+                    .register(registry));
+        }
+        for (ProviderCall call : ProviderCall.values()) {
+            providerCalls.put(call, new Timer[]{providerTimer(call, "success"), providerTimer(call, "error")});
+        }
+        for (Drain drain : Drain.values()) {
+            drains.put(drain, Timer.builder("notification.drain.duration")
+                    .description("Time spent letting in-flight deliveries finish before giving up partitions")
+                    .tag("trigger", drain.name().toLowerCase())
+                    .register(registry));
+            abandoned.put(drain, Counter.builder("notification.drain.abandoned")
+                    .description("Records still unfinished at the drain deadline, left to be delivered again")
+                    .tag("trigger", drain.name().toLowerCase())
+                    .register(registry));
+        }
+        unsupportedEvents = Counter.builder("notification.events.skipped")
+                .description("Events dropped before fan-out")
+                .tag("reason", Outcome.UNSUPPORTED_TYPE.reason)
+                .register(registry);
+        spilled = Counter.builder("notification.dispatch.spilled")
+                .description("Bulk events spooled for later delivery because their dispatch lane was full")
+                .register(registry);
+        startupGauge("notification.startup.ready", readyMillis,
+                "Time from JVM start to the application being ready");
+        startupGauge("notification.startup.partitions_assigned", assignedMillis,
+                "Time from JVM start to the first partitions assigned to this instance");
+        startupGauge("notification.startup.first_delivery", firstDeliveryMillis,
+                "Time from JVM start to the first delivered message");
+    }
+
+    @EventListener
+    public void onReady(ApplicationReadyEvent event) {
+        if (reached(readyMillis)) log.info("Ready {} ms after JVM start", readyMillis.get());
+    }
+
+    /** Called on every assignment; only the first one after start is recorded. */
+    public void partitionsAssigned() {
+        if (assignedMillis.get() < 0 && reached(assignedMillis)) {
+            log.info("First partitions assigned {} ms after JVM start", assignedMillis.get());
+        }
+    }
+
+    public void delivered(Channel channel, String eventType, long receivedAtNanos) {
+        if (firstDeliveryMillis.get() < 0 && reached(firstDeliveryMillis)) {
+            log.info("First delivery {} ms after JVM start", firstDeliveryMillis.get());
+        }
+        outcomes.get(channel).get(Outcome.DELIVERED).increment();
+        Map<String, Timer> timers = latency.get(channel);
+        Timer timer = timers.get(eventType == null ? "OTHER" : eventType);
+        if (timer == null) timer = timers.get("OTHER");
+        timer.record(System.nanoTime() - receivedAtNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // true for the one caller that recorded the milestone
+    private static boolean reached(AtomicLong milestone) {
+        return milestone.compareAndSet(-1, ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+
+    public void outcome(Channel channel, Outcome outcome) {
+        outcomes.get(channel).get(outcome).increment();
+    }
+
+    /** A digest went out in place of {@code saved} + 1 messages. */
+    public void coalesced(Channel channel, int saved) {
+        coalesced.get(channel).increment(saved);
+    }
+
+    public void drained(Drain drain, long startNanos, int abandonedRecords) {
+        drains.get(drain).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        abandoned.get(drain).increment(abandonedRecords);
+    }
+
+    public void unsupportedEvent() {
+        unsupportedEvents.increment();
+    }
+
+    public void spilled() {
+        spilled.increment();
+    }
+
+    /** Marks a provider call as running on the channel; pair with {@link #callFinished}. */
+    public void callStarted(Channel channel) {
+        inFlight.get(channel).incrementAndGet();
+    }
+
+    public void callFinished(Channel channel) {
+        inFlight.get(channel).decrementAndGet();
+    }
+
+    public void providerCall(ProviderCall call, long startNanos, boolean success) {
+        providerCalls.get(call)[success ? 0 : 1].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void rendered(String template, long startNanos) {
+        Timer timer = renders.get(template);
+        if (timer == null) {
+            timer = renders.computeIfAbsent(template, name -> Timer.builder("notification.template.render")
+                    .description("Template render time, cache hits included")
+                    .tag("template", name)
+                    .register(registry));
+        }
+        timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer latencyTimer(Channel channel, String eventType) {
+        return Timer.builder("notification.delivery.latency")
+                .description("Time from consuming the record to the provider accepting the message")
+                .tag("channel", tag(channel))
+                .tag("event_type", eventType)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(MAX_EXPECTED)
+                .register(registry);
+    }
+
+    private Timer providerTimer(ProviderCall call, String outcome) {
+        return Timer.builder("notification.provider.requests")
+                .description("Provider round trips")
+                .tag("provider", call.provider)
+                .tag("operation", call.operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(MAX_EXPECTED)
+                .register(registry);
+    }
+
+    private void startupGauge(String name, AtomicLong milestone, String description) {
+        TimeGauge.builder(name, milestone, TimeUnit.MILLISECONDS, m -> m.get() < 0 ? Double.NaN : m.get())
+                .description(description)
+                .register(registry);
+    }
+
+    private static String tag(Channel channel) {
+        return channel.name().toLowerCase();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.notification_service.metrics;
+
+import com.example.notification_service.campaign.CampaignEngine;
+import com.example.notification_service.dispatch.DeliveryCoalescer;
+import com.example.notification_service.dispatch.DispatchEngine;
+import com.example.notification_service.dispatch.Lane;
+import com.example.notification_service.mail.SmtpTransportPool;
+import com.example.notification_service.model.Channel;
+import com.example.notification_service.offset.OffsetTracker;
+import com.example.notification_service.ratelimit.DeliveryRateLimiter;
+import com.example.notification_service.resilience.ProviderGuard;
+import com.example.notification_service.scheduler.NotificationScheduler;
+import com.example.notification_service.spool.DeliverySpool;
+import com.example.notification_service.whatsapp.HttpWhatsAppTransport;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gauges over state the pipeline components already keep. They are read at scrape time
+ * only, so they cost nothing per event. Consumer lag per partition comes from the Kafka
+ * client metrics bound in {@code KafkaConsumerConfig}.
+ */
+@Component
+@RequiredArgsConstructor
+public class PipelineGauges implements MeterBinder {
+
+    private final DispatchEngine dispatchEngine;
+    private final OffsetTracker offsetTracker;
+    private final DeliveryRateLimiter rateLimiter;
+    private final SmtpTransportPool smtpPool;
+    private final DeliverySpool spool;
+    private final ProviderGuard providerGuard;
+    private final NotificationScheduler scheduler;
+    private final CampaignEngine campaigns;
+    private final DeliveryCoalescer coalescer;
+    private final ObjectProvider<HttpWhatsAppTransport> whatsAppTransport;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Lane lane : Lane.values()) {
+            Gauge.builder("notification.dispatch.queued", dispatchEngine, engine -> engine.pending(lane))
+                    .description("Tasks waiting for a dispatch worker")
+                    .tag("lane", lane.name().toLowerCase())
+                    .register(registry);
+        }
+        Gauge.builder("notification.offsets.in_flight", offsetTracker, OffsetTracker::inFlight)
+                .description("Consumed records whose delivery has not finished")
+                .register(registry);
+        for (Channel channel : Channel.values()) {
+            Gauge.builder("notification.ratelimit.backlog", rateLimiter, limiter -> limiter.backlog(channel).toNanos() / 1e9)
+                    .description("Send time already booked ahead in the channel's token bucket")
+                    .tag("channel", channel.name().toLowerCase())
+                    .baseUnit("seconds")
+                    .register(registry);
+            Gauge.builder("notification.spool.pending", spool, s -> s.pending(channel))
+                    .description("Deliveries waiting in the local spool for the provider to recover")
+                    .tag("channel", channel.name().toLowerCase())
+                    .register(registry);
+            Gauge.builder("notification.breaker.state", providerGuard, guard -> guard.state(channel).ordinal())
+                    .description("Provider circuit breaker: 0 closed, 1 half-open, 2 open")
+                    .tag("channel", channel.name().toLowerCase())
+                    .register(registry);
+            Gauge.builder("notification.bulkhead.in_use", providerGuard, guard -> guard.inUse(channel))
+                    .description("Provider calls holding a bulkhead slot")
+                    .tag("channel", channel.name().toLowerCase())
+                    .register(registry);
+            Gauge.builder("notification.concurrency.limit", providerGuard, guard -> guard.bulkhead(channel).limit())
+                    .description("Provider calls allowed at once, adjusted to latency, errors and consumer lag")
+                    .tag("channel", channel.name().toLowerCase())
+                    .register(registry);
+        }
+        Gauge.builder("notification.scheduler.pending", scheduler, NotificationScheduler::pending)
+                .description("Scheduled events waiting for their send-at time")
+                .register(registry);
+        Gauge.builder("notification.campaign.active", campaigns, CampaignEngine::active)
+                .description("PROMOTION campaigns currently being expanded")
+                .register(registry);
+        Gauge.builder("notification.coalesce.held", coalescer, DeliveryCoalescer::held)
+                .description("Events held back to be sent as part of a digest")
+                .register(registry);
+        Gauge.builder("notification.mail.pool.idle", smtpPool, SmtpTransportPool::idleConnections)
+                .description("Connected SMTP transports waiting in the pool")
+                .register(registry);
+        whatsAppTransport.ifAvailable(transport ->
+                Gauge.builder("notification.whatsapp.requests.in_flight", transport, HttpWhatsAppTransport::inFlight)
+                        .description("Twilio HTTP requests in flight")
+                        .register(registry));
+    }
+}
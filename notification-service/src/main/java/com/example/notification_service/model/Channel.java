@@ -0,0 +1,6 @@
+package com.example.notification_service.model;
+
+public enum Channel {
+    WHATSAPP,
+    EMAIL
+}
@@ -17,5 +17,7 @@ public class NotificationEvent {
     private Map<String, String> templateData;
     private Integer priority; // 1=WhatsApp, 2=Email
     private LocalDateTime timestamp;
+    private String segment; // PROMOTION campaigns: file:<name> or table:<name>, one message per recipient in it
+    private LocalDateTime sendAt; // optional; held by the scheduler until then (notification.scheduler.zone)
 }
 
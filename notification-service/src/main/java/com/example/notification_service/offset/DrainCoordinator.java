@@ -0,0 +1,116 @@
+package com.example.notification_service.offset;
+
+import com.example.notification_service.dispatch.DeliveryCoalescer;
+import com.example.notification_service.dispatch.MicroBatchDispatcher;
+import com.example.notification_service.metrics.NotificationMetrics;
+import com.example.notification_service.metrics.NotificationMetrics.Drain;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.event.ConsumerStoppingEvent;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets in-flight deliveries finish before the listener gives up its partitions, on a
+ * rebalance (revocation) and on shutdown (the container publishes a
+ * {@link ConsumerStoppingEvent} on the consumer thread just before closing the consumer).
+ * <p>
+ * Fetching has stopped by then: the revoked partitions are no longer polled, and a
+ * stopping container has left its poll loop. Open coalescer digests are sent at once,
+ * then the drain waits up to its deadline for the partitions' records to finish and
+ * commits synchronously through the {@link OffsetTracker}: up to the first unfinished
+ * record, with the finished ones past it in the commit metadata. Records still unfinished
+ * at the deadline are dropped from the dispatch queues (the listener's tasks check
+ * {@link OffsetTracker#owns}) and stay uncommitted, so Kafka redelivers them to the next
+ * owner; the scheduler, campaign and spool stores are on disk already.
+ * <p>
+ * The batch listener delivers and acknowledges each poll before the next one, so a
+ * drain there only waits for micro-batches of a poll that ran past its await timeout
+ * (see {@link MicroBatchDispatcher}); the acknowledged offsets are committed by the
+ * container itself.
+ * <p>
+ * Drain time and abandoned records are recorded per trigger. The container's shutdown
+ * timeout and {@code spring.lifecycle.timeout-per-shutdown-phase} must exceed the
+ * shutdown deadline, and the rebalance deadline must stay well below
+ * {@code max.poll.interval.ms}.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class DrainCoordinator implements ConsumerAwareRebalanceListener {
+
+    private final OffsetTracker offsetTracker;
+    private final DeliveryCoalescer coalescer;
+    private final MicroBatchDispatcher microBatches;
+    private final NotificationMetrics metrics;
+
+    @Value("${notification.drain.rebalance-timeout:10s}")
+    private Duration rebalanceTimeout;
+
+    @Value("${notification.drain.shutdown-timeout:20s}")
+    private Duration shutdownTimeout;
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> revoked) {
+        drain(Drain.REBALANCE, consumer, revoked, rebalanceTimeout);
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> lost) {
+        // no longer ours to commit; whatever is still queued for them is dropped
+        offsetTracker.onPartitionsLost(consumer, lost);
+    }
+
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> assigned) {
+        offsetTracker.onPartitionsAssigned(consumer, assigned);
+        if (!assigned.isEmpty()) metrics.partitionsAssigned();
+    }
+
+    @EventListener
+    public void onStopping(ConsumerStoppingEvent event) {
+        if (event.getConsumer() == null || event.getPartitions() == null) return;
+        drain(Drain.SHUTDOWN, event.getConsumer(), event.getPartitions(), shutdownTimeout);
+    }
+
+    private void drain(Drain trigger, Consumer<?, ?> consumer, Collection<TopicPartition> partitions, Duration timeout) {
+        int inFlight = offsetTracker.inFlight(partitions) + microBatches.inFlight();
+        if (inFlight == 0) {
+            offsetTracker.onPartitionsRevokedBeforeCommit(consumer, partitions);
+            return;
+        }
+        long start = System.nanoTime();
+        // held events are in flight too: send them now rather than at the end of their window
+        coalescer.flush();
+        int left = inFlight;
+        try {
+            long deadline = start + timeout.toNanos();
+            left = offsetTracker.awaitCompletion(partitions, timeout);
+            while (microBatches.inFlight() > 0 && System.nanoTime() - deadline < 0) {
+                Thread.sleep(20);
+            }
+            left += microBatches.inFlight();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            left = offsetTracker.inFlight(partitions) + microBatches.inFlight();
+        } finally {
+            offsetTracker.onPartitionsRevokedBeforeCommit(consumer, partitions);
+        }
+        metrics.drained(trigger, start, left);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (left == 0) {
+            log.info("Drained {} in-flight records on {} in {} ms", inFlight, trigger.name().toLowerCase(), millis);
+        } else {
+            log.warn("Drain on {} gave up after {} ms: {} of {} records unfinished, left to be delivered again",
+                    trigger.name().toLowerCase(), millis, left, inFlight);
+        }
+    }
+}
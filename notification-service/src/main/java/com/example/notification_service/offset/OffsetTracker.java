@@ -0,0 +1,277 @@
+package com.example.notification_service.offset;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Commits listener offsets only once the deliveries behind them are finished.
+ * <p>
+ * The listener {@link #register registers} each record before handing it to the dispatch
+ * workers, which {@link #complete complete} it in whatever order they finish. Per partition
+ * the committable position is the lowest offset still in flight (or one past the last
+ * registered offset when nothing is), so a commit never skips an unfinished record.
+ * Commits are batched: {@link #maybeCommit} only commits once {@code commit-count}
+ * records completed or {@code commit-interval} passed, and always from the consumer
+ * thread (listener call, container idle event, rebalance callback).
+ * <p>
+ * Records past the committed position that already finished are listed in the commit's
+ * metadata ({@code c:} and offsets relative to the position, e.g. {@code c:2-5,9}).
+ * Whoever is assigned the partition next reads them back and {@link #register} tells its
+ * listener to skip them, so only the unfinished records are delivered again.
+ */
+@Component
+@Slf4j
+public class OffsetTracker implements ConsumerAwareRebalanceListener {
+
+    private static final String COMPLETED_PREFIX = "c:";
+    // well below the broker's offset.metadata.max.bytes (4096); what does not fit is just delivered again
+    private static final int MAX_METADATA = 2048;
+    private static final int MAX_FINISHED = 100_000;
+
+    private final Map<TopicPartition, PartitionState> partitions = new ConcurrentHashMap<>();
+
+    private final AtomicInteger completedSinceCommit = new AtomicInteger();
+    private final int commitCount;
+    private final long commitIntervalNanos;
+    private volatile long lastCommitNanos = System.nanoTime();
+
+    private static final class PartitionState {
+        final ConcurrentSkipListSet<Long> inFlight = new ConcurrentSkipListSet<>();
+        // written by the consumer thread only
+        volatile long nextOffset = -1;
+        volatile long committed = -1;
+        // finished by a previous owner, from the committed metadata; consumer thread only
+        NavigableSet<Long> finished;
+
+        long committable() {
+            Long lowest = inFlight.ceiling(Long.MIN_VALUE);
+            return lowest != null ? lowest : nextOffset;
+        }
+    }
+
+    public OffsetTracker(@Value("${notification.kafka.commit.count:500}") int commitCount,
+                         @Value("${notification.kafka.commit.interval:5s}") Duration commitInterval) {
+        this.commitCount = Math.max(1, commitCount);
+        this.commitIntervalNanos = commitInterval.toNanos();
+    }
+
+    /**
+     * Called on the consumer thread, in offset order, before the record is dispatched.
+     * Returns false when a previous owner of the partition already finished the record;
+     * the caller skips it.
+     */
+    public boolean register(String topic, int partition, long offset) {
+        PartitionState state = partitions.computeIfAbsent(new TopicPartition(topic, partition), tp -> new PartitionState());
+        state.nextOffset = offset + 1;
+        if (state.finished != null) {
+            state.finished.headSet(offset, false).clear();
+            boolean finished = state.finished.remove(offset);
+            if (state.finished.isEmpty()) state.finished = null;
+            if (finished) return false;
+        }
+        state.inFlight.add(offset);
+        return true;
+    }
+
+    /** Whether the record is still in flight here, i.e. its partition was not revoked meanwhile. */
+    public boolean owns(String topic, int partition, long offset) {
+        PartitionState state = partitions.get(new TopicPartition(topic, partition));
+        return state != null && state.inFlight.contains(offset);
+    }
+
+    /** Called from any thread once the record is fully handled (delivered, or handed to a retry tier). */
+    public void complete(String topic, int partition, long offset) {
+        PartitionState state = partitions.get(new TopicPartition(topic, partition));
+        if (state != null && state.inFlight.remove(offset)) {
+            completedSinceCommit.incrementAndGet();
+        }
+    }
+
+    /** Records registered but not completed yet, over all partitions. */
+    public int inFlight() {
+        int total = 0;
+        for (PartitionState state : partitions.values()) total += state.inFlight.size();
+        return total;
+    }
+
+    public int inFlight(Collection<TopicPartition> assigned) {
+        int total = 0;
+        for (TopicPartition tp : assigned) {
+            PartitionState state = partitions.get(tp);
+            if (state != null) total += state.inFlight.size();
+        }
+        return total;
+    }
+
+    /**
+     * Waits until nothing is in flight for the partitions, or the timeout passed.
+     * Returns the number of records still in flight.
+     */
+    public int awaitCompletion(Collection<TopicPartition> assigned, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        int left;
+        while ((left = inFlight(assigned)) > 0 && System.nanoTime() - deadline < 0) {
+            Thread.sleep(20);
+        }
+        return left;
+    }
+
+    /** Commits when enough records completed or the commit interval passed. Consumer thread only. */
+    public void maybeCommit(Consumer<?, ?> consumer) {
+        if (completedSinceCommit.get() >= commitCount || System.nanoTime() - lastCommitNanos >= commitIntervalNanos) {
+            commit(consumer, consumer.assignment(), false);
+        }
+    }
+
+    @EventListener
+    public void onIdle(ListenerContainerIdleEvent event) {
+        // idle events are published on the consumer thread, so the consumer may be used here
+        if (event.getConsumer() != null) maybeCommit(event.getConsumer());
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> revoked) {
+        commit(consumer, revoked, true);
+        revoked.forEach(partitions::remove);
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> lost) {
+        lost.forEach(partitions::remove);
+    }
+
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> assigned) {
+        if (assigned.isEmpty()) return;
+        Map<TopicPartition, OffsetAndMetadata> committed;
+        try {
+            committed = consumer.committed(new HashSet<>(assigned));
+        } catch (Exception e) {
+            // without it, records finished by the previous owner are delivered again and deduplicated
+            log.warn("Could not read committed offsets of {}: {}", assigned, e.getMessage());
+            return;
+        }
+        committed.forEach((tp, offset) -> {
+            if (offset == null) return;
+            NavigableSet<Long> finished = parseFinished(offset.offset(), offset.metadata());
+            if (finished.isEmpty()) return;
+            PartitionState state = new PartitionState();
+            state.committed = offset.offset();
+            state.finished = finished;
+            partitions.put(tp, state);
+        });
+    }
+
+    /** Offsets that would be committed now for the given partitions; exposed for tests and metrics. */
+    public Map<TopicPartition, OffsetAndMetadata> committable(Collection<TopicPartition> assigned) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition tp : assigned) {
+            PartitionState state = partitions.get(tp);
+            if (state == null) continue;
+            long position = state.committable();
+            if (position > state.committed) offsets.put(tp, new OffsetAndMetadata(position, finishedAfter(state, position)));
+        }
+        return offsets;
+    }
+
+    // finished records past the position: the gaps between unfinished ones, then any the previous owner finished
+    private static String finishedAfter(PartitionState state, long position) {
+        long next = state.nextOffset;
+        if (position >= next && state.finished == null) return "";
+        StringBuilder out = new StringBuilder(COMPLETED_PREFIX);
+        long previous = position;
+        for (long offset : state.inFlight.tailSet(position, false)) {
+            if (offset >= next) break;
+            if (!appendRange(out, previous + 1 - position, offset - 1 - position)) return out.toString();
+            previous = offset;
+        }
+        if (!appendRange(out, previous + 1 - position, next - 1 - position)) return out.toString();
+        if (state.finished != null) {
+            for (long offset : state.finished) {
+                if (offset > position && !appendRange(out, offset - position, offset - position)) break;
+            }
+        }
+        return out.length() == COMPLETED_PREFIX.length() ? "" : out.toString();
+    }
+
+    // false once the metadata is full
+    private static boolean appendRange(StringBuilder out, long from, long to) {
+        if (from > to) return true;
+        if (out.length() > MAX_METADATA) return false;
+        if (out.length() > COMPLETED_PREFIX.length()) out.append(',');
+        out.append(from);
+        if (to > from) out.append('-').append(to);
+        return true;
+    }
+
+    static NavigableSet<Long> parseFinished(long position, String metadata) {
+        NavigableSet<Long> finished = new TreeSet<>();
+        if (metadata == null || !metadata.startsWith(COMPLETED_PREFIX)) return finished;
+        try {
+            for (String range : metadata.substring(COMPLETED_PREFIX.length()).split(",")) {
+                if (range.isEmpty()) continue;
+                int dash = range.indexOf('-');
+                long from = Long.parseLong(dash < 0 ? range : range.substring(0, dash));
+                long to = dash < 0 ? from : Long.parseLong(range.substring(dash + 1));
+                for (long offset = from; offset <= to && finished.size() < MAX_FINISHED; offset++) {
+                    finished.add(position + offset);
+                }
+            }
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed offset metadata '{}'", metadata);
+            return new TreeSet<>();
+        }
+        return finished;
+    }
+
+    private void commit(Consumer<?, ?> consumer, Collection<TopicPartition> assigned, boolean sync) {
+        int completed = completedSinceCommit.getAndSet(0);
+        lastCommitNanos = System.nanoTime();
+        Map<TopicPartition, OffsetAndMetadata> offsets = committable(assigned);
+        if (offsets.isEmpty()) return;
+
+        if (sync) {
+            try {
+                consumer.commitSync(offsets);
+                markCommitted(offsets);
+            } catch (Exception e) {
+                log.warn("Offset commit on rebalance failed for {}: {}", offsets.keySet(), e.getMessage());
+            }
+            return;
+        }
+        consumer.commitAsync(offsets, (committed, e) -> {
+            if (e != null) {
+                // the next commit covers these offsets again
+                completedSinceCommit.addAndGet(completed);
+                log.warn("Offset commit failed for {}: {}", offsets.keySet(), e.getMessage());
+            } else {
+                markCommitted(committed);
+            }
+        });
+    }
+
+    private void markCommitted(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        offsets.forEach((tp, offset) -> {
+            PartitionState state = partitions.get(tp);
+            if (state != null) state.committed = Math.max(state.committed, offset.offset());
+        });
+    }
+}
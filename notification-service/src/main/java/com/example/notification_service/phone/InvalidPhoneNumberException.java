@@ -0,0 +1,15 @@
+package com.example.notification_service.phone;
+
+import com.example.notification_service.logging.Masking;
+
+/**
+ * The recipient phone number cannot be turned into an E.164 number. Extends
+ * {@link IllegalArgumentException} so the failure handler dead-letters it without retrying.
+ * The message ends up in logs and DLT headers, so it carries the number masked.
+ */
+public class InvalidPhoneNumberException extends IllegalArgumentException {
+
+    public InvalidPhoneNumberException(String raw, String reason) {
+        super("Invalid phone number '" + Masking.phone(raw) + "': " + reason);
+    }
+}
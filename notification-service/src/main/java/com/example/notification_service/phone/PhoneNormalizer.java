@@ -0,0 +1,132 @@
+package com.example.notification_service.phone;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns recipient phone numbers as customers type them into E.164.
+ * <p>
+ * One pass over the characters, no regex: digits are kept, common separators
+ * (space, {@code - . ( ) /}) are skipped and anything else rejects the number. Then:
+ * <ul>
+ *   <li>{@code +} or the {@code 00} international prefix: already international</li>
+ *   <li>the trunk prefix (e.g. {@code 0771234567}): dropped, default country code added</li>
+ *   <li>exactly the national number length (e.g. {@code 771234567}): default country code added</li>
+ *   <li>anything else (e.g. {@code 94771234567}): taken as country code plus number</li>
+ * </ul>
+ * The result must have 7 to 15 digits, must not start with 0 and, for the default
+ * country, must have the national number length. An input that is already canonical
+ * is returned as is; recent results are cached by raw input, so repeat recipients cost
+ * one map lookup.
+ */
+@Component
+public class PhoneNormalizer {
+
+    static final int MIN_DIGITS = 7;
+    static final int MAX_DIGITS = 15;
+    // room for an international or trunk prefix in front of a maximal number
+    private static final int MAX_INPUT_DIGITS = MAX_DIGITS + 3;
+
+    private final String countryCode;
+    private final String trunkPrefix;
+    private final int nationalLength;
+    private final int cacheSize;
+    private final Map<String, PhoneNumber> cache = new ConcurrentHashMap<>();
+
+    public PhoneNormalizer(@Value("${notification.phone.default-country-code:94}") String countryCode,
+                           @Value("${notification.phone.trunk-prefix:0}") String trunkPrefix,
+                           @Value("${notification.phone.national-number-length:9}") int nationalLength,
+                           @Value("${notification.phone.cache-size:10000}") int cacheSize) {
+        this.countryCode = countryCode.trim();
+        this.trunkPrefix = trunkPrefix.trim();
+        this.nationalLength = nationalLength;
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * @throws InvalidPhoneNumberException when the input is not a usable phone number
+     */
+    public PhoneNumber normalize(String raw) {
+        if (raw == null) throw new InvalidPhoneNumberException(null, "missing");
+        PhoneNumber cached = cache.get(raw);
+        if (cached != null) return cached;
+
+        PhoneNumber number = PhoneNumber.of(parse(raw));
+        if (cacheSize > 0) {
+            // bounded by dropping everything when full, as the template render cache does
+            if (cache.size() >= cacheSize) cache.clear();
+            cache.put(raw, number);
+        }
+        return number;
+    }
+
+    private String parse(String raw) {
+        char[] digits = new char[MAX_INPUT_DIGITS];
+        int count = 0;
+        boolean plus = false;
+        for (int i = 0, length = raw.length(); i < length; i++) {
+            char c = raw.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (count == MAX_INPUT_DIGITS) throw new InvalidPhoneNumberException(raw, "too many digits");
+                digits[count++] = c;
+            } else if (c == '+') {
+                if (plus || count > 0) throw new InvalidPhoneNumberException(raw, "misplaced '+'");
+                plus = true;
+            } else if (!isSeparator(c)) {
+                throw new InvalidPhoneNumberException(raw, "unexpected character '" + c + "'");
+            }
+        }
+        if (count == 0) throw new InvalidPhoneNumberException(raw, "no digits");
+
+        int from = 0;
+        String prefix = "";
+        if (!plus) {
+            if (startsWith(digits, count, "00")) {
+                from = 2;
+            } else if (!trunkPrefix.isEmpty() && startsWith(digits, count, trunkPrefix)) {
+                from = trunkPrefix.length();
+                prefix = countryCode;
+            } else if (count == nationalLength) {
+                prefix = countryCode;
+            }
+        }
+
+        int total = prefix.length() + count - from;
+        if (total < MIN_DIGITS) throw new InvalidPhoneNumberException(raw, "too short");
+        if (total > MAX_DIGITS) throw new InvalidPhoneNumberException(raw, "too long");
+        char first = prefix.isEmpty() ? digits[from] : prefix.charAt(0);
+        if (first == '0') throw new InvalidPhoneNumberException(raw, "country code cannot start with 0");
+        boolean home = !prefix.isEmpty() || startsWith(digits, from, count, countryCode);
+        if (home && nationalLength > 0 && total - countryCode.length() != nationalLength) {
+            throw new InvalidPhoneNumberException(raw, "expected " + nationalLength + " digits after +" + countryCode);
+        }
+
+        // already canonical: keep the caller's string
+        if (plus && raw.length() == count + 1 && raw.charAt(0) == '+') return raw;
+
+        char[] e164 = new char[total + 1];
+        e164[0] = '+';
+        prefix.getChars(0, prefix.length(), e164, 1);
+        System.arraycopy(digits, from, e164, 1 + prefix.length(), count - from);
+        return new String(e164);
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '-' || c == '.' || c == '(' || c == ')' || c == '/' || c == '\t' || c == ' ';
+    }
+
+    private static boolean startsWith(char[] digits, int count, String prefix) {
+        return startsWith(digits, 0, count, prefix);
+    }
+
+    private static boolean startsWith(char[] digits, int from, int count, String prefix) {
+        if (count - from < prefix.length()) return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (digits[from + i] != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+}
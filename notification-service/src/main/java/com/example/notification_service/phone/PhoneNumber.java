@@ -0,0 +1,20 @@
+package com.example.notification_service.phone;
+
+/**
+ * A validated E.164 number. The WhatsApp address is built once here so repeat sends to
+ * a cached number do not concatenate it again.
+ *
+ * @param e164     {@code +} followed by country code and subscriber number, digits only
+ * @param whatsApp the Twilio WhatsApp address, {@code whatsapp:<e164>}
+ */
+public record PhoneNumber(String e164, String whatsApp) {
+
+    public static PhoneNumber of(String e164) {
+        return new PhoneNumber(e164, "whatsapp:" + e164);
+    }
+
+    @Override
+    public String toString() {
+        return e164;
+    }
+}
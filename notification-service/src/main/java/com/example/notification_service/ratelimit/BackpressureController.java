@@ -0,0 +1,74 @@
+package com.example.notification_service.ratelimit;
+
+import com.example.notification_service.consumer.NotificationConsumer;
+import com.example.notification_service.model.Channel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Pauses the main Kafka listener containers while a channel's send budget is booked
+ * further ahead than {@code pause-threshold}, and resumes them once every channel is back
+ * under {@code resume-threshold}. Records then wait in Kafka rather than in worker queues
+ * or retry topics. The retry tiers pause and resume their own partitions until records
+ * are due, so they are left alone.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class BackpressureController {
+
+    private final DeliveryRateLimiter rateLimiter;
+    private final KafkaListenerEndpointRegistry registry;
+
+    @Value("${notification.ratelimit.pause-threshold:3s}")
+    private Duration pauseThreshold;
+
+    @Value("${notification.ratelimit.resume-threshold:1s}")
+    private Duration resumeThreshold;
+
+    private volatile boolean paused;
+
+    @Scheduled(fixedDelayString = "${notification.ratelimit.check-interval:250ms}")
+    public void check() {
+        if (!rateLimiter.isEnabled()) return;
+
+        Duration worst = Duration.ZERO;
+        Channel worstChannel = null;
+        for (Channel channel : Channel.values()) {
+            Duration backlog = rateLimiter.backlog(channel);
+            if (backlog.compareTo(worst) > 0) {
+                worst = backlog;
+                worstChannel = channel;
+            }
+        }
+
+        if (!paused && worst.compareTo(pauseThreshold) > 0) {
+            paused = true;
+            mainContainers().forEach(MessageListenerContainer::pause);
+            log.warn("Pausing Kafka consumption: {} send budget booked {} ahead", worstChannel, worst);
+        } else if (paused && worst.compareTo(resumeThreshold) <= 0) {
+            paused = false;
+            mainContainers().forEach(MessageListenerContainer::resume);
+            log.info("Resuming Kafka consumption");
+        }
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    private Stream<MessageListenerContainer> mainContainers() {
+        return Stream.of(NotificationConsumer.LISTENER_ID, NotificationConsumer.BATCH_LISTENER_ID)
+                .map(registry::getListenerContainer)
+                .filter(Objects::nonNull);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.notification_service.ratelimit;
+
+import com.example.notification_service.model.Channel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces sends per channel (Twilio sender, Gmail account) and, for email, per recipient
+ * domain when {@code notification.ratelimit.email.domains} lists one. A caller books a
+ * slot and parks until it comes up; when no slot is available within {@code max-wait}
+ * the send fails with {@link ThrottledException} so it goes to a retry tier instead.
+ * <p>
+ * The wait counts against the channel's fan-out deadline, so it is capped at half of
+ * that deadline; the other half is left for the provider call itself.
+ */
+@Component
+@Slf4j
+public class DeliveryRateLimiter {
+
+    private final boolean enabled;
+    private final Map<Channel, Long> maxWaitNanos = new EnumMap<>(Channel.class);
+    private final Map<Channel, TokenBucket> channelBuckets = new EnumMap<>(Channel.class);
+    private final Map<String, TokenBucket> emailDomainBuckets = new HashMap<>();
+
+    public DeliveryRateLimiter(@Value("${notification.ratelimit.enabled:true}") boolean enabled,
+                               @Value("${notification.ratelimit.max-wait:5s}") Duration maxWait,
+                               @Value("${notification.ratelimit.whatsapp.rate:10}") double whatsAppRate,
+                               @Value("${notification.ratelimit.whatsapp.burst:10}") int whatsAppBurst,
+                               @Value("${notification.ratelimit.email.rate:5}") double emailRate,
+                               @Value("${notification.ratelimit.email.burst:5}") int emailBurst,
+                               @Value("${notification.ratelimit.email.domains:}") String emailDomains,
+                               @Value("${notification.fanout.whatsapp-timeout:15s}") Duration whatsAppTimeout,
+                               @Value("${notification.fanout.email-timeout:20s}") Duration emailTimeout) {
+        this.enabled = enabled;
+        maxWaitNanos.put(Channel.WHATSAPP, maxWait(maxWait, Channel.WHATSAPP, whatsAppTimeout));
+        maxWaitNanos.put(Channel.EMAIL, maxWait(maxWait, Channel.EMAIL, emailTimeout));
+        channelBuckets.put(Channel.WHATSAPP, new TokenBucket(whatsAppRate, whatsAppBurst));
+        channelBuckets.put(Channel.EMAIL, new TokenBucket(emailRate, emailBurst));
+
+        // format: gmail.com=2,yahoo.com=1 (permits per second, burst equal to the rate)
+        for (String entry : emailDomains.split(",")) {
+            int eq = entry.indexOf('=');
+            if (eq < 0) continue;
+            double rate = Double.parseDouble(entry.substring(eq + 1).trim());
+            emailDomainBuckets.put(entry.substring(0, eq).trim().toLowerCase(), new TokenBucket(rate, (int) Math.ceil(rate)));
+        }
+    }
+
+    /**
+     * Blocks until the channel (and recipient domain) budget allows one more send.
+     *
+     * @throws ThrottledException when that would take longer than the configured max wait
+     */
+    public void acquire(Channel channel, String recipient) {
+        if (!enabled) return;
+        long maxWait = maxWaitNanos.get(channel);
+        TokenBucket domain = domainBucket(channel, recipient);
+        long domainWait = domain == null ? 0 : domain.reserve(maxWait);
+        if (domainWait < 0) throw new ThrottledException(channel, "domain");
+        long channelWait = channelBuckets.get(channel).reserve(maxWait);
+        if (channelWait < 0) {
+            // the send will not happen: hand the domain slot back for the next caller
+            if (domain != null) domain.cancel();
+            throw new ThrottledException(channel, "channel");
+        }
+        // both slots are booked; wait for the later of the two
+        await(Math.max(domainWait, channelWait), channel, domainWait > channelWait ? "domain" : "channel");
+    }
+
+    public void onSuccess(Channel channel, String recipient) {
+        if (!enabled) return;
+        channelBuckets.get(channel).onSuccess();
+        TokenBucket domain = domainBucket(channel, recipient);
+        if (domain != null) domain.onSuccess();
+    }
+
+    public void onThrottled(Channel channel, String recipient) {
+        if (!enabled) return;
+        TokenBucket bucket = channelBuckets.get(channel);
+        bucket.onThrottled();
+        TokenBucket domain = domainBucket(channel, recipient);
+        if (domain != null) domain.onThrottled();
+        log.warn("{} provider is throttling; local rate lowered to {}/s", channel, String.format("%.2f", bucket.currentRate()));
+    }
+
+    /** How far ahead the channel's budget is already booked. */
+    public Duration backlog(Channel channel) {
+        return Duration.ofNanos(channelBuckets.get(channel).backlogNanos());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private static long maxWait(Duration configured, Channel channel, Duration deadline) {
+        Duration cap = deadline.dividedBy(2);
+        if (configured.compareTo(cap) <= 0) return configured.toNanos();
+        log.warn("notification.ratelimit.max-wait {} exceeds half the {} fan-out deadline {}; using {}",
+                configured, channel, deadline, cap);
+        return cap.toNanos();
+    }
+
+    private TokenBucket domainBucket(Channel channel, String recipient) {
+        if (channel != Channel.EMAIL || recipient == null || emailDomainBuckets.isEmpty()) return null;
+        int at = recipient.lastIndexOf('@');
+        return at < 0 ? null : emailDomainBuckets.get(recipient.substring(at + 1).toLowerCase());
+    }
+
+    private static void await(long waitNanos, Channel channel, String scope) {
+        if (waitNanos < 0) throw new ThrottledException(channel, scope);
+        long deadline = System.nanoTime() + waitNanos;
+        long remaining = waitNanos;
+        while (remaining > 0) {
+            // parking is cheap on the dispatch workers' virtual threads
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new ThrottledException(channel, scope);
+            }
+            remaining = deadline - System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.notification_service.ratelimit;
+
+import com.example.notification_service.whatsapp.WhatsAppSendException;
+import com.twilio.exception.ApiException;
+import jakarta.mail.MessagingException;
+
+/**
+ * Recognises provider rate-limit responses in an exception chain: Twilio HTTP 429 and
+ * transient SMTP replies (421 service busy, 450/451/452 try again later).
+ */
+public final class ProviderThrottling {
+
+    private ProviderThrottling() {
+    }
+
+    public static boolean isThrottled(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof ApiException api && Integer.valueOf(429).equals(api.getStatusCode())) {
+                return true;
+            }
+            if (t instanceof WhatsAppSendException http && http.getStatusCode() == 429) {
+                return true;
+            }
+            if (t instanceof MessagingException && isTransientSmtpReply(t.getMessage())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // SMTP exceptions carry the server reply, which starts with the three-digit code
+    private static boolean isTransientSmtpReply(String reply) {
+        if (reply == null || reply.length() < 3) return false;
+        if (reply.length() > 3 && Character.isDigit(reply.charAt(3))) return false;
+        return reply.startsWith("421") || reply.startsWith("450") || reply.startsWith("451") || reply.startsWith("452");
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.notification_service.ratelimit;
+
+import com.example.notification_service.model.Channel;
+
+/**
+ * Thrown when the local send budget for a channel has no slot within the allowed wait.
+ */
+public class ThrottledException extends RuntimeException {
+
+    public ThrottledException(Channel channel, String scope) {
+        super("Local rate limit reached for " + channel + " (" + scope + ")");
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.notification_service.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket in its GCRA form: the whole state is one {@link AtomicLong}
+ * holding the theoretical arrival time of the next permit, advanced with CAS.
+ * <p>
+ * {@link #reserve} hands out time slots in order, so callers simply park until their
+ * slot; {@link #backlogNanos} is how far ahead of now the bucket is booked.
+ * The rate adapts: {@link #onThrottled} halves it (down to a floor) and
+ * {@link #onSuccess} creeps it back up to the configured rate.
+ */
+public final class TokenBucket {
+
+    private static final double MIN_RATE_FRACTION = 0.05;
+    private static final double DECREASE_FACTOR = 0.5;
+    private static final double RECOVERY_STEP_FRACTION = 0.01;
+
+    private final double configuredRate;
+    private final int burst;
+    private final AtomicLong theoreticalArrival = new AtomicLong(System.nanoTime());
+    private volatile double currentRate;
+    private volatile long intervalNanos;
+
+    /**
+     * @param ratePerSecond sustained permits per second
+     * @param burst         permits that may be taken back to back after an idle period
+     */
+    public TokenBucket(double ratePerSecond, int burst) {
+        this.configuredRate = ratePerSecond;
+        this.burst = Math.max(1, burst);
+        setRate(ratePerSecond);
+    }
+
+    /**
+     * Books the next permit and returns how long the caller must wait for it (0 = now),
+     * or -1 without booking when the wait would exceed {@code maxWaitNanos}.
+     */
+    public long reserve(long maxWaitNanos) {
+        while (true) {
+            long now = System.nanoTime();
+            long tat = theoreticalArrival.get();
+            long interval = intervalNanos;
+            long next = Math.max(tat, now) + interval;
+            long wait = Math.max(0, next - (long) burst * interval - now);
+            if (wait > maxWaitNanos) return -1;
+            if (theoreticalArrival.compareAndSet(tat, next)) return wait;
+        }
+    }
+
+    /** Gives back a permit booked by {@link #reserve} that will not be used after all. */
+    public void cancel() {
+        long interval = intervalNanos;
+        theoreticalArrival.addAndGet(-interval);
+    }
+
+    /** Time already booked beyond the burst allowance; 0 when a permit is free right now. */
+    public long backlogNanos() {
+        long interval = intervalNanos;
+        return Math.max(0, theoreticalArrival.get() - (long) burst * interval - System.nanoTime() + interval);
+    }
+
+    /** The provider pushed back (HTTP 429, SMTP 4xx): slow down. */
+    public void onThrottled() {
+        setRate(Math.max(configuredRate * MIN_RATE_FRACTION, currentRate * DECREASE_FACTOR));
+    }
+
+    /** A send went through: recover towards the configured rate. */
+    public void onSuccess() {
+        double rate = currentRate;
+        if (rate < configuredRate) {
+            setRate(Math.min(configuredRate, rate + configuredRate * RECOVERY_STEP_FRACTION));
+        }
+    }
+
+    public double currentRate() {
+        return currentRate;
+    }
+
+    private void setRate(double ratePerSecond) {
+        // benign race: concurrent adjustments may overwrite each other, the next signal corrects it
+        currentRate = ratePerSecond;
+        intervalNanos = (long) (1_000_000_000L / ratePerSecond);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.notification_service.resilience;
+
+/**
+ * Next concurrency limit for one provider from the latency and outcome of its recent
+ * calls, gradient style with a multiplicative decrease on overload.
+ * <ul>
+ *   <li>More than {@code overloadRate} of the calls failed or were throttled: the limit
+ *   is cut by {@code backoff}.</li>
+ *   <li>Otherwise it is scaled by {@code tolerance * baseline / latency}, kept between 0.5
+ *   and 1: it holds while latency stays within {@code tolerance} times the baseline and
+ *   shrinks as the provider queues our calls.</li>
+ *   <li>Only when the limit is what holds deliveries back (every slot was in use, or
+ *   records are piling up in Kafka) does it grow, by {@code sqrt(limit)} per step.</li>
+ * </ul>
+ * The baseline follows the lowest average latency seen and creeps up slowly towards the
+ * current one, so a provider that became slower for good is eventually taken as the new
+ * normal instead of pinning the limit at its minimum.
+ * <p>
+ * Not thread-safe: it is stepped by the {@link ConcurrencyController} only.
+ */
+public class AdaptiveLimit {
+
+    private static final double BASELINE_DRIFT = 0.02;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double backoff;
+    private final double overloadRate;
+    private double baselineNanos = Double.NaN;
+
+    public AdaptiveLimit(int minLimit, int maxLimit, double tolerance, double backoff, double overloadRate) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.backoff = backoff;
+        this.overloadRate = overloadRate;
+    }
+
+    /**
+     * @param backlog whether records are waiting in Kafka beyond the lag threshold
+     */
+    public int next(int limit, Bulkhead.Sample sample, boolean backlog) {
+        if (sample.calls() == 0) return clamp(limit);
+        if ((double) sample.overloaded() / sample.calls() > overloadRate) {
+            return clamp((int) (limit * backoff));
+        }
+        if (sample.completed() == 0) return clamp(limit);
+        double latency = sample.averageLatencyNanos();
+        if (Double.isNaN(baselineNanos) || latency < baselineNanos) {
+            baselineNanos = latency;
+        } else {
+            baselineNanos += (latency - baselineNanos) * BASELINE_DRIFT;
+        }
+        double gradient = Math.clamp(tolerance * baselineNanos / latency, 0.5, 1.0);
+        double growth = sample.peakInUse() >= limit || backlog ? Math.sqrt(limit) : 0;
+        return clamp((int) Math.round(limit * gradient + growth));
+    }
+
+    public double baselineNanos() {
+        return baselineNanos;
+    }
+
+    private int clamp(int limit) {
+        return Math.clamp(limit, minLimit, maxLimit);
+    }
+}
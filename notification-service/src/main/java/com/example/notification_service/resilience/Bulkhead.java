@@ -0,0 +1,115 @@
+package com.example.notification_service.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps the calls one provider may have running, so a provider that hangs ties up at most
+ * its own share of threads and connections and the other channel keeps flowing.
+ * <p>
+ * The cap can be moved at runtime by the {@link ConcurrencyController}, which reads the
+ * calls' latency and outcome back through {@link #drain}. Acquire and release are a
+ * semaphore CAS and a few striped counter updates; nothing on the call path takes a lock
+ * unless it has to wait for a slot.
+ */
+public class Bulkhead {
+
+    private final long maxWaitNanos;
+    private final Permits permits;
+    private volatile int limit;
+
+    // since the last drain()
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final LongAdder overloaded = new LongAdder();
+    private final AtomicInteger peakInUse = new AtomicInteger();
+
+    /** Calls that went through since the previous {@link #drain}. */
+    public record Sample(long completed, long latencyNanos, long overloaded, int peakInUse) {
+
+        public long calls() {
+            return completed + overloaded;
+        }
+
+        public double averageLatencyNanos() {
+            return completed == 0 ? Double.NaN : (double) latencyNanos / completed;
+        }
+    }
+
+    // exposes reducePermits, so the limit can shrink without waiting for running calls
+    private static final class Permits extends Semaphore {
+        Permits(int permits) {
+            super(permits);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+
+    public Bulkhead(int maxConcurrent, Duration maxWait) {
+        this.limit = maxConcurrent;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.permits = new Permits(maxConcurrent);
+    }
+
+    /** Returns false when no slot frees up within the max wait. */
+    public boolean tryAcquire() {
+        try {
+            if (!permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        int used = inUse();
+        if (used > peakInUse.get()) peakInUse.accumulateAndGet(used, Math::max);
+        return true;
+    }
+
+    /**
+     * Frees the slot of a call that took {@code latencyNanos}. {@code overloaded} marks a
+     * failure that says the provider is struggling (errors, throttling); a call that
+     * neither succeeded nor overloaded, e.g. invalid input, is not sampled.
+     */
+    public void release(long latencyNanos, boolean success, boolean overloaded) {
+        permits.release();
+        if (success) {
+            completed.increment();
+            this.latencyNanos.add(latencyNanos);
+        } else if (overloaded) {
+            this.overloaded.increment();
+        }
+    }
+
+    /** Returns the calls since the previous drain and starts a new sample. */
+    public Sample drain() {
+        return new Sample(completed.sumThenReset(), latencyNanos.sumThenReset(), overloaded.sumThenReset(),
+                peakInUse.getAndSet(inUse()));
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    /**
+     * Moves the cap. Calls already running keep their slots; after a decrease no new call
+     * starts until enough of them finished. Only called by one thread at a time.
+     */
+    public void setLimit(int newLimit) {
+        int delta = newLimit - limit;
+        if (delta > 0) {
+            permits.release(delta);
+        } else if (delta < 0) {
+            permits.reducePermits(-delta);
+        }
+        limit = newLimit;
+    }
+
+    public int inUse() {
+        return limit - permits.availablePermits();
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.notification_service.resilience;
+
+import com.example.notification_service.model.Channel;
+
+/**
+ * Thrown when a provider already has its maximum number of calls running.
+ */
+public class BulkheadFullException extends RuntimeException {
+
+    public BulkheadFullException(Channel channel) {
+        super("Too many concurrent " + channel + " calls");
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.notification_service.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Count-based circuit breaker for one provider.
+ * <p>
+ * While CLOSED, the last {@code windowSize} call results are kept in a ring buffer; once
+ * at least {@code minimumCalls} are in it and either the failure rate or the slow-call
+ * rate reaches its threshold, the breaker OPENs and {@link #tryAcquire} refuses every
+ * call for {@code openDuration}. After that, HALF_OPEN lets {@code halfOpenCalls} probes
+ * through: if they stay under the thresholds the breaker closes with an empty window,
+ * otherwise it opens again.
+ * <p>
+ * The CLOSED fast path of {@link #tryAcquire} is a single volatile read; results are
+ * recorded under the breaker's monitor, which is held for a few field updates only.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long slowCallNanos;
+    private final double slowCallRateThreshold;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final Listener listener;
+
+    private final byte[] window;
+    private int head;
+    private int calls;
+    private int failures;
+    private int slowCalls;
+
+    private volatile State state = State.CLOSED;
+    private volatile long openUntil;
+    private final AtomicInteger probes = new AtomicInteger();
+    private int probeCalls;
+    private int probeFailures;
+    private int probeSlowCalls;
+
+    /** Called on every state change, under the breaker's monitor. */
+    @FunctionalInterface
+    public interface Listener {
+        void onTransition(State from, State to);
+    }
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, Duration slowCallDuration,
+                          double slowCallRateThreshold, Duration openDuration, int halfOpenCalls, Listener listener) {
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallNanos = slowCallDuration.toNanos();
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+        this.listener = listener;
+        this.window = new byte[windowSize];
+    }
+
+    public State state() {
+        return state;
+    }
+
+    /**
+     * False while OPEN and the open duration has not passed yet. Does not take a
+     * half-open probe, so it can be asked before work that precedes the call.
+     */
+    public boolean allowsCalls() {
+        return state != State.OPEN || System.nanoTime() - openUntil >= 0;
+    }
+
+    /**
+     * Takes permission for one call. Every {@code true} must be followed by exactly one
+     * {@link #onSuccess}, {@link #onFailure} or {@link #release}.
+     */
+    public boolean tryAcquire() {
+        State current = state;
+        if (current == State.CLOSED) return true;
+        if (current == State.OPEN) {
+            if (System.nanoTime() - openUntil < 0) return false;
+            synchronized (this) {
+                if (state == State.OPEN) transition(State.HALF_OPEN);
+            }
+        }
+        if (probes.getAndDecrement() > 0) return true;
+        probes.incrementAndGet();
+        return false;
+    }
+
+    public void onSuccess(long durationNanos) {
+        record(false, durationNanos >= slowCallNanos);
+    }
+
+    public void onFailure(long durationNanos) {
+        record(true, durationNanos >= slowCallNanos);
+    }
+
+    /** Gives back a permit whose call says nothing about the provider (e.g. invalid input). */
+    public void release() {
+        if (state == State.HALF_OPEN) probes.incrementAndGet();
+    }
+
+    private synchronized void record(boolean failed, boolean slow) {
+        switch (state) {
+            case CLOSED -> {
+                if (calls == windowSize) {
+                    byte evicted = window[head];
+                    if ((evicted & FAILED) != 0) failures--;
+                    if ((evicted & SLOW) != 0) slowCalls--;
+                } else {
+                    calls++;
+                }
+                window[head] = (byte) ((failed ? FAILED : 0) | (slow ? SLOW : 0));
+                head = (head + 1) % windowSize;
+                if (failed) failures++;
+                if (slow) slowCalls++;
+                if (calls >= minimumCalls && tripped(failures, slowCalls, calls)) transition(State.OPEN);
+            }
+            case HALF_OPEN -> {
+                probeCalls++;
+                if (failed) probeFailures++;
+                if (slow) probeSlowCalls++;
+                // reopen as soon as the probes can no longer come in under the threshold
+                if (tripped(probeFailures, probeSlowCalls, halfOpenCalls)) {
+                    transition(State.OPEN);
+                } else if (probeCalls >= halfOpenCalls) {
+                    transition(State.CLOSED);
+                }
+            }
+            case OPEN -> {
+                // a call that started before the breaker opened; nothing left to decide
+            }
+        }
+    }
+
+    private boolean tripped(int failed, int slow, int total) {
+        return failed >= failureRateThreshold * total || slow >= slowCallRateThreshold * total;
+    }
+
+    private void transition(State to) {
+        State from = state;
+        switch (to) {
+            case OPEN -> openUntil = System.nanoTime() + openNanos;
+            case HALF_OPEN -> {
+                probeCalls = probeFailures = probeSlowCalls = 0;
+                probes.set(halfOpenCalls);
+            }
+            case CLOSED -> {
+                head = calls = failures = slowCalls = 0;
+                probes.set(0);
+            }
+        }
+        state = to;
+        if (listener != null) listener.onTransition(from, to);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.notification_service.resilience;
+
+import com.example.notification_service.model.Channel;
+
+/**
+ * Thrown instead of calling a provider whose circuit breaker is open.
+ */
+public class CircuitOpenException extends RuntimeException {
+
+    public CircuitOpenException(Channel channel) {
+        // no stack trace: this is the fail-fast path and is thrown for every call while open
+        super("Circuit open for " + channel, null, false, false);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.notification_service.resilience;
+
+import com.example.notification_service.model.Channel;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Moves each provider's concurrency limit (its {@link Bulkhead} in the
+ * {@link ProviderGuard}) with an {@link AdaptiveLimit}, once per interval, from the
+ * latency and outcome of the calls made in that interval and the consumer lag. The
+ * configured {@code notification.bulkhead.*.max-concurrent} is where each limit starts;
+ * it then moves between min-limit and the channel's max-limit.
+ * <p>
+ * Only this scheduled step does any arithmetic; provider calls just feed the bulkhead's
+ * counters. Note that deliveries from the consumer are also bounded by
+ * {@code notification.dispatch.workers}, so a limit above that only matters for retries
+ * and campaigns.
+ */
+@Component
+@Slf4j
+public class ConcurrencyController {
+
+    // kafka client metric bound by KafkaConsumerConfig: the largest lag of any assigned partition
+    static final String LAG_METRIC = "kafka.consumer.fetch.manager.records.lag.max";
+
+    private final ProviderGuard providerGuard;
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final long lagThreshold;
+    private final Map<Channel, AdaptiveLimit> limits = new EnumMap<>(Channel.class);
+
+    public ConcurrencyController(ProviderGuard providerGuard, MeterRegistry registry,
+                                 @Value("${notification.concurrency.adaptive:true}") boolean enabled,
+                                 @Value("${notification.concurrency.min-limit:1}") int minLimit,
+                                 @Value("${notification.concurrency.whatsapp.max-limit:64}") int whatsAppMaxLimit,
+                                 @Value("${notification.concurrency.email.max-limit:16}") int emailMaxLimit,
+                                 @Value("${notification.concurrency.latency-tolerance:1.5}") double tolerance,
+                                 @Value("${notification.concurrency.backoff:0.75}") double backoff,
+                                 @Value("${notification.concurrency.overload-rate:0.05}") double overloadRate,
+                                 @Value("${notification.concurrency.lag-threshold:1000}") long lagThreshold) {
+        this.providerGuard = providerGuard;
+        this.registry = registry;
+        this.enabled = enabled && providerGuard.isEnabled();
+        this.lagThreshold = lagThreshold;
+        limits.put(Channel.WHATSAPP, new AdaptiveLimit(minLimit, whatsAppMaxLimit, tolerance, backoff, overloadRate));
+        limits.put(Channel.EMAIL, new AdaptiveLimit(minLimit, emailMaxLimit, tolerance, backoff, overloadRate));
+    }
+
+    @Scheduled(fixedDelayString = "${notification.concurrency.interval:1s}")
+    public void adjust() {
+        if (!enabled) return;
+        boolean backlog = lag() > lagThreshold;
+        for (Channel channel : Channel.values()) {
+            Bulkhead bulkhead = providerGuard.bulkhead(channel);
+            int limit = bulkhead.limit();
+            int next = limits.get(channel).next(limit, bulkhead.drain(), backlog);
+            if (next == limit) continue;
+            bulkhead.setLimit(next);
+            log.debug("{} concurrency limit {} -> {} (baseline latency {} ms, backlog {})", channel, limit, next,
+                    String.format("%.1f", limits.get(channel).baselineNanos() / 1e6), backlog);
+        }
+    }
+
+    // 0 until the consumer has fetched, or when the client metrics are not bound
+    private double lag() {
+        double lag = 0;
+        for (Gauge gauge : registry.find(LAG_METRIC).gauges()) {
+            double value = gauge.value();
+            if (!Double.isNaN(value)) lag = Math.max(lag, value);
+        }
+        return lag;
+    }
+}
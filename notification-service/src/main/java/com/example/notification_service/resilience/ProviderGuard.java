@@ -0,0 +1,149 @@
+package com.example.notification_service.resilience;
+
+import com.example.notification_service.model.Channel;
+import com.example.notification_service.ratelimit.ProviderThrottling;
+import com.example.notification_service.ratelimit.ThrottledException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * One {@link CircuitBreaker} and one {@link Bulkhead} per channel around the provider
+ * call. A dead provider is refused in microseconds instead of costing a full timeout per
+ * send, and a slow one can only hold its own bulkhead, never the other channel's.
+ * <p>
+ * Provider 429/421-style throttling, local throttling and {@link ProviderRejection permanent
+ * rejections} such as invalid input do not count as failures: they say nothing about
+ * whether the provider is up.
+ */
+@Component
+@Slf4j
+public class ProviderGuard {
+
+    private final boolean enabled;
+    private final Map<Channel, CircuitBreaker> breakers = new EnumMap<>(Channel.class);
+    private final Map<Channel, Bulkhead> bulkheads = new EnumMap<>(Channel.class);
+
+    public ProviderGuard(@Value("${notification.breaker.enabled:true}") boolean enabled,
+                         @Value("${notification.breaker.window-size:50}") int windowSize,
+                         @Value("${notification.breaker.minimum-calls:20}") int minimumCalls,
+                         @Value("${notification.breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+                         @Value("${notification.breaker.slow-call-duration:5s}") Duration slowCallDuration,
+                         @Value("${notification.breaker.slow-call-rate-threshold:0.8}") double slowCallRateThreshold,
+                         @Value("${notification.breaker.open-duration:30s}") Duration openDuration,
+                         @Value("${notification.breaker.half-open-calls:5}") int halfOpenCalls,
+                         @Value("${notification.bulkhead.max-wait:1s}") Duration bulkheadMaxWait,
+                         @Value("${notification.bulkhead.whatsapp.max-concurrent:32}") int whatsAppConcurrency,
+                         @Value("${notification.bulkhead.email.max-concurrent:8}") int emailConcurrency) {
+        this.enabled = enabled;
+        for (Channel channel : Channel.values()) {
+            breakers.put(channel, new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold, slowCallDuration,
+                    slowCallRateThreshold, openDuration, halfOpenCalls, (from, to) -> onTransition(channel, from, to)));
+        }
+        bulkheads.put(Channel.WHATSAPP, new Bulkhead(whatsAppConcurrency, bulkheadMaxWait));
+        bulkheads.put(Channel.EMAIL, new Bulkhead(emailConcurrency, bulkheadMaxWait));
+    }
+
+    /**
+     * Fails fast while the channel's breaker is open, before any rate-limit wait or
+     * message building that precedes the call.
+     *
+     * @throws CircuitOpenException when the breaker is open
+     */
+    public void checkCircuit(Channel channel) {
+        if (enabled && !breakers.get(channel).allowsCalls()) throw new CircuitOpenException(channel);
+    }
+
+    /**
+     * Runs a provider call inside the channel's breaker and bulkhead.
+     *
+     * @throws CircuitOpenException   when the breaker is open or out of half-open probes
+     * @throws BulkheadFullException when the channel has no free slot within the max wait
+     */
+    public <T> T call(Channel channel, Supplier<T> providerCall) {
+        return call(channel, 1, providerCall);
+    }
+
+    /**
+     * Runs a call that sends {@code messages} messages, e.g. a micro-batch over one SMTP
+     * connection. The breaker and bulkhead see the time per message, so a large batch is
+     * not taken for a slow provider.
+     */
+    public <T> T call(Channel channel, int messages, Supplier<T> providerCall) {
+        if (!enabled) return providerCall.get();
+        CircuitBreaker breaker = breakers.get(channel);
+        if (!breaker.tryAcquire()) throw new CircuitOpenException(channel);
+        Bulkhead bulkhead = bulkheads.get(channel);
+        if (!bulkhead.tryAcquire()) {
+            breaker.release();
+            throw new BulkheadFullException(channel);
+        }
+        // timed from here: waiting for a bulkhead slot is our queue, not the provider being slow
+        long start = System.nanoTime();
+        int calls = Math.max(1, messages);
+        boolean success = false;
+        boolean overloaded = false;
+        try {
+            T result = providerCall.get();
+            success = true;
+            breaker.onSuccess((System.nanoTime() - start) / calls);
+            return result;
+        } catch (RuntimeException e) {
+            if (countsAsFailure(e)) {
+                overloaded = true;
+                breaker.onFailure((System.nanoTime() - start) / calls);
+            } else {
+                // provider throttling is not an outage, but it does say we are sending too much at once
+                overloaded = ProviderThrottling.isThrottled(e);
+                breaker.release();
+            }
+            throw e;
+        } finally {
+            bulkhead.release((System.nanoTime() - start) / calls, success, overloaded);
+        }
+    }
+
+    public void call(Channel channel, Runnable providerCall) {
+        call(channel, () -> {
+            providerCall.run();
+            return null;
+        });
+    }
+
+    public CircuitBreaker.State state(Channel channel) {
+        return breakers.get(channel).state();
+    }
+
+    public int inUse(Channel channel) {
+        return bulkheads.get(channel).inUse();
+    }
+
+    /** The channel's concurrency limit, moved by the {@link ConcurrencyController}. */
+    public Bulkhead bulkhead(Channel channel) {
+        return bulkheads.get(channel);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private static boolean countsAsFailure(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof ThrottledException) return false;
+        }
+        return !ProviderThrottling.isThrottled(error) && !ProviderRejection.isPermanent(error);
+    }
+
+    private static void onTransition(Channel channel, CircuitBreaker.State from, CircuitBreaker.State to) {
+        if (to == CircuitBreaker.State.OPEN) {
+            log.warn("{} circuit {} -> OPEN: provider calls fail fast until the next probe", channel, from);
+        } else {
+            log.info("{} circuit {} -> {}", channel, from, to);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.notification_service.resilience;
+
+import com.example.notification_service.model.Channel;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code /actuator/health} component {@code providers}: breaker state and busy bulkhead
+ * slots per channel. One open breaker leaves the service UP, as the other channel and
+ * the spool still take deliveries. When every provider is open it reports
+ * OUT_OF_SERVICE rather than DOWN: a restart cannot fix a provider outage, so the
+ * liveness group leaves this component out (see application.properties).
+ */
+@Component("providers")
+@RequiredArgsConstructor
+public class ProviderHealthIndicator implements HealthIndicator {
+
+    private final ProviderGuard guard;
+
+    @Override
+    public Health health() {
+        boolean anyAvailable = false;
+        Health.Builder health = Health.unknown();
+        for (Channel channel : Channel.values()) {
+            CircuitBreaker.State state = guard.state(channel);
+            anyAvailable |= state != CircuitBreaker.State.OPEN;
+            health.withDetail(channel.name().toLowerCase(), Map.of("circuit", state.name(), "inFlight", guard.inUse(channel)));
+        }
+        return (anyAvailable ? health.up() : health.outOfService()).build();
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.notification_service.resilience;
+
+import com.example.notification_service.whatsapp.WhatsAppSendException;
+import com.twilio.exception.ApiException;
+import jakarta.mail.MessagingException;
+
+/**
+ * Recognises failures that will fail the same way on every attempt, in an exception
+ * chain: invalid input, Twilio HTTP 4xx other than 408 and 429 (bad number, template
+ * not approved, outside the session window) and permanent SMTP replies (5xx, e.g. 550
+ * mailbox unavailable). They go to the dead-letter topic instead of being retried or
+ * spooled; they also say the provider is up, so they do not count against its breaker.
+ */
+public final class ProviderRejection {
+
+    private ProviderRejection() {
+    }
+
+    public static boolean isPermanent(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof IllegalArgumentException) return true;
+            if (t instanceof ApiException api && api.getStatusCode() != null && isClientError(api.getStatusCode())) {
+                return true;
+            }
+            if (t instanceof WhatsAppSendException http && isClientError(http.getStatusCode())) return true;
+            if (t instanceof MessagingException && isPermanentSmtpReply(t.getMessage())) return true;
+        }
+        return false;
+    }
+
+    // 408 and 429 ask to try again; 5xx is the provider failing, not the request
+    private static boolean isClientError(int status) {
+        return status >= 400 && status < 500 && status != 408 && status != 429;
+    }
+
+    // SMTP exceptions carry the server reply, which starts with the three-digit code
+    private static boolean isPermanentSmtpReply(String reply) {
+        if (reply == null || reply.length() < 3 || reply.charAt(0) != '5') return false;
+        if (reply.length() > 3 && Character.isDigit(reply.charAt(3))) return false;
+        return Character.isDigit(reply.charAt(1)) && Character.isDigit(reply.charAt(2));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.notification_service.retry;
+
+import com.example.notification_service.model.Channel;
+import com.example.notification_service.model.NotificationEvent;
+import com.example.notification_service.resilience.CircuitBreaker;
+import com.example.notification_service.resilience.CircuitOpenException;
+import com.example.notification_service.resilience.ProviderGuard;
+import com.example.notification_service.resilience.ProviderRejection;
+import com.example.notification_service.spool.DeliverySpool;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Takes a failed delivery for one channel off the hot path by republishing the event to
+ * the next retry tier, or to the dead-letter topic once the tiers are used up. The
+ * record carries the channel, so a retry only resends the channel that failed.
+ * <p>
+ * A retryable failure that has used up the tiers, or that cannot be published, goes to
+ * the local {@link DeliverySpool} instead of the dead-letter topic, so a provider outage
+ * longer than the tiers does not lose it. While a channel's circuit is open its provider
+ * is taken to be down, and new failures join the spool directly. A
+ * {@link ProviderRejection permanent rejection} is dead-lettered straight away.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class DeliveryFailureHandler {
+
+    private final KafkaTemplate<String, NotificationEvent> kafkaTemplate;
+    private final RetryTopics retryTopics;
+    private final DeliverySpool spool;
+    private final ProviderGuard providerGuard;
+
+    @Value("${notification.retry.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notification.retry.jitter:0.2}")
+    private double jitter;
+
+    /**
+     * @param attempt the attempt that just failed: 0 for the first delivery, n for retry tier n
+     */
+    public void onFailure(Channel channel, NotificationEvent event, int attempt, Throwable cause) {
+        if (!enabled) return;
+
+        int next = attempt + 1;
+        boolean retryable = !ProviderRejection.isPermanent(cause);
+        boolean providerDown = cause instanceof CircuitOpenException
+                || providerGuard.state(channel) == CircuitBreaker.State.OPEN;
+        if (retryable && (next > retryTopics.tierCount() || providerDown) && spooled(channel, event)) return;
+        String topic = retryable && next <= retryTopics.tierCount() ? retryTopics.topic(next) : RetryTopics.DLT;
+        publish(channel, event, next, cause, topic);
+    }
+
+    /**
+     * Sends a delivery to the dead-letter topic whatever the cause, e.g. a spooled one
+     * that kept failing on replay.
+     */
+    public void deadLetter(Channel channel, NotificationEvent event, int attempt, Throwable cause) {
+        if (!enabled) return;
+        publish(channel, event, attempt + 1, cause, RetryTopics.DLT);
+    }
+
+    private void publish(Channel channel, NotificationEvent event, int next, Throwable cause, String topic) {
+        boolean retryable = !RetryTopics.DLT.equals(topic);
+        ProducerRecord<String, NotificationEvent> record = new ProducerRecord<>(topic, event.getEventId(), event);
+        record.headers().add(RetryTopics.CHANNEL_HEADER, channel.name().getBytes(StandardCharsets.UTF_8));
+        record.headers().add(RetryTopics.ATTEMPT_HEADER, ByteBuffer.allocate(4).putInt(next).array());
+        if (retryable) {
+            record.headers().add(RetryTopics.DUE_HEADER, ByteBuffer.allocate(8).putLong(dueAt(next)).array());
+        }
+        String error = cause == null ? "unknown" : String.valueOf(cause.getMessage());
+        record.headers().add(RetryTopics.ERROR_HEADER, error.getBytes(StandardCharsets.UTF_8));
+
+        kafkaTemplate.send(record).whenComplete((result, e) -> {
+            if (e != null && retryable && spooled(channel, event)) {
+                log.warn("Could not publish {} {} for event {} to {}, spooled instead: {}", event.getEventType(), channel,
+                        event.getEventId(), topic, e.getMessage());
+            } else if (e != null) {
+                log.error("Could not publish {} {} for event {} to {}: {}", event.getEventType(), channel,
+                        event.getEventId(), topic, e.getMessage());
+            } else if (RetryTopics.DLT.equals(topic)) {
+                log.error("{} {} for event {} dead-lettered after {} attempts: {}", event.getEventType(), channel,
+                        event.getEventId(), next, error);
+            } else {
+                log.debug("{} {} for event {} scheduled for retry {}", event.getEventType(), channel, event.getEventId(), next);
+            }
+        });
+    }
+
+    private boolean spooled(Channel channel, NotificationEvent event) {
+        if (!spool.append(channel, event)) return false;
+        log.warn("{} {} for event {} spooled until the provider recovers", event.getEventType(), channel, event.getEventId());
+        return true;
+    }
+
+    // tier delay with +/- jitter so a burst of failures does not come back as a burst
+    private long dueAt(int attempt) {
+        long delay = retryTopics.delay(attempt).toMillis();
+        double factor = 1 + jitter * (ThreadLocalRandom.current().nextDouble() * 2 - 1);
+        return System.currentTimeMillis() + (long) (delay * factor);
+    }
+}
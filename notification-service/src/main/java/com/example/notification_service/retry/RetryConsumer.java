@@ -0,0 +1,85 @@
+package com.example.notification_service.retry;
+
+import com.example.notification_service.dispatch.ChannelDeliverer;
+import com.example.notification_service.model.Channel;
+import com.example.notification_service.model.NotificationEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Consumes the retry tiers. Each tier has its own container: a record that is not due
+ * yet is nack'ed with the remaining delay, which pauses that tier's partition without
+ * sleeping the thread and without touching the main {@code notifications} topic.
+ * Records within a tier share one delay, so the head of a partition is always due first.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class RetryConsumer {
+
+    private final ChannelDeliverer channelDeliverer;
+    private final DeliveryFailureHandler failureHandler;
+
+    @KafkaListener(id = "notification-retry-1", topics = RetryTopics.TIER_1, groupId = "notification-service-retry",
+            containerFactory = "retryKafkaListenerContainerFactory")
+    public void retryTier1(ConsumerRecord<String, NotificationEvent> record, Acknowledgment ack) {
+        retry(record, ack);
+    }
+
+    @KafkaListener(id = "notification-retry-2", topics = RetryTopics.TIER_2, groupId = "notification-service-retry",
+            containerFactory = "retryKafkaListenerContainerFactory")
+    public void retryTier2(ConsumerRecord<String, NotificationEvent> record, Acknowledgment ack) {
+        retry(record, ack);
+    }
+
+    @KafkaListener(id = "notification-retry-3", topics = RetryTopics.TIER_3, groupId = "notification-service-retry",
+            containerFactory = "retryKafkaListenerContainerFactory")
+    public void retryTier3(ConsumerRecord<String, NotificationEvent> record, Acknowledgment ack) {
+        retry(record, ack);
+    }
+
+    private void retry(ConsumerRecord<String, NotificationEvent> record, Acknowledgment ack) {
+        NotificationEvent event = record.value();
+        Header channelHeader = record.headers().lastHeader(RetryTopics.CHANNEL_HEADER);
+        if (event == null || channelHeader == null) {
+            log.error("Dropping malformed retry record at {}-{}@{}", record.topic(), record.partition(), record.offset());
+            ack.acknowledge();
+            return;
+        }
+
+        long wait = longHeader(record, RetryTopics.DUE_HEADER) - System.currentTimeMillis();
+        if (wait > 0) {
+            ack.nack(Duration.ofMillis(wait));
+            return;
+        }
+
+        Channel channel = Channel.valueOf(new String(channelHeader.value(), StandardCharsets.UTF_8));
+        int attempt = (int) intHeader(record, RetryTopics.ATTEMPT_HEADER);
+        try {
+            channelDeliverer.deliver(channel, event);
+            log.debug("{} {} for event {} delivered on retry {}", event.getEventType(), channel, event.getEventId(), attempt);
+        } catch (Exception e) {
+            failureHandler.onFailure(channel, event, attempt, e);
+        }
+        ack.acknowledge();
+    }
+
+    private static long longHeader(ConsumerRecord<?, ?> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header == null ? 0 : ByteBuffer.wrap(header.value()).getLong();
+    }
+
+    private static long intHeader(ConsumerRecord<?, ?> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header == null ? 1 : ByteBuffer.wrap(header.value()).getInt();
+    }
+}
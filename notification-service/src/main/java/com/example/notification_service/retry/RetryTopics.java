@@ -0,0 +1,49 @@
+package com.example.notification_service.retry;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Names and delays of the retry tiers. A failed channel delivery goes to tier 1, then
+ * tier 2 and tier 3 with growing delays, and finally to the dead-letter topic.
+ */
+@Component
+public class RetryTopics {
+
+    public static final String TIER_1 = "notifications.retry.1";
+    public static final String TIER_2 = "notifications.retry.2";
+    public static final String TIER_3 = "notifications.retry.3";
+    public static final String DLT = "notifications.DLT";
+
+    // record headers carried on retry and dead-letter records
+    public static final String CHANNEL_HEADER = "x-notification-channel";
+    public static final String ATTEMPT_HEADER = "x-notification-attempt";
+    public static final String DUE_HEADER = "x-notification-due";
+    public static final String ERROR_HEADER = "x-notification-error";
+
+    private static final List<String> TIERS = List.of(TIER_1, TIER_2, TIER_3);
+
+    private final List<Duration> delays;
+
+    public RetryTopics(@Value("${notification.retry.tier1-delay:10s}") Duration tier1,
+                       @Value("${notification.retry.tier2-delay:1m}") Duration tier2,
+                       @Value("${notification.retry.tier3-delay:10m}") Duration tier3) {
+        this.delays = List.of(tier1, tier2, tier3);
+    }
+
+    public int tierCount() {
+        return TIERS.size();
+    }
+
+    /** Topic for the given retry attempt (1-based). */
+    public String topic(int attempt) {
+        return TIERS.get(attempt - 1);
+    }
+
+    public Duration delay(int attempt) {
+        return delays.get(attempt - 1);
+    }
+}
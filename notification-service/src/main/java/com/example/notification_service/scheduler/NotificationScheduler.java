@@ -0,0 +1,164 @@
+package com.example.notification_service.scheduler;
+
+import com.example.notification_service.campaign.CampaignEngine;
+import com.example.notification_service.dispatch.ChannelFanOut;
+import com.example.notification_service.dispatch.DispatchEngine;
+import com.example.notification_service.dispatch.Lane;
+import com.example.notification_service.model.NotificationEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * "Send at" support. An event whose {@code sendAt} is in the future is written to the
+ * {@link ScheduleStore} and a timer for it goes on a {@link TimingWheel}; the consumer
+ * then moves on, so the Kafka offset is committed and no thread waits for the event.
+ * One background thread drives the wheel; due events are handed to the dispatch engine
+ * like freshly consumed ones by a second thread, so a full dispatch queue delays those
+ * events but never the wheel's other timers. Timers are rebuilt from the store on
+ * startup, and events that came due while the service was down go out right away.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class NotificationScheduler {
+
+    private final ChannelFanOut channelFanOut;
+    private final DispatchEngine dispatchEngine;
+    private final CampaignEngine campaigns;
+    private final JsonMapper json;
+
+    @Value("${notification.scheduler.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notification.scheduler.dir:data/schedule}")
+    private Path directory;
+
+    @Value("${notification.scheduler.zone:Asia/Colombo}")
+    private ZoneId zone;
+
+    @Value("${notification.scheduler.tick:100ms}")
+    private Duration tick;
+
+    @Value("${notification.scheduler.wheel-size:64}")
+    private int wheelSize;
+
+    @Value("${notification.scheduler.segment-size:16MB}")
+    private DataSize segmentSize;
+
+    @Value("${notification.scheduler.segment-entries:65536}")
+    private int segmentEntries;
+
+    private ScheduleStore store;
+    private TimingWheel wheel;
+    private Thread driver;
+    // blocks on the dispatch queues in place of the wheel thread; holds positions only, the events stay on disk
+    private ExecutorService releaser;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) return;
+        wheel = new TimingWheel(tick.toMillis(), wheelSize, System.currentTimeMillis());
+        releaser = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("notification-scheduler-release").factory());
+        store = new ScheduleStore(directory, (int) segmentSize.toBytes(), segmentEntries, 0.25, json);
+        List<Long> overdue = new ArrayList<>();
+        store.open((position, event) -> {
+            if (event != null && !wheel.add(deadline(event), position)) overdue.add(position);
+        });
+        if (store.pending() > 0) {
+            log.info("Scheduler restored {} pending events ({} overdue, released now)", store.pending(), overdue.size());
+        }
+        overdue.forEach(this::due);
+
+        running = true;
+        driver = Thread.ofPlatform().name("notification-scheduler").daemon().start(this::drive);
+    }
+
+    @PreDestroy
+    public void stop() throws Exception {
+        if (!enabled) return;
+        running = false;
+        driver.interrupt();
+        driver.join(Duration.ofSeconds(5));
+        // releases still queued are in the store and go out after the restart
+        releaser.shutdownNow();
+        releaser.awaitTermination(5, TimeUnit.SECONDS);
+        store.close();
+    }
+
+    /**
+     * Takes over an event whose {@code sendAt} is in the future. Returns false when the
+     * event is due now (or has no {@code sendAt}) and should be delivered by the caller;
+     * also when it could not be stored, as sending early beats losing it.
+     */
+    public boolean schedule(NotificationEvent event) {
+        if (!enabled || event.getSendAt() == null) return false;
+        long deadline = deadline(event);
+        if (deadline < System.currentTimeMillis() + tick.toMillis()) return false;
+        try {
+            long position = store.append(event);
+            if (!wheel.add(deadline, position)) due(position);
+            return true;
+        } catch (IOException e) {
+            log.error("Could not schedule event {} for {}, sending now: {}", event.getEventId(), event.getSendAt(), e.getMessage());
+            return false;
+        }
+    }
+
+    public int pending() {
+        return enabled ? wheel.size() : 0;
+    }
+
+    private void drive() {
+        while (running) {
+            try {
+                wheel.advance(tick.toMillis() * 2, this::due);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.error("Scheduler tick failed", e);
+            }
+        }
+    }
+
+    private void due(long position) {
+        releaser.execute(() -> release(position));
+    }
+
+    private void release(long position) {
+        NotificationEvent event = store.read(position);
+        if (event == null) {
+            store.ack(position);
+            return;
+        }
+        // acknowledged only after the fan-out, so a crash in between replays it (deduplication
+        // keeps that from sending twice)
+        dispatchEngine.submit(DispatchEngine.recipientKey(event), Lane.of(event.getEventType()), () -> {
+            try {
+                if (!campaigns.launch(event)) channelFanOut.fanOut(event, System.nanoTime());
+            } finally {
+                store.ack(position);
+            }
+        });
+    }
+
+    private long deadline(NotificationEvent event) {
+        return event.getSendAt().atZone(zone).toInstant().toEpochMilli();
+    }
+}
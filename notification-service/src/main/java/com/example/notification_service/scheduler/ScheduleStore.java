@@ -0,0 +1,158 @@
+package com.example.notification_service.scheduler;
+
+import com.example.notification_service.model.NotificationEvent;
+import com.example.notification_service.spool.SpoolSegment;
+import lombok.extern.slf4j.Slf4j;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Durable home of scheduled events, in the same memory-mapped segment format as the
+ * delivery spool. The timing wheel holds only a {@code long} position per event
+ * ({@code segment id << 32 | index}); the event is read back when its timer fires and
+ * acknowledged once it has been handed to the dispatch path.
+ * <p>
+ * Far-future events would pin otherwise finished segments, so on open the live entries
+ * of sparse segments are copied forward before the positions are handed out.
+ */
+@Slf4j
+class ScheduleStore implements Closeable {
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int segmentEntries;
+    private final double compactThreshold;
+    private final Map<Long, SpoolSegment> segments = new TreeMap<>();
+    private final JsonMapper json;
+    private SpoolSegment active;
+    private long nextId;
+    private int pending;
+
+    ScheduleStore(Path directory, int segmentSize, int segmentEntries, double compactThreshold, JsonMapper json) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.segmentEntries = segmentEntries;
+        this.compactThreshold = compactThreshold;
+        this.json = json;
+    }
+
+    /** Reopens the store and reports every event still waiting, with its position. */
+    synchronized void open(BiConsumer<Long, NotificationEvent> waiting) throws IOException {
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(p -> p.getFileName().toString().endsWith(SpoolSegment.SUFFIX)).sorted().toList();
+        }
+        List<SpoolSegment> reopened = new ArrayList<>();
+        for (Path file : files) {
+            SpoolSegment segment = SpoolSegment.open(directory, SpoolSegment.idOf(file));
+            nextId = Math.max(nextId, segment.id + 1);
+            if (segment.live() == 0) {
+                segment.delete();
+            } else {
+                reopened.add(segment);
+            }
+        }
+        roll();
+        for (SpoolSegment segment : reopened) {
+            boolean sparse = segment.live() <= segment.entries() * compactThreshold;
+            if (!sparse) segments.put(segment.id, segment);
+            for (int i = segment.firstUnacked(); i < segment.entries(); i++) {
+                if (segment.isAcked(i)) continue;
+                if (sparse) {
+                    long position = appendPayload(segment.payload(i));
+                    waiting.accept(position, read(position));
+                } else {
+                    pending++;
+                    waiting.accept(position(segment.id, i), read(segment, i));
+                }
+            }
+            if (sparse) {
+                active.force();
+                segment.delete();
+            }
+        }
+    }
+
+    /**
+     * Stores an event and returns its position. The segment is forced to disk first: the
+     * caller commits the event's Kafka offset as soon as this returns.
+     */
+    synchronized long append(NotificationEvent event) throws IOException {
+        return appendPayload(json.writeValueAsBytes(event));
+    }
+
+    synchronized NotificationEvent read(long position) {
+        SpoolSegment segment = segments.get(position >>> 32);
+        return segment == null ? null : read(segment, (int) position);
+    }
+
+    synchronized void ack(long position) {
+        SpoolSegment segment = segments.get(position >>> 32);
+        if (segment == null || !segment.ack((int) position)) return;
+        pending--;
+        if (segment.live() == 0 && segment != active) {
+            segments.remove(segment.id);
+            try {
+                segment.delete();
+            } catch (IOException e) {
+                log.warn("Could not delete schedule segment {}: {}", segment.id, e.getMessage());
+            }
+        }
+    }
+
+    synchronized int pending() {
+        return pending;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (SpoolSegment segment : segments.values()) segment.close();
+        segments.clear();
+        active = null;
+    }
+
+    private long appendPayload(byte[] payload) throws IOException {
+        if (SpoolSegment.HEADER + payload.length > segmentSize) throw new IOException("Event too large to schedule");
+        if (!active.append((byte) 0, payload)) {
+            roll();
+            active.append((byte) 0, payload);
+        }
+        active.force();
+        pending++;
+        return position(active.id, active.entries() - 1);
+    }
+
+    private NotificationEvent read(SpoolSegment segment, int index) {
+        try {
+            return json.readValue(segment.payload(index), NotificationEvent.class);
+        } catch (RuntimeException e) {
+            log.error("Dropping unreadable scheduled event {}/{}: {}", segment.id, index, e.getMessage());
+            if (segment.ack(index)) pending--;
+            return null;
+        }
+    }
+
+    private void roll() throws IOException {
+        if (active != null && active.live() == 0) {
+            segments.remove(active.id);
+            active.delete();
+        }
+        active = SpoolSegment.create(directory, nextId++, segmentSize, segmentEntries);
+        segments.put(active.id, active);
+    }
+
+    private static long position(long segment, int index) {
+        return segment << 32 | index;
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.notification_service.scheduler;
+
+import java.util.Arrays;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+
+/**
+ * Hierarchical timing wheel over epoch-millisecond deadlines, each carrying a {@code long}
+ * payload.
+ * <p>
+ * Level 0 has {@code wheelSize} buckets of {@code tickMs}; each level above has buckets
+ * as wide as the whole level below, and levels are added only when a deadline needs
+ * them. Adding a timer is O(1): it is linked into the bucket covering its deadline. Only
+ * non-empty buckets are put on a {@link DelayQueue}, so the driving thread wakes once per
+ * bucket that comes due, never per empty tick; an expiring upper-level bucket is flushed
+ * and its timers fall down to finer levels or fire. A timer is one small node (deadline,
+ * payload and a link), so millions of them fit comfortably.
+ * <p>
+ * One lock guards the links; it is held for a few pointer updates per timer.
+ */
+public class TimingWheel {
+
+    private final DelayQueue<Bucket> queue = new DelayQueue<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Level root;
+    private int size;
+
+    public TimingWheel(long tickMs, int wheelSize, long startMs) {
+        this.root = new Level(tickMs, wheelSize, startMs);
+    }
+
+    /**
+     * Adds a timer. Returns false, and adds nothing, when the deadline falls within the
+     * current tick; the caller should act on it right away. Timers fire on the tick their
+     * deadline falls in, so at most one tick early.
+     */
+    public boolean add(long deadlineMs, long payload) {
+        lock.lock();
+        try {
+            if (!root.add(new Timer(deadlineMs, payload))) return false;
+            size++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits up to {@code timeoutMs} for a bucket to come due, then hands every expired
+     * payload to {@code expired}. Returns the number of timers that fired.
+     */
+    public int advance(long timeoutMs, LongConsumer expired) throws InterruptedException {
+        Bucket bucket = queue.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        if (bucket == null) return 0;
+        long[] due = new long[16];
+        int fired = 0;
+        lock.lock();
+        try {
+            while (bucket != null) {
+                root.advance(bucket.expiration);
+                Timer timer = bucket.takeAll();
+                while (timer != null) {
+                    Timer next = timer.next;
+                    timer.next = null;
+                    if (!root.add(timer)) {
+                        if (fired == due.length) due = Arrays.copyOf(due, fired * 2);
+                        due[fired++] = timer.payload;
+                    }
+                    timer = next;
+                }
+                bucket = queue.poll();
+            }
+            size -= fired;
+        } finally {
+            lock.unlock();
+        }
+        // outside the lock: the callback may block, and adds must not wait for it
+        for (int i = 0; i < fired; i++) expired.accept(due[i]);
+        return fired;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Timer {
+        final long deadline;
+        final long payload;
+        Timer next;
+
+        Timer(long deadline, long payload) {
+            this.deadline = deadline;
+            this.payload = payload;
+        }
+    }
+
+    private static final class Bucket implements Delayed {
+        private Timer head;
+        private volatile long expiration = -1;
+
+        void add(Timer timer) {
+            timer.next = head;
+            head = timer;
+        }
+
+        Timer takeAll() {
+            Timer all = head;
+            head = null;
+            expiration = -1;
+            return all;
+        }
+
+        /** Returns true when the bucket has a new expiration and must be queued again. */
+        boolean expireAt(long expiration) {
+            if (this.expiration == expiration) return false;
+            this.expiration = expiration;
+            return true;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(expiration - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(expiration, ((Bucket) other).expiration);
+        }
+    }
+
+    private final class Level {
+        final long tickMs;
+        final int wheelSize;
+        final long interval;
+        final Bucket[] buckets;
+        long currentTime;
+        Level overflow;
+
+        Level(long tickMs, int wheelSize, long startMs) {
+            this.tickMs = tickMs;
+            this.wheelSize = wheelSize;
+            this.interval = tickMs * wheelSize;
+            this.buckets = new Bucket[wheelSize];
+            for (int i = 0; i < wheelSize; i++) buckets[i] = new Bucket();
+            this.currentTime = startMs - startMs % tickMs;
+        }
+
+        boolean add(Timer timer) {
+            if (timer.deadline < currentTime + tickMs) return false;
+            if (timer.deadline < currentTime + interval) {
+                long virtualId = timer.deadline / tickMs;
+                Bucket bucket = buckets[(int) (virtualId % wheelSize)];
+                bucket.add(timer);
+                if (bucket.expireAt(virtualId * tickMs)) queue.offer(bucket);
+                return true;
+            }
+            if (overflow == null) overflow = new Level(interval, wheelSize, currentTime);
+            return overflow.add(timer);
+        }
+
+        void advance(long time) {
+            if (time < currentTime + tickMs) return;
+            currentTime = time - time % tickMs;
+            if (overflow != null) overflow.advance(currentTime);
+        }
+    }
+}
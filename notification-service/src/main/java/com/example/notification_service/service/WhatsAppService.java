@@ -1,19 +1,39 @@
 package com.example.notification_service.service;
 
-import com.twilio.Twilio;
-import com.twilio.rest.api.v2010.account.Message;
-import com.twilio.type.PhoneNumber;
+import com.example.notification_service.logging.DeliveryLog;
+import com.example.notification_service.logging.Masking;
+import com.example.notification_service.model.Channel;
+import com.example.notification_service.phone.PhoneNormalizer;
+import com.example.notification_service.phone.PhoneNumber;
+import com.example.notification_service.template.CompiledTemplate;
+import com.example.notification_service.template.TemplateEngine;
+import com.example.notification_service.whatsapp.WhatsAppTransport;
 import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
 
 @Service
 @Slf4j
+@RequiredArgsConstructor
 public class WhatsAppService {
 
+    private static final Set<String> RECIPIENT_FIELDS = Set.of("name");
+    private static final String DIGEST_SEPARATOR = "\n\n┄┄┄┄┄┄┄┄┄┄┄┄┄┄┄┄┄┄┄┄┄┄┄┄\n\n";
+
+    private final TemplateEngine templates;
+    private final WhatsAppTransport transport;
+    private final PhoneNormalizer phones;
+    private final DeliveryLog deliveryLog;
+
     @Value("${twilio.account-sid}")
     private String accountSid;
 
@@ -38,166 +58,93 @@ public class WhatsAppService {
             return;
         }
 
-        try {
-            Twilio.init(accountSid, authToken);
-            String maskedSid = accountSid.length() > 8 ? accountSid.substring(0,4) + "..." + accountSid.substring(accountSid.length()-4) : "****";
-            log.info("Twilio initialized (accountSid={}) using fromNumber={}", maskedSid, fromNumber);
-        } catch (Exception e) {
-            log.error("Twilio initialization failed: {}", e.toString(), e);
-        }
+        String maskedSid = accountSid.length() > 8 ? accountSid.substring(0,4) + "..." + accountSid.substring(accountSid.length()-4) : "****";
+        log.info("Twilio configured (accountSid={}) using fromNumber={} via {}", maskedSid, fromNumber, transport.getClass().getSimpleName());
     }
 
     public void sendWelcome(String toPhone, String name) {
-        StringBuilder sb = new StringBuilder();
-
-        // Header
-
-        sb.append("    ✨ *WELCOME* ✨\n");
-
-        sb.append("*HIRU SANDU BRIDAL WEARE*\n");
-        sb.append("━━━━━━━━━━━━━━━━━━━━━━━━\n\n");
-
-        // Personalized greeting
-        sb.append("Dear *").append(name).append("*, 👋\n\n");
-
-        sb.append("Welcome to Hiru Sandu Bridal Weare! We are honored that you have chosen us to be part of your special celebration. 💍\n\n");
-
-        sb.append("━━━━━━━━━━━━━━━━━━━━━━━━\n");
-        sb.append("🌟 *OUR COMMITMENT TO YOU*\n");
-        sb.append("━━━━━━━━━━━━━━━━━━━━━━━━\n\n");
-
-        sb.append("✓ Premium Quality Bridal Wear\n");
-        sb.append("✓ Personalized Customer Service\n");
-        sb.append("✓ Timely Delivery & Support\n");
-        sb.append("✓ Making Your Day Memorable\n\n");
-
-        sb.append("━━━━━━━━━━━━━━━━━━━━━━━━\n\n");
-
-        sb.append("💬 *Need Assistance?*\n");
-        sb.append("Our team is here to help you with any questions or special requests.\n\n");
-
-        sb.append("Thank you for trusting us with your special moments! 🎉\n\n");
-
-        sb.append("_Warm Regards,_\n");
-        sb.append("_Hiru Sandu Bridal Weare Team_ 💐\n");
+        // validate before rendering, so a bad number is rejected without any work or network call
+        PhoneNumber to = phones.normalize(toPhone);
+        sendMessage(to, welcomeText(name));
+    }
 
-        sendMessage(toPhone, sb.toString());
+    public String welcomeText(String name) {
+        return templates.render("whatsapp/welcome.txt", Map.of("name", String.valueOf(name)));
     }
 
     public void sendPaymentConfirmation(String toPhone, Map<String, String> data) {
+        PhoneNumber to = phones.normalize(toPhone);
         try {
             if (data == null) data = java.util.Collections.emptyMap();
 
             // Extract billing details
-            String billNumber = data.getOrDefault("billNumber", data.getOrDefault("orderId", data.getOrDefault("billingCode", "-")));
-            String paymentMethod = data.getOrDefault("paymentMethod", "Cash");
-            String items = data.getOrDefault("items", "");
-            String subtotal = data.getOrDefault("subtotal", data.getOrDefault("amount", "0.00"));
-            String discount = data.getOrDefault("discount", "0");
-            String discountPercent = data.getOrDefault("discountPercent", "0");
-            String netAmount = data.getOrDefault("netAmount", data.getOrDefault("amount", "0.00"));
-            String customerName = data.getOrDefault("customerName", "Valued Customer");
-
-            StringBuilder sb = new StringBuilder();
-
-            // Header
-
-            sb.append("    💳 *PAYMENT RECEIPT* 💳\n");
-
-            sb.append("*HIRU SANDU BRIDAL WEARE*\n");
-            sb.append("━━━━━━━━━━━━━━━━━━━━━━━━\n\n");
-
-            // Bill Information
-            sb.append("📋 *Bill No:* ").append(billNumber).append("\n");
-            sb.append("👤 *Customer:* ").append(customerName).append("\n");
-            sb.append("💰 *Payment Method:* ").append(paymentMethod).append("\n");
-            sb.append("📅 *Date:* ").append(data.getOrDefault("date", java.time.LocalDate.now().toString())).append("\n\n");
-
-            sb.append("━━━━━━━━━━━━━━━━━━━━━━━━\n");
-            sb.append("📦 *ITEMS ORDERED*\n");
-            sb.append("━━━━━━━━━━━━━━━━━━━━━━━━\n\n");
-
-            // Items Table
-            if (items != null && !items.isBlank()) {
-                sb.append(items).append("\n");
-            } else {
-                sb.append("No items listed\n\n");
-            }
-
-            // Billing Summary
-            sb.append("━━━━━━━━━━━━━━━━━━━━━━━━\n");
-            sb.append("💵 *BILLING SUMMARY*\n");
-            sb.append("━━━━━━━━━━━━━━━━━━━━━━━━\n\n");
-
-            sb.append("Subtotal:        Rs. ").append(String.format("%10s", subtotal)).append("\n");
-
-            if (!discount.equals("0") && !discount.isEmpty()) {
-                sb.append("Discount (").append(discountPercent).append("%):   Rs. ").append(String.format("%10s", discount)).append("\n");
-                sb.append("                 ").append("─────────────\n");
-            }
-
-            sb.append("*NET AMOUNT:     Rs. ").append(String.format("%10s", netAmount)).append("*\n\n");
-
-            sb.append("━━━━━━━━━━━━━━━━━━━━━━━━\n\n");
-
-            // Footer
-            sb.append("✅ *Payment Confirmed Successfully!*\n\n");
-            sb.append("Thank you for choosing us for your special day! 🎉\n\n");
-            sb.append("For any queries, feel free to contact us.\n\n");
-            sb.append("_Best Regards,_\n");
-            sb.append("_Hiru Sandu Bridal Weare Team_ 💐\n");
-
-            log.info("WhatsApp payment payload for {} -> {}", toPhone, data);
-
-            sendMessage(toPhone, sb.toString());
+            Map<String, String> values = new HashMap<>();
+            values.put("billNumber", data.getOrDefault("billNumber", data.getOrDefault("orderId", data.getOrDefault("billingCode", "-"))));
+            values.put("paymentMethod", data.getOrDefault("paymentMethod", "Cash"));
+            values.put("items", data.getOrDefault("items", ""));
+            values.put("subtotal", data.getOrDefault("subtotal", data.getOrDefault("amount", "0.00")));
+            values.put("discount", data.getOrDefault("discount", "0"));
+            values.put("discountPercent", data.getOrDefault("discountPercent", "0"));
+            values.put("netAmount", data.getOrDefault("netAmount", data.getOrDefault("amount", "0.00")));
+            values.put("customerName", data.getOrDefault("customerName", "Valued Customer"));
+            values.put("date", data.getOrDefault("date", java.time.LocalDate.now().toString()));
+
+            sendMessage(to, templates.render("whatsapp/payment-confirmation.txt", values));
         } catch (Exception e) {
-            log.error("Failed to build WhatsApp message: {}", e.getMessage());
             throw e instanceof RuntimeException ? (RuntimeException) e : new RuntimeException(e);
         }
     }
 
-    private void sendMessage(String toPhone, String text) {
+    /**
+     * One recipient of a promotion; {@code data} is shared by every recipient of the same
+     * campaign variant, so the template is rendered once and only the name is filled in here.
+     */
+    public void sendPromotion(String toPhone, String name, Map<String, String> data) {
+        PhoneNumber to = phones.normalize(toPhone);
+        sendMessage(to, promotionText(name, data));
+    }
+
+    public String promotionText(String name, Map<String, String> data) {
+        CompiledTemplate template = templates.bind(
+                templates.variant("whatsapp/promotion", data.get("variant"), ".txt"), data, RECIPIENT_FIELDS);
+        return template.render(Map.of("name", Objects.requireNonNullElse(name, "")));
+    }
+
+    /**
+     * Several messages for one recipient, held back by the coalescer, as one WhatsApp
+     * message. {@code items} are the texts the messages would have had on their own.
+     */
+    public void sendDigest(String toPhone, String name, List<String> items) {
+        PhoneNumber to = phones.normalize(toPhone);
+        // digests are one-off content, kept out of the render cache
+        sendMessage(to, templates.get("whatsapp/digest.txt").render(Map.of(
+                "name", Objects.requireNonNullElse(name, ""),
+                "count", String.valueOf(items.size()),
+                "items", String.join(DIGEST_SEPARATOR, items))));
+    }
+
+    private void sendMessage(PhoneNumber toPhone, String text) {
         if ("TWILIO_NOT_CONFIGURED".equals(accountSid) || "TWILIO_NOT_CONFIGURED".equals(authToken) || accountSid == null || authToken == null) {
             log.warn("Twilio not configured - skipping actual send. To enable, set TWILIO_ACCOUNT_SID and TWILIO_AUTH_TOKEN.");
-            log.info("WhatsApp (simulated) to: {} | message: {}", toPhone, text);
+            log.info("WhatsApp (simulated) to {}", Masking.phone(toPhone.e164()));
+            deliveryLog.payload(Channel.WHATSAPP, toPhone.e164(), text);
             return;
         }
 
         try {
-            String normalized = toPhone == null ? "" : toPhone.trim();
-            normalized = normalized.replaceAll("[^+0-9]", "");
-
-            if (normalized.startsWith("0")) {
-                normalized = "+94" + normalized.substring(1);
-            } else if (normalized.startsWith("94")) {
-                normalized = "+" + normalized;
-            } else if (!normalized.startsWith("+")) {
-                if (normalized.length() == 9) {
-                    normalized = "+94" + normalized;
-                } else {
-                    normalized = "+" + normalized;
-                }
-            }
-
-            String to = "whatsapp:" + normalized;
+            String to = toPhone.whatsApp();
             String from = fromNumber.startsWith("whatsapp:") ? fromNumber : "whatsapp:" + fromNumber;
 
-            log.info("=== WhatsApp Send ===");
-            log.info("To: {}", to);
-            log.info("From: {}", from);
-            log.info("Message: {}", text);
+            deliveryLog.payload(Channel.WHATSAPP, toPhone.e164(), text);
 
-            Message message = Message.creator(
-                    new PhoneNumber(to),
-                    new PhoneNumber(from),
-                    text
-            ).create();
+            // the dispatch workers are virtual threads, so waiting here does not hold a carrier thread
+            WhatsAppTransport.WhatsAppReceipt receipt = transport.send(to, from, text).join();
 
-            log.info("SUCCESS - SID: {}, Status: {}", message.getSid(), message.getStatus());
+            log.debug("Twilio accepted message {} ({})", receipt.sid(), receipt.status());
 
         } catch (Exception e) {
-            log.error("FAILED - {}", e.getMessage());
-            log.error("Full error:", e);
+            if (e instanceof CompletionException && e.getCause() instanceof Exception cause) e = cause;
+            // logged once, as the delivery's failure event
             throw new RuntimeException("WhatsApp failed: " + e.getMessage(), e);
         }
     }
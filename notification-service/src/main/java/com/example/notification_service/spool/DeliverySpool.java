@@ -0,0 +1,264 @@
+package com.example.notification_service.spool;
+
+import com.example.notification_service.model.Channel;
+import com.example.notification_service.model.NotificationEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Durable local outbox for channel deliveries the provider could not take, e.g. during
+ * an SMTP or Twilio outage. Entries are appended sequentially to memory-mapped segment
+ * files, so they survive a process restart and cost no heap beyond a 4-byte offset each;
+ * the event itself is read back from the mapping only when {@link SpoolDrainer} replays it.
+ * The listener also spools promotions here when their dispatch lane is full.
+ * <p>
+ * A segment whose entries are all acknowledged is deleted. A sealed segment with only a
+ * few live entries left is compacted by copying those to the active segment, so one stuck
+ * entry does not pin a whole file.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class DeliverySpool {
+
+    private static final Channel[] CHANNELS = Channel.values();
+
+    private final JsonMapper json;
+
+    @Value("${notification.spool.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notification.spool.dir:data/spool}")
+    private Path directory;
+
+    @Value("${notification.spool.segment-size:16MB}")
+    private DataSize segmentSize;
+
+    @Value("${notification.spool.segment-entries:65536}")
+    private int segmentEntries;
+
+    @Value("${notification.spool.compact-threshold:0.25}")
+    private double compactThreshold;
+
+    // msync on every append; the mapping alone already survives a process crash
+    @Value("${notification.spool.force:false}")
+    private boolean force;
+
+    private final List<SpoolSegment> segments = new ArrayList<>();
+    private final int[] pending = new int[CHANNELS.length];
+    private SpoolSegment active;
+    private long nextId;
+
+    /**
+     * One spooled delivery, handed out by {@link #peek} and passed back to {@link #ack}.
+     * {@code replays} is how often its delivery already failed from the spool.
+     */
+    public record SpoolEntry(long segment, int index, Channel channel, NotificationEvent event, int replays) {
+    }
+
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        if (!enabled) return;
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(p -> p.getFileName().toString().endsWith(SpoolSegment.SUFFIX)).sorted().toList();
+        }
+        for (Path file : files) {
+            SpoolSegment segment = SpoolSegment.open(directory, SpoolSegment.idOf(file));
+            nextId = Math.max(nextId, segment.id + 1);
+            if (segment.live() == 0) {
+                segment.delete();
+                continue;
+            }
+            segments.add(segment);
+            for (int i = segment.firstUnacked(); i < segment.entries(); i++) {
+                if (!segment.isAcked(i)) pending[segment.tag(i)]++;
+            }
+        }
+        if (!segments.isEmpty()) {
+            log.warn("Delivery spool reopened with {} pending deliveries in {} segments", pending(), segments.size());
+        }
+        roll();
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        for (SpoolSegment segment : segments) segment.close();
+        segments.clear();
+        active = null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Spools a delivery. Returns false when the spool is disabled or the event is too large
+     * for a segment, in which case the caller keeps ownership of the failure.
+     */
+    public synchronized boolean append(Channel channel, NotificationEvent event) {
+        if (!enabled || active == null) return false;
+        byte[] payload = json.writeValueAsBytes(event);
+        if (SpoolSegment.HEADER + payload.length > segmentSize.toBytes()) return false;
+        try {
+            if (!active.append((byte) channel.ordinal(), payload)) {
+                roll();
+                if (!active.append((byte) channel.ordinal(), payload)) return false;
+            }
+        } catch (IOException e) {
+            log.error("Could not roll the delivery spool: {}", e.getMessage());
+            return false;
+        }
+        if (force) active.force();
+        pending[channel.ordinal()]++;
+        return true;
+    }
+
+    /**
+     * The oldest unacknowledged deliveries for a channel, at most {@code max}. Entries stay
+     * in the spool until {@link #ack acknowledged}, so a later peek returns them again.
+     */
+    public synchronized List<SpoolEntry> peek(Channel channel, int max) {
+        List<SpoolEntry> batch = new ArrayList<>(Math.min(max, pending[channel.ordinal()]));
+        for (SpoolSegment segment : segments) {
+            for (int i = segment.firstUnacked(); i < segment.entries() && batch.size() < max; i++) {
+                if (segment.isAcked(i) || segment.tag(i) != channel.ordinal()) continue;
+                NotificationEvent event = read(segment, i);
+                if (event != null) batch.add(new SpoolEntry(segment.id, i, channel, event, segment.replays(i)));
+            }
+            if (batch.size() == max) break;
+        }
+        return batch;
+    }
+
+    /** Marks a spooled delivery as done; deletes its segment once nothing in it is pending. */
+    public synchronized void ack(SpoolEntry entry) {
+        for (Iterator<SpoolSegment> it = segments.iterator(); it.hasNext(); ) {
+            SpoolSegment segment = it.next();
+            if (segment.id != entry.segment()) continue;
+            if (segment.ack(entry.index())) pending[entry.channel().ordinal()]--;
+            if (force) segment.force();
+            if (segment.live() == 0 && segment != active) {
+                it.remove();
+                delete(segment);
+            }
+            return;
+        }
+    }
+
+    /**
+     * Records a failed delivery of a spooled entry, which stays pending. Returns how often
+     * it has failed so far; the count survives restarts and compaction.
+     */
+    public synchronized int replayFailed(SpoolEntry entry) {
+        for (SpoolSegment segment : segments) {
+            if (segment.id != entry.segment()) continue;
+            int replays = segment.replayFailed(entry.index());
+            if (force) segment.force();
+            return replays;
+        }
+        return entry.replays();
+    }
+
+    public synchronized int pending(Channel channel) {
+        return pending[channel.ordinal()];
+    }
+
+    public synchronized int pending() {
+        int total = 0;
+        for (int count : pending) total += count;
+        return total;
+    }
+
+    /**
+     * Copies the live entries of sparse sealed segments to the active one and deletes the
+     * originals. Each copied entry is acknowledged in its original segment, so an entry
+     * that cannot be copied (larger than a segment since {@code segment-size} was lowered)
+     * keeps that segment, and nothing in it is pending twice. Must not run while entries handed out by {@link #peek} are still being
+     * delivered, or those would be replayed twice; {@link SpoolDrainer} calls it between drains.
+     */
+    public synchronized void compact() {
+        if (active == null) return;
+        // a snapshot, as rolling during the copy adds a segment
+        for (SpoolSegment segment : List.copyOf(segments)) {
+            if (segment == active || segment.live() > segment.entries() * compactThreshold) continue;
+            int live = segment.live();
+            int kept = 0;
+            try {
+                for (int i = segment.firstUnacked(); i < segment.entries(); i++) {
+                    if (segment.isAcked(i)) continue;
+                    byte channel = segment.tag(i);
+                    byte replays = segment.replays(i);
+                    byte[] payload = segment.payload(i);
+                    if (!active.append(channel, replays, payload)) {
+                        roll();
+                        if (!active.append(channel, replays, payload)) {
+                            kept++;
+                            continue;
+                        }
+                    }
+                    // moved, not delivered: the pending count stays as it is
+                    segment.ack(i);
+                }
+            } catch (IOException e) {
+                log.error("Delivery spool compaction stopped: {}", e.getMessage());
+                return;
+            } finally {
+                // the copies are on disk before their originals are marked as gone
+                active.force();
+                segment.force();
+            }
+            if (kept > 0) {
+                log.warn("Spool segment {} keeps {} entries too large for a segment of {}", segment.id, kept, segmentSize);
+                continue;
+            }
+            log.info("Compacted spool segment {} ({} live of {})", segment.id, live, segment.entries());
+            segments.remove(segment);
+            delete(segment);
+        }
+    }
+
+    private NotificationEvent read(SpoolSegment segment, int index) {
+        try {
+            return json.readValue(segment.payload(index), NotificationEvent.class);
+        } catch (RuntimeException e) {
+            log.error("Dropping unreadable spool entry {}/{}: {}", segment.id, index, e.getMessage());
+            if (segment.ack(index)) pending[segment.tag(index)]--;
+            return null;
+        }
+    }
+
+    private void roll() throws IOException {
+        SpoolSegment segment = SpoolSegment.create(directory, nextId++, (int) segmentSize.toBytes(), segmentEntries);
+        segments.add(segment);
+        if (active != null && active.live() == 0) {
+            segments.remove(active);
+            delete(active);
+        }
+        active = segment;
+    }
+
+    private static void delete(SpoolSegment segment) {
+        try {
+            segment.delete();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.notification_service.spool;
+
+import com.example.notification_service.dispatch.ChannelDeliverer;
+import com.example.notification_service.model.Channel;
+import com.example.notification_service.ratelimit.ProviderThrottling;
+import com.example.notification_service.ratelimit.ThrottledException;
+import com.example.notification_service.resilience.BulkheadFullException;
+import com.example.notification_service.resilience.CircuitOpenException;
+import com.example.notification_service.resilience.ProviderRejection;
+import com.example.notification_service.retry.DeliveryFailureHandler;
+import com.example.notification_service.retry.RetryTopics;
+import com.example.notification_service.spool.DeliverySpool.SpoolEntry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Replays the {@link DeliverySpool} once a provider takes deliveries again. Each run
+ * probes every channel with pending entries; the first failure means the provider is
+ * still down and the channel waits for the next run. Deliveries go through
+ * {@link ChannelDeliverer}, so the replay is paced by the channel's rate limiter rather
+ * than hitting a recovering provider with the whole backlog.
+ * <p>
+ * An entry the provider {@link ProviderRejection rejects for good}, or whose delivery
+ * failed {@code max-replays} times, is dead-lettered instead of holding up the channel on
+ * every run. Failures that were refused before reaching the provider (open circuit, full
+ * bulkhead, throttling) do not count.
+ * <p>
+ * Runs happen on a thread of their own, so a long replay never holds up the other
+ * scheduled jobs, and each run stops taking new batches once its {@code drain-budget}
+ * is spent; the next run carries on where it stopped.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class SpoolDrainer {
+
+    private final DeliverySpool spool;
+    private final ChannelDeliverer channelDeliverer;
+    private final DeliveryFailureHandler failureHandler;
+    private final RetryTopics retryTopics;
+
+    @Value("${notification.spool.drain-batch:256}")
+    private int batchSize;
+
+    @Value("${notification.spool.drain-concurrency:8}")
+    private int concurrency;
+
+    @Value("${notification.spool.max-replays:20}")
+    private int maxReplays;
+
+    @Value("${notification.spool.drain-budget:30s}")
+    private Duration budget;
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(
+            Thread.ofVirtual().name("spool-drainer").factory());
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    @Scheduled(initialDelayString = "${notification.spool.drain-interval:10s}",
+            fixedDelayString = "${notification.spool.drain-interval:10s}")
+    public void scheduleDrain() {
+        if (!spool.isEnabled() || spool.pending() == 0 || !draining.compareAndSet(false, true)) return;
+        runner.execute(() -> {
+            try {
+                drain();
+            } finally {
+                draining.set(false);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        runner.shutdownNow();
+        runner.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /** One bounded run over every channel with pending entries, on the calling thread. */
+    void drain() {
+        if (!spool.isEnabled() || spool.pending() == 0) return;
+        long deadline = System.nanoTime() + budget.toNanos();
+        for (Channel channel : Channel.values()) {
+            if (spool.pending(channel) > 0 && !Thread.currentThread().isInterrupted()) drain(channel, deadline);
+        }
+        // nothing is handed out between runs, so compaction cannot replay an entry twice
+        spool.compact();
+    }
+
+    private void drain(Channel channel, long deadline) {
+        AtomicBoolean down = new AtomicBoolean();
+        AtomicInteger delivered = new AtomicInteger();
+        Semaphore slots = new Semaphore(concurrency);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            // at least one batch per channel, so a channel late in the run is not starved
+            while (!down.get()) {
+                List<SpoolEntry> batch = spool.peek(channel, batchSize);
+                if (batch.isEmpty()) break;
+                for (SpoolEntry entry : batch) {
+                    slots.acquireUninterruptibly();
+                    if (down.get()) {
+                        slots.release();
+                        break;
+                    }
+                    executor.execute(() -> {
+                        try {
+                            replay(entry, down, delivered);
+                        } finally {
+                            slots.release();
+                        }
+                    });
+                }
+                // the next peek must not hand out entries of this batch that are still in flight
+                slots.acquireUninterruptibly(concurrency);
+                slots.release(concurrency);
+                if (System.nanoTime() - deadline > 0 || Thread.currentThread().isInterrupted()) break;
+            }
+        }
+        if (delivered.get() > 0 || down.get()) {
+            log.info("Spool replay for {}: {} delivered, {} still pending{}", channel, delivered.get(),
+                    spool.pending(channel), down.get() ? ", provider still failing" : "");
+        }
+    }
+
+    private void replay(SpoolEntry entry, AtomicBoolean down, AtomicInteger delivered) {
+        try {
+            if (channelDeliverer.deliver(entry.channel(), entry.event())) delivered.incrementAndGet();
+            spool.ack(entry);
+        } catch (Exception e) {
+            if (ProviderRejection.isPermanent(e)) {
+                // will never succeed; dead-letter it instead of keeping it in the spool
+                deadLetter(entry, entry.replays(), e);
+                return;
+            }
+            if (!refused(e)) {
+                int replays = spool.replayFailed(entry);
+                if (replays >= maxReplays) {
+                    log.warn("Spooled {} {} for event {} failed {} times, dead-lettering it: {}", entry.event().getEventType(),
+                            entry.channel(), entry.event().getEventId(), replays, e.getMessage());
+                    deadLetter(entry, replays, e);
+                    return;
+                }
+            }
+            if (down.compareAndSet(false, true)) {
+                log.warn("Spooled {} {} for event {} failed again: {}", entry.event().getEventType(), entry.channel(),
+                        entry.event().getEventId(), e.getMessage());
+            }
+        }
+    }
+
+    private void deadLetter(SpoolEntry entry, int replays, Exception cause) {
+        failureHandler.deadLetter(entry.channel(), entry.event(), retryTopics.tierCount() + replays, cause);
+        spool.ack(entry);
+    }
+
+    // turned away on our side of the provider call: says nothing about the entry itself
+    private static boolean refused(Throwable error) {
+        return error instanceof CircuitOpenException || error instanceof BulkheadFullException
+                || error instanceof ThrottledException || ProviderThrottling.isThrottled(error);
+    }
+}
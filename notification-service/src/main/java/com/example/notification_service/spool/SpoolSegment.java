@@ -0,0 +1,194 @@
+package com.example.notification_service.spool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * One memory-mapped, append-only file of spooled deliveries plus its ack bitmap.
+ * <p>
+ * An entry is {@code [int length][byte tag][byte replays][int crc32][payload]}, where the
+ * tag is whatever the owner needs to filter on without reading the payload (the channel,
+ * for {@link DeliverySpool}) and replays counts failed deliveries of the entry, updated in
+ * place outside the checksum. The length is written last, so an entry torn by a crash
+ * reads as the end of the log; recovery scans forward from the start and stops at the
+ * first zero length or bad checksum. Bit
+ * {@code i} of the {@code .ack} file is set once entry {@code i} has been delivered.
+ * <p>
+ * Not thread-safe; owners serialize access.
+ */
+public final class SpoolSegment implements Closeable {
+
+    public static final String SUFFIX = ".seg";
+    static final String ACK_SUFFIX = ".ack";
+    public static final int HEADER = 4 + 1 + 1 + 4;
+    private static final int TAG = 4;
+    private static final int REPLAYS = 5;
+    private static final int CRC = 6;
+
+    public final long id;
+    private final Path path;
+    private final Path ackPath;
+    private final FileChannel file;
+    private final FileChannel ackFile;
+    private final MappedByteBuffer data;
+    private final MappedByteBuffer acks;
+    private final int maxEntries;
+    // byte offset of each entry; 4 bytes per entry, the payloads stay on disk
+    private final int[] offsets;
+    private int entries;
+    private int acked;
+    private int firstUnacked;
+    private int writePosition;
+
+    private SpoolSegment(Path dir, long id, int capacity, int maxEntries) throws IOException {
+        this.id = id;
+        this.path = dir.resolve(name(id) + SUFFIX);
+        this.ackPath = dir.resolve(name(id) + ACK_SUFFIX);
+        this.maxEntries = maxEntries;
+        this.offsets = new int[maxEntries];
+        this.file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.ackFile = FileChannel.open(ackPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.data = file.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        this.acks = ackFile.map(FileChannel.MapMode.READ_WRITE, 0, (maxEntries + 7) / 8);
+    }
+
+    public static SpoolSegment create(Path dir, long id, int capacity, int maxEntries) throws IOException {
+        return new SpoolSegment(dir, id, capacity, maxEntries);
+    }
+
+    /** Reopens a segment written before a restart, keeping its size and entry limit. */
+    public static SpoolSegment open(Path dir, long id) throws IOException {
+        int capacity = (int) Files.size(dir.resolve(name(id) + SUFFIX));
+        Path ackPath = dir.resolve(name(id) + ACK_SUFFIX);
+        int maxEntries = Files.exists(ackPath) ? (int) Files.size(ackPath) * 8 : 0;
+        SpoolSegment segment = new SpoolSegment(dir, id, capacity, Math.max(maxEntries, 8));
+        segment.recover();
+        return segment;
+    }
+
+    public static long idOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    private static String name(long id) {
+        return String.format("%020d", id);
+    }
+
+    private void recover() {
+        CRC32 crc = new CRC32();
+        int position = 0;
+        while (entries < maxEntries && position + HEADER <= data.capacity()) {
+            int length = data.getInt(position);
+            if (length <= 0 || position + HEADER + length > data.capacity()) break;
+            crc.reset();
+            crc.update(data.slice(position + HEADER, length));
+            if ((int) crc.getValue() != data.getInt(position + CRC)) break;
+            offsets[entries++] = position;
+            position += HEADER + length;
+        }
+        writePosition = position;
+        for (int i = 0; i < entries; i++) {
+            if (isAcked(i)) acked++;
+        }
+        advanceFirstUnacked();
+    }
+
+    /** Returns false when the segment has no room left for the entry. */
+    public boolean append(byte tag, byte[] payload) {
+        return append(tag, (byte) 0, payload);
+    }
+
+    /** Appends with a replay count carried over, e.g. when compaction copies the entry. */
+    public boolean append(byte tag, byte replays, byte[] payload) {
+        if (entries == maxEntries || writePosition + HEADER + payload.length > data.capacity()) return false;
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        int position = writePosition;
+        data.put(position + TAG, tag);
+        data.put(position + REPLAYS, replays);
+        data.putInt(position + CRC, (int) crc.getValue());
+        data.put(position + HEADER, payload);
+        // publish the entry last; a torn write leaves a zero length behind
+        data.putInt(position, payload.length);
+        offsets[entries++] = position;
+        writePosition = position + HEADER + payload.length;
+        return true;
+    }
+
+    /** Returns true when the entry was not acknowledged before. */
+    public boolean ack(int index) {
+        if (isAcked(index)) return false;
+        acks.put(index >>> 3, (byte) (acks.get(index >>> 3) | 1 << (index & 7)));
+        acked++;
+        advanceFirstUnacked();
+        return true;
+    }
+
+    public boolean isAcked(int index) {
+        return (acks.get(index >>> 3) & 1 << (index & 7)) != 0;
+    }
+
+    public byte tag(int index) {
+        return data.get(offsets[index] + TAG);
+    }
+
+    public byte replays(int index) {
+        return data.get(offsets[index] + REPLAYS);
+    }
+
+    /** Counts one more failed delivery of the entry and returns the new count. */
+    public int replayFailed(int index) {
+        int replays = replays(index);
+        if (replays < Byte.MAX_VALUE) data.put(offsets[index] + REPLAYS, (byte) ++replays);
+        return replays;
+    }
+
+    public byte[] payload(int index) {
+        int position = offsets[index];
+        byte[] payload = new byte[data.getInt(position)];
+        data.get(position + HEADER, payload);
+        return payload;
+    }
+
+    public int entries() {
+        return entries;
+    }
+
+    public int live() {
+        return entries - acked;
+    }
+
+    public int firstUnacked() {
+        return firstUnacked;
+    }
+
+    public void force() {
+        data.force();
+        acks.force();
+    }
+
+    private void advanceFirstUnacked() {
+        while (firstUnacked < entries && isAcked(firstUnacked)) firstUnacked++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        file.close();
+        ackFile.close();
+    }
+
+    public void delete() throws IOException {
+        file.close();
+        ackFile.close();
+        Files.deleteIfExists(path);
+        Files.deleteIfExists(ackPath);
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.notification_service.template;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A template parsed once into literal fragments, typed placeholders and conditional
+ * sections. Rendering walks the segment array and appends; nothing is re-parsed.
+ */
+public final class CompiledTemplate {
+
+    sealed interface Segment permits Literal, Placeholder, Section {
+    }
+
+    record Literal(String text) implements Segment {
+    }
+
+    record Placeholder(String key, Format format, int width) implements Segment {
+    }
+
+    /** Renders {@code body} when the value is present (or absent, when inverted). */
+    record Section(String key, boolean inverted, Segment[] body) implements Segment {
+    }
+
+    enum Format {
+        RAW,
+        HTML,   // escapes & < > " '
+        PAD     // right-aligned to width, like %10s
+    }
+
+    private final String name;
+    private final Segment[] segments;
+    private final int staticLength;
+
+    CompiledTemplate(String name, List<Segment> segments) {
+        this.name = name;
+        this.segments = segments.toArray(Segment[]::new);
+        this.staticLength = staticLength(this.segments);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /** Length of the literal text; a good initial capacity for an output buffer. */
+    public int staticLength() {
+        return staticLength;
+    }
+
+    public String render(Map<String, String> values) {
+        StringBuilder out = new StringBuilder(staticLength + 64);
+        renderTo(out, values);
+        return out.toString();
+    }
+
+    public void renderTo(StringBuilder out, Map<String, String> values) {
+        render(segments, out, values);
+    }
+
+    /**
+     * Renders everything except the {@code open} keys now and returns the rest as a new
+     * template, so a message sent to many recipients is rendered once and each recipient
+     * only fills in its own fields.
+     */
+    public CompiledTemplate bind(Map<String, String> values, Set<String> open) {
+        List<Segment> bound = new ArrayList<>();
+        bind(segments, bound, values, open);
+        return new CompiledTemplate(name, bound);
+    }
+
+    private static void bind(Segment[] segments, List<Segment> out, Map<String, String> values, Set<String> open) {
+        for (Segment segment : segments) {
+            switch (segment) {
+                case Literal literal -> appendLiteral(out, literal.text());
+                case Placeholder placeholder when !open.contains(placeholder.key()) -> {
+                    StringBuilder text = new StringBuilder();
+                    appendValue(text, values.get(placeholder.key()), placeholder);
+                    appendLiteral(out, text.toString());
+                }
+                case Placeholder placeholder -> out.add(placeholder);
+                case Section section when !open.contains(section.key()) -> {
+                    if (isPresent(values.get(section.key())) != section.inverted()) {
+                        bind(section.body(), out, values, open);
+                    }
+                }
+                case Section section -> {
+                    List<Segment> body = new ArrayList<>();
+                    bind(section.body(), body, values, open);
+                    out.add(new Section(section.key(), section.inverted(), body.toArray(Segment[]::new)));
+                }
+            }
+        }
+    }
+
+    // adjacent literals are merged, so a bound template is a handful of appends
+    private static void appendLiteral(List<Segment> out, String text) {
+        if (text.isEmpty()) return;
+        if (!out.isEmpty() && out.getLast() instanceof Literal last) {
+            out.set(out.size() - 1, new Literal(last.text() + text));
+        } else {
+            out.add(new Literal(text));
+        }
+    }
+
+    private static void render(Segment[] segments, StringBuilder out, Map<String, String> values) {
+        for (Segment segment : segments) {
+            switch (segment) {
+                case Literal literal -> out.append(literal.text());
+                case Placeholder placeholder -> appendValue(out, values.get(placeholder.key()), placeholder);
+                case Section section -> {
+                    if (isPresent(values.get(section.key())) != section.inverted()) {
+                        render(section.body(), out, values);
+                    }
+                }
+            }
+        }
+    }
+
+    // a section value counts as present when it is non-blank and not "0" (e.g. a zero discount)
+    static boolean isPresent(String value) {
+        return value != null && !value.isBlank() && !"0".equals(value);
+    }
+
+    private static void appendValue(StringBuilder out, String value, Placeholder placeholder) {
+        if (value == null) value = "";
+        switch (placeholder.format()) {
+            case RAW -> out.append(value);
+            case HTML -> appendHtmlEscaped(out, value);
+            case PAD -> {
+                for (int i = value.length(); i < placeholder.width(); i++) out.append(' ');
+                out.append(value);
+            }
+        }
+    }
+
+    private static void appendHtmlEscaped(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&' -> out.append("&amp;");
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+    }
+
+    private static int staticLength(Segment[] segments) {
+        int length = 0;
+        for (Segment segment : segments) {
+            if (segment instanceof Literal literal) length += literal.text().length();
+            else if (segment instanceof Section section) length += staticLength(section.body());
+        }
+        return length;
+    }
+}
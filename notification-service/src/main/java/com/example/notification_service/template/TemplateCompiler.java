@@ -0,0 +1,96 @@
+package com.example.notification_service.template;
+
+import com.example.notification_service.template.CompiledTemplate.Format;
+import com.example.notification_service.template.CompiledTemplate.Literal;
+import com.example.notification_service.template.CompiledTemplate.Placeholder;
+import com.example.notification_service.template.CompiledTemplate.Section;
+import com.example.notification_service.template.CompiledTemplate.Segment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses the template syntax:
+ * <ul>
+ *   <li>{@code {{key}}} - value as-is</li>
+ *   <li>{@code {{key:html}}} - HTML-escaped value</li>
+ *   <li>{@code {{key:padN}}} - value right-aligned to N characters</li>
+ *   <li>{@code {{#key}}...{{/key}}} - block rendered when key is present (non-blank, not "0")</li>
+ *   <li>{@code {{^key}}...{{/key}}} - block rendered when key is absent</li>
+ * </ul>
+ */
+public final class TemplateCompiler {
+
+    private TemplateCompiler() {
+    }
+
+    public static CompiledTemplate compile(String name, String source) {
+        Parser parser = new Parser(name, source);
+        List<Segment> segments = parser.parse(null);
+        return new CompiledTemplate(name, segments);
+    }
+
+    private static final class Parser {
+        private final String name;
+        private final String source;
+        private int pos;
+
+        Parser(String name, String source) {
+            this.name = name;
+            this.source = source;
+        }
+
+        List<Segment> parse(String openSection) {
+            List<Segment> segments = new ArrayList<>();
+            while (pos < source.length()) {
+                int open = source.indexOf("{{", pos);
+                if (open < 0) {
+                    segments.add(new Literal(source.substring(pos)));
+                    pos = source.length();
+                    break;
+                }
+                if (open > pos) segments.add(new Literal(source.substring(pos, open)));
+                int close = source.indexOf("}}", open + 2);
+                if (close < 0) throw error("unclosed '{{'", open);
+                String tag = source.substring(open + 2, close).trim();
+                pos = close + 2;
+
+                if (tag.isEmpty()) throw error("empty tag", open);
+                char kind = tag.charAt(0);
+                if (kind == '#' || kind == '^') {
+                    String key = tag.substring(1).trim();
+                    Segment[] body = parse(key).toArray(Segment[]::new);
+                    segments.add(new Section(key, kind == '^', body));
+                } else if (kind == '/') {
+                    String key = tag.substring(1).trim();
+                    if (!key.equals(openSection)) throw error("unexpected {{/" + key + "}}", open);
+                    return segments;
+                } else {
+                    segments.add(placeholder(tag, open));
+                }
+            }
+            if (openSection != null) throw error("section '" + openSection + "' is never closed", source.length());
+            return segments;
+        }
+
+        private Placeholder placeholder(String tag, int at) {
+            int colon = tag.indexOf(':');
+            if (colon < 0) return new Placeholder(tag, Format.RAW, 0);
+            String key = tag.substring(0, colon).trim();
+            String format = tag.substring(colon + 1).trim();
+            if (format.equals("html")) return new Placeholder(key, Format.HTML, 0);
+            if (format.startsWith("pad")) {
+                try {
+                    return new Placeholder(key, Format.PAD, Integer.parseInt(format.substring(3)));
+                } catch (NumberFormatException e) {
+                    throw error("bad pad width in '" + tag + "'", at);
+                }
+            }
+            throw error("unknown format '" + format + "'", at);
+        }
+
+        private IllegalArgumentException error(String message, int at) {
+            return new IllegalArgumentException("Template " + name + " at offset " + at + ": " + message);
+        }
+    }
+}
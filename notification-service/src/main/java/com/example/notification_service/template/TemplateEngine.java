@@ -0,0 +1,199 @@
+package com.example.notification_service.template;
+
+import com.example.notification_service.metrics.NotificationMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Loads notification templates once at startup and renders them by name, e.g.
+ * {@code email/welcome.html}. Templates ship under {@code notification-templates/} on
+ * the classpath; files in {@code notification.templates.dir} override them and are
+ * re-read when their modification time changes, so copy can be edited without a deploy.
+ * <p>
+ * Output for an identical (template, values) pair is cached, and render buffers are
+ * pooled so a render costs one copy into the result string.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class TemplateEngine {
+
+    private static final String CLASSPATH_ROOT = "notification-templates/";
+    private static final int MAX_POOLED_BUFFER = 64 * 1024;
+
+    private final NotificationMetrics metrics;
+
+    @Value("${notification.templates.dir:}")
+    private String directory;
+
+    @Value("${notification.templates.render-cache-size:1024}")
+    private int renderCacheSize;
+
+    private volatile Map<String, CompiledTemplate> templates = Map.of();
+    private final Map<Path, Long> lastModified = new HashMap<>();
+    private final Map<RenderKey, String> renderCache = new ConcurrentHashMap<>();
+    private final Map<BindKey, CompiledTemplate> bindCache = new ConcurrentHashMap<>();
+    private final ArrayBlockingQueue<StringBuilder> buffers = new ArrayBlockingQueue<>(64);
+
+    private record RenderKey(String template, Map<String, String> values) {
+    }
+
+    private record BindKey(String template, Map<String, String> values, Set<String> open) {
+    }
+
+    @PostConstruct
+    public synchronized void load() throws IOException {
+        Map<String, CompiledTemplate> loaded = new HashMap<>();
+        Resource[] resources = new PathMatchingResourcePatternResolver()
+                .getResources("classpath*:" + CLASSPATH_ROOT + "**/*.*");
+        for (Resource resource : resources) {
+            String url = resource.getURL().toString();
+            String name = url.substring(url.lastIndexOf(CLASSPATH_ROOT) + CLASSPATH_ROOT.length());
+            loaded.put(name, TemplateCompiler.compile(name, resource.getContentAsString(StandardCharsets.UTF_8)));
+        }
+        if (!directory.isBlank()) {
+            loadDirectory(loaded, true);
+        }
+        templates = Map.copyOf(loaded);
+        log.info("Loaded {} notification templates", loaded.size());
+    }
+
+    @Scheduled(fixedDelayString = "${notification.templates.reload-interval:10s}")
+    public synchronized void reloadIfChanged() {
+        if (directory.isBlank()) return;
+        Map<String, CompiledTemplate> updated = new HashMap<>(templates);
+        try {
+            if (loadDirectory(updated, false)) {
+                templates = Map.copyOf(updated);
+                renderCache.clear();
+                bindCache.clear();
+            }
+        } catch (IOException | RuntimeException e) {
+            // keep serving the previous version until the file is fixed
+            log.error("Template reload from {} failed: {}", directory, e.getMessage());
+        }
+    }
+
+    public CompiledTemplate get(String name) {
+        CompiledTemplate template = templates.get(name);
+        if (template == null) throw new IllegalArgumentException("Unknown template: " + name);
+        return template;
+    }
+
+    public boolean has(String name) {
+        return templates.containsKey(name);
+    }
+
+    /**
+     * {@code base-variant + extension} when such a template exists, otherwise
+     * {@code base + extension}; e.g. {@code whatsapp/promotion-si.txt}.
+     */
+    public String variant(String base, String variant, String extension) {
+        if (variant != null && !variant.isBlank()) {
+            String name = base + "-" + variant + extension;
+            if (templates.containsKey(name)) return name;
+        }
+        return base + extension;
+    }
+
+    /**
+     * The template with every value except the {@code open} keys already rendered, see
+     * {@link CompiledTemplate#bind}. Bound templates are cached by (template, values), so
+     * callers that share one (unchanging) values map per message variant render each
+     * variant once.
+     */
+    public CompiledTemplate bind(String name, Map<String, String> values, Set<String> open) {
+        BindKey key = new BindKey(name, values, open);
+        CompiledTemplate cached = bindCache.get(key);
+        if (cached != null) return cached;
+        long start = System.nanoTime();
+        CompiledTemplate bound = get(name).bind(values, open);
+        metrics.rendered(name, start);
+        if (bindCache.size() >= renderCacheSize) bindCache.clear();
+        bindCache.put(key, bound);
+        return bound;
+    }
+
+    public String render(String name, Map<String, String> values) {
+        long start = System.nanoTime();
+        RenderKey key = new RenderKey(name, values);
+        String cached = renderCache.get(key);
+        if (cached != null) {
+            metrics.rendered(name, start);
+            return cached;
+        }
+
+        String rendered = renderUncached(get(name), values);
+        metrics.rendered(name, start);
+        if (renderCacheSize > 0 && !hasNullValue(values)) {
+            // bounded by dropping everything when full; cheap and good enough for repeat inputs
+            if (renderCache.size() >= renderCacheSize) renderCache.clear();
+            renderCache.put(new RenderKey(name, Map.copyOf(values)), rendered);
+        }
+        return rendered;
+    }
+
+    // Map.of/Map.copyOf maps throw on containsValue(null), so look at the values directly
+    private static boolean hasNullValue(Map<String, String> values) {
+        for (String value : values.values()) {
+            if (value == null) return true;
+        }
+        return false;
+    }
+
+    private String renderUncached(CompiledTemplate template, Map<String, String> values) {
+        StringBuilder buffer = buffers.poll();
+        if (buffer == null) buffer = new StringBuilder(template.staticLength() + 256);
+        template.renderTo(buffer, values);
+        String rendered = buffer.toString();
+        if (buffer.capacity() <= MAX_POOLED_BUFFER) {
+            buffer.setLength(0);
+            buffers.offer(buffer);
+        }
+        return rendered;
+    }
+
+    private boolean loadDirectory(Map<String, CompiledTemplate> into, boolean force) throws IOException {
+        Path root = Path.of(directory);
+        if (!Files.isDirectory(root)) {
+            log.warn("Template directory {} does not exist", root);
+            return false;
+        }
+        // modification times are only recorded once every changed file compiled
+        Map<Path, Long> seen = new HashMap<>();
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                long modified = Files.getLastModifiedTime(file).toMillis();
+                Long previous = lastModified.get(file);
+                if (!force && previous != null && previous == modified) continue;
+
+                String name = root.relativize(file).toString().replace('\\', '/');
+                into.put(name, TemplateCompiler.compile(name, Files.readString(file)));
+                seen.put(file, modified);
+                if (!force) log.info("Reloaded template {}", name);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        lastModified.putAll(seen);
+        return !seen.isEmpty();
+    }
+}
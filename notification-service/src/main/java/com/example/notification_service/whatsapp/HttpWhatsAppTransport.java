@@ -0,0 +1,149 @@
+package com.example.notification_service.whatsapp;
+
+import com.example.notification_service.metrics.NotificationMetrics;
+import com.example.notification_service.metrics.NotificationMetrics.ProviderCall;
+import com.example.notification_service.model.Channel;
+import com.example.notification_service.ratelimit.ThrottledException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls the Twilio Messages REST API directly with the JDK {@link HttpClient}: requests
+ * are sent asynchronously over pooled keep-alive (HTTP/2 where the server offers it)
+ * connections, at most {@code max-in-flight} at a time, each with its own timeout.
+ * <p>
+ * A caller waits up to {@code acquire-timeout} for an in-flight slot; after that the send
+ * fails with {@link ThrottledException} and goes to the retry tiers.
+ */
+@Component
+@ConditionalOnProperty(name = "notification.whatsapp.transport", havingValue = "http", matchIfMissing = true)
+@Slf4j
+public class HttpWhatsAppTransport implements WhatsAppTransport {
+
+    private final NotificationMetrics metrics;
+    private final JsonMapper json;
+    private final CompletableFuture<HttpClient> client;
+    private final URI messagesUri;
+    private final String authorization;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final Duration requestTimeout;
+    private final Duration acquireTimeout;
+
+    public HttpWhatsAppTransport(NotificationMetrics metrics,
+                                 JsonMapper json,
+                                 @Value("${twilio.account-sid}") String accountSid,
+                                 @Value("${twilio.auth-token}") String authToken,
+                                 @Value("${notification.whatsapp.http.base-url:https://api.twilio.com}") String baseUrl,
+                                 @Value("${notification.whatsapp.http.version:HTTP_2}") HttpClient.Version version,
+                                 @Value("${notification.whatsapp.http.max-in-flight:32}") int maxInFlight,
+                                 @Value("${notification.whatsapp.http.connect-timeout:5s}") Duration connectTimeout,
+                                 @Value("${notification.whatsapp.http.request-timeout:10s}") Duration requestTimeout,
+                                 @Value("${notification.whatsapp.http.acquire-timeout:10s}") Duration acquireTimeout) {
+        this.metrics = metrics;
+        this.json = json;
+        String sid = accountSid == null ? "" : accountSid.trim();
+        String token = authToken == null ? "" : authToken.trim();
+        String base = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.messagesUri = URI.create(base + "/2010-04-01/Accounts/" + sid + "/Messages.json");
+        this.authorization = "Basic " + Base64.getEncoder()
+                .encodeToString((sid + ":" + token).getBytes(StandardCharsets.UTF_8));
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.inFlight = new Semaphore(this.maxInFlight);
+        this.requestTimeout = requestTimeout;
+        this.acquireTimeout = acquireTimeout;
+        // building the client initializes TLS, which takes a noticeable part of startup; do it off the main thread
+        this.client = CompletableFuture.supplyAsync(() -> HttpClient.newBuilder()
+                .version(version)
+                .connectTimeout(connectTimeout)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build(), Thread::startVirtualThread);
+    }
+
+    @Override
+    public CompletableFuture<WhatsAppReceipt> send(String to, String from, String body) {
+        try {
+            if (!inFlight.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                return CompletableFuture.failedFuture(new ThrottledException(Channel.WHATSAPP, "in-flight requests"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        HttpRequest request = HttpRequest.newBuilder(messagesUri)
+                .timeout(requestTimeout)
+                .header("Authorization", authorization)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .header("Accept", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "To=" + encode(to) + "&From=" + encode(from) + "&Body=" + encode(body)))
+                .build();
+        long start = System.nanoTime();
+        try {
+            return client.join().sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                    .whenComplete((response, error) -> {
+                        inFlight.release();
+                        metrics.providerCall(ProviderCall.TWILIO_REQUEST, start,
+                                error == null && response.statusCode() / 100 == 2);
+                    })
+                    .thenApply(this::toReceipt);
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    public int availableSlots() {
+        return inFlight.availablePermits();
+    }
+
+    public int inFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    @PreDestroy
+    public void close() {
+        client.thenAccept(HttpClient::close);
+    }
+
+    private WhatsAppReceipt toReceipt(HttpResponse<String> response) {
+        JsonNode body = parse(response.body());
+        if (response.statusCode() / 100 == 2) {
+            return new WhatsAppReceipt(body.path("sid").asString(null), body.path("status").asString(null));
+        }
+        Integer code = body.path("code").isNumber() ? body.path("code").asInt() : null;
+        String message = body.path("message").asString(response.body());
+        throw new WhatsAppSendException(response.statusCode(), code, message);
+    }
+
+    private JsonNode parse(String body) {
+        try {
+            return json.readTree(body == null || body.isEmpty() ? "{}" : body);
+        } catch (RuntimeException e) {
+            return json.createObjectNode();
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value == null ? "" : value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.notification_service.whatsapp;
+
+import com.example.notification_service.metrics.NotificationMetrics;
+import com.example.notification_service.metrics.NotificationMetrics.ProviderCall;
+import com.twilio.Twilio;
+import com.twilio.rest.api.v2010.account.Message;
+import com.twilio.type.PhoneNumber;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Fallback transport through the Twilio SDK's global client
+ * ({@code notification.whatsapp.transport=twilio-sdk}). The SDK call blocks, so the
+ * returned future is already complete; callers run on virtual threads.
+ */
+@Component
+@ConditionalOnProperty(name = "notification.whatsapp.transport", havingValue = "twilio-sdk")
+@Slf4j
+@RequiredArgsConstructor
+public class TwilioSdkWhatsAppTransport implements WhatsAppTransport {
+
+    private final NotificationMetrics metrics;
+
+    @Value("${twilio.account-sid}")
+    private String accountSid;
+
+    @Value("${twilio.auth-token}")
+    private String authToken;
+
+    private CompletableFuture<Void> initialized;
+
+    // the SDK's client set-up runs in the background so it does not hold up startup; the first send waits for it
+    @PostConstruct
+    public void init() {
+        initialized = CompletableFuture.runAsync(this::initClient, Thread::startVirtualThread);
+    }
+
+    private void initClient() {
+        if (accountSid == null || authToken == null
+                || "TWILIO_NOT_CONFIGURED".equals(accountSid.trim()) || "TWILIO_NOT_CONFIGURED".equals(authToken.trim())) {
+            return;
+        }
+        try {
+            Twilio.init(accountSid.trim(), authToken.trim());
+        } catch (Exception e) {
+            log.error("Twilio initialization failed: {}", e.toString(), e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<WhatsAppReceipt> send(String to, String from, String body) {
+        initialized.join();
+        long start = System.nanoTime();
+        try {
+            Message message = Message.creator(new PhoneNumber(to), new PhoneNumber(from), body).create();
+            metrics.providerCall(ProviderCall.TWILIO_REQUEST, start, true);
+            return CompletableFuture.completedFuture(
+                    new WhatsAppReceipt(message.getSid(), String.valueOf(message.getStatus())));
+        } catch (RuntimeException e) {
+            metrics.providerCall(ProviderCall.TWILIO_REQUEST, start, false);
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.notification_service.whatsapp;
+
+/**
+ * The Messages API answered with an error. {@code statusCode} is the HTTP status,
+ * {@code errorCode} the Twilio error code from the body when there was one.
+ */
+public class WhatsAppSendException extends RuntimeException {
+
+    private final int statusCode;
+    private final Integer errorCode;
+
+    public WhatsAppSendException(int statusCode, Integer errorCode, String message) {
+        super("HTTP " + statusCode + (errorCode != null ? " (Twilio " + errorCode + ")" : "") + ": " + message);
+        this.statusCode = statusCode;
+        this.errorCode = errorCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public Integer getErrorCode() {
+        return errorCode;
+    }
+}
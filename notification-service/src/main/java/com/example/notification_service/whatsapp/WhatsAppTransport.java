@@ -0,0 +1,16 @@
+package com.example.notification_service.whatsapp;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends one WhatsApp message through the provider. Addresses are in Twilio form
+ * ({@code whatsapp:+94771234567}). The future fails with {@link WhatsAppSendException}
+ * when the provider rejects the message.
+ */
+public interface WhatsAppTransport {
+
+    CompletableFuture<WhatsAppReceipt> send(String to, String from, String body);
+
+    record WhatsAppReceipt(String sid, String status) {
+    }
+}
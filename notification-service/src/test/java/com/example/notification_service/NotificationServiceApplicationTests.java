@@ -3,7 +3,11 @@ package com.example.notification_service;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = {
+        "notification.spool.dir=target/spool",
+        "notification.scheduler.dir=target/schedule",
+        "notification.campaign.dir=target/campaigns"
+})
 class NotificationServiceApplicationTests {
 
 	@Test
@@ -0,0 +1,159 @@
+package com.example.notification_service.campaign;
+
+import com.example.notification_service.dispatch.ChannelFanOut;
+import com.example.notification_service.dispatch.DispatchEngine;
+import com.example.notification_service.model.NotificationEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CampaignEngineTest {
+
+    @TempDir
+    Path dir;
+
+    private final JsonMapper json = new JsonMapper();
+    private final ChannelFanOut fanOut = mock(ChannelFanOut.class);
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    private DispatchEngine dispatchEngine;
+    private CampaignEngine campaigns;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dispatchEngine = dispatchEngine();
+        dispatchEngine.start();
+        when(fanOut.fanOut(any(), anyLong())).thenAnswer(invocation -> {
+            sent.add(invocation.<NotificationEvent>getArgument(0).getEventId());
+            return null;
+        });
+
+        Files.createDirectories(dir.resolve("segments"));
+        Files.writeString(dir.resolve("segments/spring.csv"), """
+                name,email
+                A,a@example.com
+                B,b@example.com
+                C,c@example.com
+                D,d@example.com
+                E,e@example.com
+                """);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (campaigns != null) campaigns.stop();
+        dispatchEngine.stop();
+    }
+
+    @Test
+    void anUnfinishedCampaignResumesAfterItsCheckpoint() throws Exception {
+        CampaignCheckpoints checkpoints = new CampaignCheckpoints(dir.resolve("campaigns"), json);
+        checkpoints.create(campaign("camp-1", "file:spring.csv"));
+        checkpoints.advance("camp-1", 2);
+
+        campaigns = start();
+        awaitIdle();
+
+        assertThat(sent).containsExactlyInAnyOrder("camp-1:3", "camp-1:4", "camp-1:5");
+        assertThat(cursor("camp-1")).isEqualTo("done");
+        assertThat(checkpoints.unfinished()).isEmpty();
+    }
+
+    @Test
+    void aCampaignWithAMissingSegmentFailsForGood() throws Exception {
+        campaigns = start();
+        assertThat(campaigns.launch(campaign("camp-2", "file:missing.csv"))).isTrue();
+        awaitIdle();
+
+        assertThat(cursor("camp-2")).isEqualTo("failed");
+        campaigns.stop();
+
+        // neither resumed on the next start nor started again by a redelivered record
+        campaigns = start();
+        assertThat(campaigns.active()).isZero();
+        assertThat(campaigns.launch(campaign("camp-2", "file:missing.csv"))).isTrue();
+        assertThat(campaigns.active()).isZero();
+        assertThat(sent).isEmpty();
+    }
+
+    @Test
+    void aCampaignThatFailsMidRunIsRetriedFromItsCheckpoint() throws Exception {
+        // submitting to a dispatch engine that is not running fails, like a page read on a database blip
+        dispatchEngine.stop();
+        dispatchEngine = dispatchEngine();
+        campaigns = start();
+        assertThat(campaigns.launch(campaign("camp-3", "file:spring.csv"))).isTrue();
+        Thread.sleep(100);
+        assertThat(campaigns.active()).isOne();
+
+        dispatchEngine.start();
+        awaitIdle();
+
+        assertThat(sent).containsExactlyInAnyOrder("camp-3:1", "camp-3:2", "camp-3:3", "camp-3:4", "camp-3:5");
+        assertThat(cursor("camp-3")).isEqualTo("done");
+    }
+
+    @Test
+    void idsThatOnlyDifferInSpecialCharactersGetTheirOwnCheckpoint() throws IOException {
+        CampaignCheckpoints checkpoints = new CampaignCheckpoints(dir.resolve("campaigns"), json);
+        checkpoints.create(campaign("a/b", "file:spring.csv"));
+
+        assertThat(checkpoints.known("a/b")).isTrue();
+        assertThat(checkpoints.known("a_b")).isFalse();
+        assertThat(CampaignCheckpoints.fileName("x".repeat(300))).startsWith("~").hasSize(65);
+    }
+
+    private CampaignEngine start() throws IOException {
+        @SuppressWarnings("unchecked")
+        CampaignEngine engine = new CampaignEngine(fanOut, dispatchEngine, mock(ObjectProvider.class), json);
+        ReflectionTestUtils.setField(engine, "enabled", true);
+        ReflectionTestUtils.setField(engine, "directory", dir.resolve("campaigns"));
+        ReflectionTestUtils.setField(engine, "segmentDirectory", dir.resolve("segments"));
+        ReflectionTestUtils.setField(engine, "pageSize", 2);
+        ReflectionTestUtils.setField(engine, "rate", 1000.0);
+        ReflectionTestUtils.setField(engine, "url", "");
+        ReflectionTestUtils.setField(engine, "retryBackoff", Duration.ofMillis(20));
+        ReflectionTestUtils.setField(engine, "maxRetryBackoff", Duration.ofMillis(50));
+        engine.start();
+        return engine;
+    }
+
+    private static DispatchEngine dispatchEngine() {
+        DispatchEngine engine = new DispatchEngine();
+        ReflectionTestUtils.setField(engine, "workerCount", 2);
+        ReflectionTestUtils.setField(engine, "queueCapacity", 16);
+        ReflectionTestUtils.setField(engine, "bulkQueueCapacity", 16);
+        ReflectionTestUtils.setField(engine, "reservedWorkers", 0);
+        ReflectionTestUtils.setField(engine, "latencyTarget", Duration.ofSeconds(1));
+        return engine;
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        for (int i = 0; i < 500 && campaigns.active() > 0; i++) Thread.sleep(10);
+        assertThat(campaigns.active()).isZero();
+    }
+
+    private String cursor(String id) throws IOException {
+        return Files.readString(dir.resolve("campaigns").resolve(CampaignCheckpoints.fileName(id) + ".cursor")).trim();
+    }
+
+    private static NotificationEvent campaign(String id, String segment) {
+        return NotificationEvent.builder().eventId(id).eventType("PROMOTION").segment(segment).build();
+    }
+}
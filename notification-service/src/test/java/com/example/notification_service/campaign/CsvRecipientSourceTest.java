@@ -0,0 +1,56 @@
+package com.example.notification_service.campaign;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvRecipientSourceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsPagesByHeaderNamesAndQuotedFields() throws IOException {
+        Path file = segment("""
+                name,email,phone,variant
+                "Perera, Nimali",nimali@example.com,0771234567,si
+                Kasun,,0712345678,
+                "Anne ""Annie"" Silva",anne@example.com,,
+                """);
+
+        try (CsvRecipientSource source = new CsvRecipientSource(file, 0)) {
+            List<Recipient> first = source.next(2);
+            List<Recipient> second = source.next(2);
+
+            assertThat(first).containsExactly(
+                    new Recipient(1, "0771234567", "nimali@example.com", "Perera, Nimali", "si"),
+                    new Recipient(2, "0712345678", null, "Kasun", null));
+            assertThat(second).containsExactly(new Recipient(3, null, "anne@example.com", "Anne \"Annie\" Silva", null));
+            assertThat(source.next(2)).isEmpty();
+        }
+    }
+
+    @Test
+    void resumesAfterTheCheckpointedRow() throws IOException {
+        Path file = segment("""
+                phone,name
+                0771111111,One
+                0772222222,Two
+                0773333333,Three
+                """);
+
+        try (CsvRecipientSource source = new CsvRecipientSource(file, 2)) {
+            assertThat(source.next(10)).extracting(Recipient::name).containsExactly("Three");
+        }
+    }
+
+    private Path segment(String content) throws IOException {
+        return Files.writeString(dir.resolve("segment.csv"), content);
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.notification_service.codec;
+
+import com.example.notification_service.model.NotificationEvent;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NotificationEventCodecTest {
+
+    private static final Map<String, Object> CONFIG = Map.of(
+            "spring.json.trusted.packages", "com.example.notification_service.model",
+            "spring.json.value.default.type", NotificationEvent.class.getName(),
+            "spring.json.use.type.headers", false,
+            "spring.json.add.type.headers", false);
+
+    @Test
+    void everyFieldSurvivesARoundTrip() {
+        NotificationEvent event = fullEvent();
+
+        assertThat(NotificationEventCodec.decode(NotificationEventCodec.encode(event))).isEqualTo(event);
+    }
+
+    @Test
+    void nullsEmptiesAndUnknownEventTypesSurviveARoundTrip() {
+        Map<String, String> data = new HashMap<>();
+        data.put("empty", "");
+        data.put("missing", null);
+        NotificationEvent sparse = NotificationEvent.builder()
+                .eventType("APPOINTMENT_REMINDER")
+                .recipientName("")
+                .templateData(data)
+                .priority(-3)
+                .timestamp(LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_999_999))
+                .build();
+
+        assertThat(NotificationEventCodec.decode(NotificationEventCodec.encode(sparse))).isEqualTo(sparse);
+        assertThat(NotificationEventCodec.decode(NotificationEventCodec.encode(new NotificationEvent())))
+                .isEqualTo(new NotificationEvent());
+    }
+
+    @Test
+    void knownEventTypesAreWrittenAsCodesAndDecodedToTheSameInstance() {
+        NotificationEvent event = NotificationEvent.builder().eventId("e1").eventType("PAYMENT_CONFIRMED").build();
+
+        // the wire format of version 1; must keep decoding after any change to the codec
+        byte[] v1 = {1, 1, 2, 'e', '1', 2, 1, 2};
+        assertThat(NotificationEventCodec.encode(event)).isEqualTo(v1);
+        assertThat(NotificationEventCodec.decode(v1).getEventType()).isSameAs(NotificationEventCodec.EVENT_TYPES[2]);
+    }
+
+    @Test
+    void fieldsWithUnknownTagsAreSkipped() {
+        byte[] known = NotificationEventCodec.encode(fullEvent());
+        // a field a newer producer added: tag 99, three bytes
+        byte[] newer = Arrays.copyOf(known, known.length + 5);
+        System.arraycopy(new byte[]{99, 3, 7, 7, 7}, 0, newer, known.length, 5);
+
+        assertThat(NotificationEventCodec.decode(newer)).isEqualTo(fullEvent());
+    }
+
+    @Test
+    void truncatedOrUnknownVersionsAreRejected() {
+        byte[] encoded = NotificationEventCodec.encode(fullEvent());
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length - 4);
+        byte[] future = encoded.clone();
+        future[0] = 2;
+
+        assertThatThrownBy(() -> NotificationEventCodec.decode(truncated)).isInstanceOf(SerializationException.class);
+        assertThatThrownBy(() -> NotificationEventCodec.decode(future)).isInstanceOf(SerializationException.class);
+    }
+
+    @Test
+    void corruptTemplateDataCountsAndLengthsAreRejected() {
+        // template data field of 7 bytes claiming Integer.MAX_VALUE entries
+        byte[] hugeCount = {1, 7, 7, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 0, 0};
+        // a count that decodes to a negative number
+        byte[] negativeCount = {1, 7, 10, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01};
+        // one entry whose key claims more bytes than the field has
+        byte[] longKey = {1, 7, 4, 1, 9, 'k', 0, 0, 0, 0, 0, 0, 0, 0};
+
+        assertThatThrownBy(() -> NotificationEventCodec.decode(hugeCount)).isInstanceOf(SerializationException.class);
+        assertThatThrownBy(() -> NotificationEventCodec.decode(negativeCount)).isInstanceOf(SerializationException.class);
+        assertThatThrownBy(() -> NotificationEventCodec.decode(longKey)).isInstanceOf(SerializationException.class);
+    }
+
+    @Test
+    void theDeserializerReadsJsonAndBinaryRecordsSideBySide() {
+        NotificationEvent event = fullEvent();
+        try (NotificationEventSerializer jsonSerializer = serializer("json");
+             NotificationEventSerializer binarySerializer = serializer("binary");
+             NotificationEventDeserializer deserializer = new NotificationEventDeserializer()) {
+            deserializer.configure(CONFIG, false);
+
+            Headers jsonHeaders = new RecordHeaders();
+            byte[] json = jsonSerializer.serialize("notifications", jsonHeaders, event);
+            Headers binaryHeaders = new RecordHeaders();
+            byte[] binary = binarySerializer.serialize("notifications", binaryHeaders, event);
+
+            assertThat(jsonHeaders.lastHeader(NotificationEventCodec.HEADER)).isNull();
+            assertThat(new String(binaryHeaders.lastHeader(NotificationEventCodec.HEADER).value(), StandardCharsets.UTF_8))
+                    .isEqualTo("binary");
+            assertThat(binary.length).isLessThan(json.length / 2);
+            assertThat(deserializer.deserialize("notifications", jsonHeaders, json)).isEqualTo(event);
+            assertThat(deserializer.deserialize("notifications", binaryHeaders, binary)).isEqualTo(event);
+        }
+    }
+
+    @Test
+    void republishingAsJsonDropsAStaleBinaryMarker() {
+        Headers headers = new RecordHeaders();
+        headers.add(NotificationEventCodec.HEADER, "binary".getBytes(StandardCharsets.UTF_8));
+        try (NotificationEventSerializer serializer = serializer("json")) {
+            serializer.serialize("notifications.retry.1", headers, fullEvent());
+        }
+
+        assertThat(headers.lastHeader(NotificationEventCodec.HEADER)).isNull();
+    }
+
+    private static NotificationEventSerializer serializer(String codec) {
+        Map<String, Object> config = new HashMap<>(CONFIG);
+        config.put(NotificationEventSerializer.CODEC_CONFIG, codec);
+        NotificationEventSerializer serializer = new NotificationEventSerializer();
+        serializer.configure(config, false);
+        return serializer;
+    }
+
+    private static NotificationEvent fullEvent() {
+        Map<String, String> data = new LinkedHashMap<>();
+        data.put("billNumber", "INV-2024-00042");
+        data.put("customerName", "නදී පෙරේරා");
+        data.put("netAmount", "40500.00");
+        return NotificationEvent.builder()
+                .eventId("evt-42")
+                .eventType("PAYMENT_CONFIRMED")
+                .recipientPhone("+94771234567")
+                .recipientEmail("nadee@example.com")
+                .recipientName("Nadee Perera")
+                .templateData(data)
+                .priority(1)
+                .timestamp(LocalDateTime.of(2024, 5, 12, 10, 15, 30, 123_000_000))
+                .segment("file:vip.csv")
+                .sendAt(LocalDateTime.of(2024, 5, 13, 9, 0))
+                .build();
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.notification_service.consumer;
+
+import com.example.notification_service.dispatch.MicroBatchDispatcher;
+import com.example.notification_service.model.NotificationEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationConsumerTest {
+
+    private final MicroBatchDispatcher microBatches = mock(MicroBatchDispatcher.class);
+    private final Acknowledgment ack = mock(Acknowledgment.class);
+    private final NotificationConsumer consumer =
+            new NotificationConsumer(null, null, microBatches, null, null, null, null, null, null);
+    private final List<NotificationEvent> poll = List.of(NotificationEvent.builder().eventId("evt-1").build());
+
+    @Test
+    void aDeliveredPollIsAcknowledged() {
+        when(microBatches.dispatch(poll)).thenReturn(true);
+
+        consumer.consumeBatch(poll, ack);
+
+        verify(ack).acknowledge();
+    }
+
+    @Test
+    void anUndeliveredPollIsRedeliveredAfterTheBackoff() {
+        ReflectionTestUtils.setField(consumer, "redeliveryBackoff", Duration.ofSeconds(5));
+        when(microBatches.dispatch(poll)).thenReturn(false);
+
+        consumer.consumeBatch(poll, ack);
+
+        verify(ack).nack(0, Duration.ofSeconds(5));
+        verify(ack, never()).acknowledge();
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.notification_service.dedup;
+
+import com.example.notification_service.model.Channel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeliveryDeduplicatorTest {
+
+    private DeliveryDeduplicator deduplicator;
+
+    @BeforeEach
+    void setUp() {
+        deduplicator = newDeduplicator(null);
+    }
+
+    @Test
+    void secondClaimForSameEventAndChannelIsDuplicate() {
+        assertThat(deduplicator.tryClaim("evt-1", Channel.WHATSAPP)).isTrue();
+
+        assertThat(deduplicator.tryClaim("evt-1", Channel.WHATSAPP)).isFalse();
+        assertThat(deduplicator.tryClaim("evt-1", Channel.EMAIL)).isTrue();
+    }
+
+    @Test
+    void releasedClaimCanBeRetried() {
+        deduplicator.tryClaim("evt-1", Channel.EMAIL);
+        deduplicator.release("evt-1", Channel.EMAIL);
+
+        assertThat(deduplicator.tryClaim("evt-1", Channel.EMAIL)).isTrue();
+    }
+
+    @Test
+    void eventsWithoutIdAreNeverDuplicates() {
+        assertThat(deduplicator.tryClaim(null, Channel.EMAIL)).isTrue();
+        assertThat(deduplicator.tryClaim(null, Channel.EMAIL)).isTrue();
+    }
+
+    @Test
+    void persistentStoreCatchesDeliveriesFromBeforeRestart() {
+        InMemoryStore store = new InMemoryStore();
+        DeliveryDeduplicator beforeRestart = newDeduplicator(store);
+        beforeRestart.tryClaim("evt-1", Channel.WHATSAPP);
+        beforeRestart.confirm("evt-1", Channel.WHATSAPP);
+
+        DeliveryDeduplicator afterRestart = newDeduplicator(store);
+
+        assertThat(afterRestart.tryClaim("evt-1", Channel.WHATSAPP)).isFalse();
+        assertThat(afterRestart.tryClaim("evt-2", Channel.WHATSAPP)).isTrue();
+    }
+
+    private static DeliveryDeduplicator newDeduplicator(DedupStore store) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        if (store != null) beans.addBean("store", store);
+        DeliveryDeduplicator deduplicator = new DeliveryDeduplicator(beans.getBeanProvider(DedupStore.class));
+        ReflectionTestUtils.setField(deduplicator, "enabled", true);
+        ReflectionTestUtils.setField(deduplicator, "ttl", Duration.ofHours(1));
+        ReflectionTestUtils.setField(deduplicator, "maxEntries", 1_000);
+        deduplicator.init();
+        return deduplicator;
+    }
+
+    private static final class InMemoryStore implements DedupStore {
+        private final Set<String> keys = new HashSet<>();
+
+        @Override
+        public boolean contains(String key) {
+            return keys.contains(key);
+        }
+
+        @Override
+        public void record(String key) {
+            keys.add(key);
+        }
+
+        @Override
+        public void forEachSince(Instant since, Consumer<String> action) {
+            keys.forEach(action);
+        }
+    }
+}
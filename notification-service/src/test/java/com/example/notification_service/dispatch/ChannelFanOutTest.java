@@ -0,0 +1,155 @@
+package com.example.notification_service.dispatch;
+
+import com.example.notification_service.logging.DeliveryLog;
+import com.example.notification_service.metrics.NotificationMetrics;
+import com.example.notification_service.model.Channel;
+import com.example.notification_service.model.NotificationEvent;
+import com.example.notification_service.retry.DeliveryFailureHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChannelFanOutTest {
+
+    private final ChannelDeliverer deliverer = mock(ChannelDeliverer.class);
+    private final DeliveryFailureHandler failureHandler = mock(DeliveryFailureHandler.class);
+    private final ChannelFanOut fanOut = new ChannelFanOut(deliverer, failureHandler,
+            new NotificationMetrics(new SimpleMeterRegistry()), mock(DeliveryLog.class));
+
+    @AfterEach
+    void tearDown() {
+        fanOut.shutdown();
+    }
+
+    @Test
+    void sendsBothChannelsAtTheSameTime() throws Exception {
+        deadlines(Duration.ofSeconds(5), Duration.ofSeconds(5));
+        // each send only returns once the other one has started
+        CyclicBarrier bothStarted = new CyclicBarrier(2);
+        when(deliverer.deliver(any(), any(), anyLong())).thenAnswer(invocation -> {
+            bothStarted.await(2, TimeUnit.SECONDS);
+            return true;
+        });
+
+        FanOutResult result = fanOut.fanOut(event("+94771234567", "nadee@example.com"), System.nanoTime());
+
+        assertThat(result.statuses()).containsEntry(Channel.WHATSAPP, DeliveryStatus.DELIVERED)
+                .containsEntry(Channel.EMAIL, DeliveryStatus.DELIVERED);
+        assertThat(result.delivered()).isTrue();
+    }
+
+    @Test
+    void aSlowChannelIsInterruptedAtItsDeadlineAndRetriedWhenTheSendFails() throws Exception {
+        deadlines(Duration.ofMillis(100), Duration.ofSeconds(5));
+        NotificationEvent event = event("+94771234567", "nadee@example.com");
+        IllegalStateException aborted = new IllegalStateException("send aborted");
+        CountDownLatch failed = new CountDownLatch(1);
+        when(deliverer.deliver(eq(Channel.WHATSAPP), any(), anyLong())).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                throw aborted;
+            }
+            return true;
+        });
+        when(deliverer.deliver(eq(Channel.EMAIL), any(), anyLong())).thenReturn(true);
+        doAnswer(invocation -> {
+            failed.countDown();
+            return null;
+        }).when(failureHandler).onFailure(eq(Channel.WHATSAPP), eq(event), eq(0), eq(aborted));
+
+        long start = System.nanoTime();
+        FanOutResult result = fanOut.fanOut(event, System.nanoTime());
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+        assertThat(result.statuses()).containsEntry(Channel.WHATSAPP, DeliveryStatus.TIMED_OUT)
+                .containsEntry(Channel.EMAIL, DeliveryStatus.DELIVERED);
+        assertThat(result.delivered()).isFalse();
+        // the send itself hands the failure on, not the thread that gave up waiting
+        assertThat(failed.await(2, TimeUnit.SECONDS)).isTrue();
+        verify(failureHandler, never()).onFailure(eq(Channel.EMAIL), any(), eq(0), any());
+    }
+
+    @Test
+    void aSendThatFinishesAfterItsDeadlineIsNotRetried() throws Exception {
+        deadlines(Duration.ofMillis(50), Duration.ofSeconds(5));
+        NotificationEvent event = event("+94771234567", null);
+        CountDownLatch delivered = new CountDownLatch(1);
+        // like a blocking socket write, ignores the interrupt and completes
+        when(deliverer.deliver(eq(Channel.WHATSAPP), any(), anyLong())).thenAnswer(invocation -> {
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+            while (System.nanoTime() < end) Thread.onSpinWait();
+            delivered.countDown();
+            return true;
+        });
+
+        FanOutResult result = fanOut.fanOut(event, System.nanoTime());
+
+        assertThat(result.statuses()).containsEntry(Channel.WHATSAPP, DeliveryStatus.TIMED_OUT);
+        assertThat(delivered.await(2, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(50);
+        verify(failureHandler, never()).onFailure(any(), any(), anyInt(), any());
+    }
+
+    @Test
+    void aChannelWithoutRecipientIsSkipped() {
+        deadlines(Duration.ofSeconds(5), Duration.ofSeconds(5));
+        when(deliverer.deliver(eq(Channel.EMAIL), any(), anyLong())).thenReturn(false);
+
+        FanOutResult result = fanOut.fanOut(event(null, "nadee@example.com"), System.nanoTime());
+
+        assertThat(result.statuses()).containsEntry(Channel.WHATSAPP, DeliveryStatus.SKIPPED)
+                .containsEntry(Channel.EMAIL, DeliveryStatus.DUPLICATE);
+        // the primary had no address and the secondary went out earlier
+        assertThat(result.delivered()).isTrue();
+        verify(deliverer, never()).deliver(eq(Channel.WHATSAPP), any(), anyLong());
+    }
+
+    @Test
+    void aFailedSendIsHandedToTheRetryTiers() {
+        deadlines(Duration.ofSeconds(5), Duration.ofSeconds(5));
+        NotificationEvent event = event("+94771234567", "nadee@example.com");
+        RuntimeException failure = new RuntimeException("SMTP 451");
+        when(deliverer.deliver(eq(Channel.WHATSAPP), any(), anyLong())).thenReturn(true);
+        when(deliverer.deliver(eq(Channel.EMAIL), any(), anyLong())).thenThrow(failure);
+
+        FanOutResult result = fanOut.fanOut(event, System.nanoTime());
+
+        assertThat(result.statuses()).containsEntry(Channel.WHATSAPP, DeliveryStatus.DELIVERED)
+                .containsEntry(Channel.EMAIL, DeliveryStatus.FAILED);
+        assertThat(result.delivered()).isTrue();
+        verify(failureHandler).onFailure(Channel.EMAIL, event, 0, failure);
+    }
+
+    private void deadlines(Duration whatsApp, Duration email) {
+        ReflectionTestUtils.setField(fanOut, "whatsAppTimeout", whatsApp);
+        ReflectionTestUtils.setField(fanOut, "emailTimeout", email);
+    }
+
+    private static NotificationEvent event(String phone, String email) {
+        return NotificationEvent.builder()
+                .eventId("evt-1")
+                .eventType("WELCOME")
+                .recipientPhone(phone)
+                .recipientEmail(email)
+                .recipientName("Nadee")
+                .build();
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.notification_service.dispatch;
+
+import com.example.notification_service.logging.DeliveryLog;
+import com.example.notification_service.metrics.NotificationMetrics;
+import com.example.notification_service.model.Channel;
+import com.example.notification_service.model.NotificationEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class DeliveryCoalescerTest {
+
+    private final ChannelDeliverer deliverer = mock(ChannelDeliverer.class);
+    private DeliveryCoalescer coalescer;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        coalescer.stop();
+    }
+
+    @Test
+    void aBurstForOneRecipientGoesOutAsOneDigestAfterTheWindow() throws InterruptedException {
+        coalescer = coalescer(Duration.ofMillis(200), 10);
+        CountDownLatch done = new CountDownLatch(2);
+        NotificationEvent welcome = event("evt-1", "WELCOME");
+        NotificationEvent promotion = event("evt-2", "PROMOTION");
+
+        assertThat(coalescer.hold(welcome, System.nanoTime(), done::countDown)).isTrue();
+        assertThat(coalescer.hold(promotion, System.nanoTime(), done::countDown)).isTrue();
+        assertThat(coalescer.held()).isEqualTo(2);
+
+        verify(deliverer, timeout(5000)).deliverDigest(eq(Channel.WHATSAPP), eq(List.of(welcome, promotion)), anyLong());
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(coalescer.held()).isZero();
+    }
+
+    @Test
+    void aPaymentIsNeverHeldAndFlushesTheOpenDigest() {
+        coalescer = coalescer(Duration.ofMinutes(5), 10);
+        NotificationEvent welcome = event("evt-1", "WELCOME");
+
+        assertThat(coalescer.hold(welcome, System.nanoTime(), () -> { })).isTrue();
+        assertThat(coalescer.hold(event("evt-2", "PAYMENT_CONFIRMED"), System.nanoTime(), () -> { })).isFalse();
+
+        verify(deliverer, timeout(5000)).deliverDigest(eq(Channel.WHATSAPP), eq(List.of(welcome)), anyLong());
+    }
+
+    @Test
+    void aFullDigestIsSentWithoutWaitingForTheWindow() {
+        coalescer = coalescer(Duration.ofMinutes(5), 2);
+        NotificationEvent first = event("evt-1", "WELCOME");
+        NotificationEvent second = event("evt-2", "PROMOTION");
+
+        coalescer.hold(first, System.nanoTime(), () -> { });
+        coalescer.hold(second, System.nanoTime(), () -> { });
+
+        verify(deliverer, timeout(5000)).deliverDigest(eq(Channel.WHATSAPP), eq(List.of(first, second)), anyLong());
+    }
+
+    @Test
+    void pastTheBoundEventsAreLeftToTheCaller() {
+        coalescer = coalescer(Duration.ofMinutes(5), 10);
+        ReflectionTestUtils.setField(coalescer, "maxHeld", 1);
+
+        assertThat(coalescer.hold(event("evt-1", "WELCOME"), System.nanoTime(), () -> { })).isTrue();
+        assertThat(coalescer.hold(event("evt-2", "WELCOME"), System.nanoTime(), () -> { })).isFalse();
+        assertThat(coalescer.held()).isEqualTo(1);
+    }
+
+    private DeliveryCoalescer coalescer(Duration window, int maxPerDigest) {
+        DeliveryCoalescer coalescer = new DeliveryCoalescer(deliverer,
+                new NotificationMetrics(new SimpleMeterRegistry()), new DeliveryLog(false, 0));
+        ReflectionTestUtils.setField(coalescer, "enabled", true);
+        ReflectionTestUtils.setField(coalescer, "window", window);
+        ReflectionTestUtils.setField(coalescer, "maxPerDigest", maxPerDigest);
+        ReflectionTestUtils.setField(coalescer, "maxHeld", 100);
+        ReflectionTestUtils.setField(coalescer, "eventTypes", Set.of("WELCOME", "PROMOTION"));
+        return coalescer;
+    }
+
+    private static NotificationEvent event(String id, String type) {
+        return NotificationEvent.builder()
+                .eventId(id)
+                .eventType(type)
+                .recipientPhone("+94771234567")
+                .build();
+    }
+}
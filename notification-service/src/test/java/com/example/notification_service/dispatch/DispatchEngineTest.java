@@ -0,0 +1,202 @@
+package com.example.notification_service.dispatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DispatchEngineTest {
+
+    private DispatchEngine engine;
+
+    @AfterEach
+    void tearDown() {
+        if (engine != null) engine.stop();
+    }
+
+    @Test
+    void tasksForOneKeyRunInSubmissionOrder() throws Exception {
+        engine = engine(4, 0);
+        int keys = 8;
+        int perKey = 50;
+        Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(keys * perKey);
+
+        // interleaved submissions with uneven task durations: only the per-key order is guaranteed
+        for (int i = 0; i < perKey; i++) {
+            for (int k = 0; k < keys; k++) {
+                String key = "recipient-" + k;
+                int sequence = i;
+                engine.submit(key, Lane.TRANSACTIONAL, () -> {
+                    if (ThreadLocalRandom.current().nextInt(10) == 0) sleep(1);
+                    seen.computeIfAbsent(key, x -> new CopyOnWriteArrayList<>()).add(sequence);
+                    done.countDown();
+                });
+            }
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        List<Integer> expected = IntStream.range(0, perKey).boxed().toList();
+        assertThat(seen).hasSize(keys);
+        seen.values().forEach(order -> assertThat(order).isEqualTo(expected));
+    }
+
+    @Test
+    void transactionalWorkOvertakesQueuedBulkWork() throws Exception {
+        engine = engine(1, 0);
+        CountDownLatch bulkStarted = new CountDownLatch(1);
+        CountDownLatch releaseBulk = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        engine.submit("a", Lane.BULK, () -> {
+            bulkStarted.countDown();
+            await(releaseBulk);
+            order.add("promo-1");
+            done.countDown();
+        });
+        assertThat(bulkStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        engine.submit("a", Lane.BULK, () -> {
+            order.add("promo-2");
+            done.countDown();
+        });
+        engine.submit("a", Lane.TRANSACTIONAL, () -> {
+            order.add("payment");
+            done.countDown();
+        });
+        releaseBulk.countDown();
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(order).containsExactly("promo-1", "payment", "promo-2");
+    }
+
+    @Test
+    void reservedWorkersNeverRunBulkWork() throws Exception {
+        engine = engine(2, 1);
+        CountDownLatch releaseBulk = new CountDownLatch(1);
+        CountDownLatch bulkStarted = new CountDownLatch(1);
+        CountDownLatch payment = new CountDownLatch(1);
+        // keys are routed by hash; pick one per worker
+        String first = keyFor(0);
+        String second = keyFor(1);
+
+        engine.submit(first, Lane.BULK, () -> {
+            bulkStarted.countDown();
+            await(releaseBulk);
+        });
+        assertThat(bulkStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        engine.submit(second, Lane.BULK, () -> await(releaseBulk));
+        engine.submit(second, Lane.TRANSACTIONAL, payment::countDown);
+
+        // only one bulk slot: the second bulk task is held back and the payment goes first
+        assertThat(payment.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(engine.pending(Lane.BULK)).isEqualTo(1);
+        releaseBulk.countDown();
+    }
+
+    @Test
+    void transactionalWorkQueuedBehindABulkTaskStartsOnAnotherWorker() throws Exception {
+        engine = engine(2, 1);
+        CountDownLatch releaseBulk = new CountDownLatch(1);
+        CountDownLatch bulkStarted = new CountDownLatch(1);
+        CountDownLatch payment = new CountDownLatch(1);
+        String key = keyFor(0);
+
+        // the only bulk slot is taken by a long task on the worker owning the key
+        engine.submit(key, Lane.BULK, () -> {
+            bulkStarted.countDown();
+            await(releaseBulk);
+        });
+        assertThat(bulkStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        long queued = System.nanoTime();
+        engine.submit(key, Lane.TRANSACTIONAL, payment::countDown);
+
+        assertThat(payment.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(Duration.ofNanos(System.nanoTime() - queued)).isLessThan(Duration.ofMillis(200));
+        releaseBulk.countDown();
+    }
+
+    @Test
+    void aFullBulkLaneRefusesWithoutBlocking() throws Exception {
+        engine = engine(1, 0);
+        CountDownLatch releaseBulk = new CountDownLatch(1);
+        CountDownLatch bulkStarted = new CountDownLatch(1);
+        engine.submit("a", Lane.BULK, () -> {
+            bulkStarted.countDown();
+            await(releaseBulk);
+        });
+        assertThat(bulkStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < 16; i++) {
+            assertThat(engine.trySubmit("a", Lane.BULK, () -> { })).isTrue();
+        }
+
+        assertThat(engine.trySubmit("a", Lane.BULK, () -> { })).isFalse();
+        // the transactional lane of the same worker still takes work
+        assertThat(engine.trySubmit("a", Lane.TRANSACTIONAL, () -> { })).isTrue();
+        releaseBulk.countDown();
+    }
+
+    @Test
+    void queuedBulkWorkStartsWhenAnotherWorkerFreesTheSlot() throws Exception {
+        engine = engine(2, 1);
+        CountDownLatch releaseBulk = new CountDownLatch(1);
+        CountDownLatch bulkStarted = new CountDownLatch(1);
+        CountDownLatch secondRan = new CountDownLatch(1);
+
+        engine.submit(keyFor(0), Lane.BULK, () -> {
+            bulkStarted.countDown();
+            await(releaseBulk);
+        });
+        assertThat(bulkStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        engine.submit(keyFor(1), Lane.BULK, secondRan::countDown);
+        assertThat(secondRan.await(100, TimeUnit.MILLISECONDS)).isFalse();
+
+        // the idle worker is woken by the slot release, not by its next idle timeout
+        releaseBulk.countDown();
+        assertThat(secondRan.await(150, TimeUnit.MILLISECONDS)).isTrue();
+    }
+
+    private DispatchEngine engine(int workers, int reserved) {
+        DispatchEngine engine = new DispatchEngine();
+        ReflectionTestUtils.setField(engine, "workerCount", workers);
+        ReflectionTestUtils.setField(engine, "queueCapacity", 16);
+        ReflectionTestUtils.setField(engine, "bulkQueueCapacity", 16);
+        ReflectionTestUtils.setField(engine, "reservedWorkers", reserved);
+        ReflectionTestUtils.setField(engine, "latencyTarget", Duration.ofSeconds(1));
+        engine.start();
+        return engine;
+    }
+
+    private String keyFor(int worker) {
+        for (int i = 0; ; i++) {
+            if (engine.workerFor("key-" + i) == worker) return "key-" + i;
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.notification_service.dispatch;
+
+import com.example.notification_service.campaign.CampaignEngine;
+import com.example.notification_service.metrics.NotificationMetrics;
+import com.example.notification_service.model.Channel;
+import com.example.notification_service.model.NotificationEvent;
+import com.example.notification_service.scheduler.NotificationScheduler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class MicroBatchDispatcherTest {
+
+    private final ChannelDeliverer deliverer = mock(ChannelDeliverer.class);
+    private DispatchEngine engine;
+    private MicroBatchDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        // one worker, so every recipient shares it and micro-batches run in submission order
+        engine = new DispatchEngine();
+        ReflectionTestUtils.setField(engine, "workerCount", 1);
+        ReflectionTestUtils.setField(engine, "queueCapacity", 16);
+        ReflectionTestUtils.setField(engine, "bulkQueueCapacity", 16);
+        ReflectionTestUtils.setField(engine, "reservedWorkers", 0);
+        ReflectionTestUtils.setField(engine, "latencyTarget", Duration.ofSeconds(1));
+        engine.start();
+
+        dispatcher = new MicroBatchDispatcher(engine, deliverer, new NotificationMetrics(new SimpleMeterRegistry()),
+                mock(NotificationScheduler.class), mock(CampaignEngine.class));
+        ReflectionTestUtils.setField(dispatcher, "microBatchSize", 2);
+        ReflectionTestUtils.setField(dispatcher, "awaitTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(dispatcher, "cancelTimeout", Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.stop();
+    }
+
+    @Test
+    void groupsAPollByTypeAndChannelInPollOrder() {
+        NotificationEvent first = event("evt-1", "WELCOME", "+94770000001", "a@example.com");
+        NotificationEvent payment = event("evt-2", "PAYMENT_CONFIRMED", "+94770000002", null);
+        NotificationEvent second = event("evt-3", "WELCOME", "+94770000003", null);
+        NotificationEvent third = event("evt-4", "WELCOME", "+94770000004", null);
+
+        assertThat(dispatcher.dispatch(List.of(first, payment, second, third))).isTrue();
+
+        verify(deliverer).deliverBatch(eq(Channel.WHATSAPP), eq(List.of(first, second)), anyLong(), any());
+        verify(deliverer).deliverBatch(eq(Channel.WHATSAPP), eq(List.of(third)), anyLong(), any());
+        verify(deliverer).deliverBatch(eq(Channel.EMAIL), eq(List.of(first)), anyLong(), any());
+        verify(deliverer).deliverBatch(eq(Channel.WHATSAPP), eq(List.of(payment)), anyLong(), any());
+        verifyNoMoreInteractions(deliverer);
+        assertThat(dispatcher.inFlight()).isZero();
+    }
+
+    @Test
+    void aPollPastItsTimeoutIsCancelledBeforeItIsReportedUndelivered() {
+        ReflectionTestUtils.setField(dispatcher, "awaitTimeout", Duration.ofMillis(100));
+        // the first micro-batch is stuck until it is cancelled; the second is still queued behind it
+        when(deliverer.deliverBatch(any(), anyList(), anyLong(), any())).thenAnswer(invocation -> {
+            BooleanSupplier cancelled = invocation.getArgument(3);
+            while (!cancelled.getAsBoolean()) Thread.sleep(5);
+            return 0;
+        });
+
+        boolean delivered = dispatcher.dispatch(List.of(
+                event("evt-1", "WELCOME", "+94770000001", null),
+                event("evt-2", "PAYMENT_CONFIRMED", "+94770000002", null)));
+
+        assertThat(delivered).isFalse();
+        // nothing from the poll is left running when the caller nacks it
+        assertThat(dispatcher.inFlight()).isZero();
+        verify(deliverer, times(1)).deliverBatch(any(), anyList(), anyLong(), any());
+    }
+
+    private static NotificationEvent event(String id, String type, String phone, String email) {
+        return NotificationEvent.builder()
+                .eventId(id)
+                .eventType(type)
+                .recipientPhone(phone)
+                .recipientEmail(email)
+                .build();
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.notification_service.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects end-to-end latencies into a preallocated array; percentiles are computed by
+ * sorting a copy when the run is over.
+ */
+class LatencyRecorder {
+
+    private final AtomicLongArray samples;
+    private final AtomicInteger count = new AtomicInteger();
+
+    LatencyRecorder(int capacity) {
+        samples = new AtomicLongArray(capacity);
+    }
+
+    void record(long nanos) {
+        int index = count.getAndIncrement();
+        if (index < samples.length()) samples.set(index, nanos);
+    }
+
+    int count() {
+        return count.get();
+    }
+
+    String summary() {
+        int n = Math.min(count.get(), samples.length());
+        if (n == 0) return "no samples";
+        long[] sorted = new long[n];
+        for (int i = 0; i < n; i++) sorted[i] = samples.get(i);
+        Arrays.sort(sorted);
+        return String.format("n=%d p50=%dms p99=%dms p999=%dms max=%dms",
+                n, millis(sorted, 0.50), millis(sorted, 0.99), millis(sorted, 0.999),
+                TimeUnit.NANOSECONDS.toMillis(sorted[n - 1]));
+    }
+
+    private static long millis(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, index)]);
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.notification_service.loadtest;
+
+import com.example.notification_service.model.NotificationEvent;
+import com.example.notification_service.phone.PhoneNormalizer;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishes {@link NotificationEvent}s at a steady rate with a weighted event type mix,
+ * mostly WhatsApp-primary and mostly with both addresses, like production traffic.
+ * Every event gets unique addresses, so a provider-side arrival can be matched back to
+ * the moment its event was published.
+ */
+class LoadGenerator {
+
+    private static final double PHONE_ONLY = 0.05;
+    private static final double EMAIL_ONLY = 0.05;
+    private static final double EMAIL_PRIMARY = 0.3;
+
+    private final KafkaTemplate<String, NotificationEvent> kafkaTemplate;
+    private final String topic;
+    private final PhoneNormalizer phones;
+    private final Map<String, Integer> mix;
+    private final int totalWeight;
+    private final Map<String, Long> publishedAt = new ConcurrentHashMap<>();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong expectedDeliveries = new AtomicLong();
+
+    /** @param mix event type to relative weight, e.g. {@code WELCOME:35,PAYMENT_CONFIRMED:50,PROMOTION:15} */
+    LoadGenerator(KafkaTemplate<String, NotificationEvent> kafkaTemplate, String topic, String mix, PhoneNormalizer phones) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.topic = topic;
+        this.phones = phones;
+        this.mix = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            this.mix.put(parts[0], Integer.parseInt(parts[1]));
+        }
+        this.totalWeight = this.mix.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /** Publishes for {@code duration} at {@code ratePerSecond}, pacing in 10 ms slices. */
+    void run(int ratePerSecond, Duration duration) {
+        long sliceNanos = Duration.ofMillis(10).toNanos();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long sent = 0;
+        while (System.nanoTime() < end) {
+            long due = (System.nanoTime() - start) * ratePerSecond / 1_000_000_000L;
+            while (sent < due) {
+                publish(sent++);
+            }
+            LockSupport.parkNanos(sliceNanos);
+        }
+        kafkaTemplate.flush();
+    }
+
+    /** Publish time ({@link System#nanoTime()}) of the event addressed to {@code recipient}, removed on read. */
+    Long takePublishedAt(String recipient) {
+        return publishedAt.remove(recipient);
+    }
+
+    long published() {
+        return published.get();
+    }
+
+    /** Channel deliveries the published events should produce. */
+    long expectedDeliveries() {
+        return expectedDeliveries.get();
+    }
+
+    private void publish(long sequence) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String type = pickType(random.nextInt(totalWeight));
+        double shape = random.nextDouble();
+        String phone = shape < EMAIL_ONLY ? null : String.format("07%08d", sequence % 100_000_000L);
+        String email = shape >= EMAIL_ONLY && shape < EMAIL_ONLY + PHONE_ONLY ? null : "user" + sequence + "@load.test";
+
+        NotificationEvent event = NotificationEvent.builder()
+                .eventId("load-" + sequence)
+                .eventType(type)
+                .recipientPhone(phone)
+                .recipientEmail(email)
+                .recipientName("Customer " + sequence)
+                .templateData(templateData(type, sequence))
+                .priority(random.nextDouble() < EMAIL_PRIMARY ? 2 : 1)
+                .timestamp(LocalDateTime.now())
+                .build();
+
+        long now = System.nanoTime();
+        if (phone != null) {
+            publishedAt.put(phones.normalize(phone).whatsApp(), now);
+            expectedDeliveries.incrementAndGet();
+        }
+        if (email != null) {
+            publishedAt.put(email, now);
+            expectedDeliveries.incrementAndGet();
+        }
+        kafkaTemplate.send(topic, event.getEventId(), event);
+        published.incrementAndGet();
+    }
+
+    private String pickType(int roll) {
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) return entry.getKey();
+        }
+        return mix.keySet().iterator().next();
+    }
+
+    private static Map<String, String> templateData(String type, long sequence) {
+        if (!"PAYMENT_CONFIRMED".equals(type)) return Map.of();
+        return Map.of(
+                "billNumber", "INV-" + sequence,
+                "paymentMethod", "Card",
+                "items", "Saree rental x1",
+                "subtotal", "12500.00",
+                "discount", "0",
+                "netAmount", "12500.00");
+    }
+}
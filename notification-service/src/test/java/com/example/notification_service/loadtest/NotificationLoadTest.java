@@ -0,0 +1,202 @@
+package com.example.notification_service.loadtest;
+
+import com.example.notification_service.model.NotificationEvent;
+import com.example.notification_service.phone.PhoneNormalizer;
+import com.example.notification_service.support.FakeSmtpServer;
+import com.example.notification_service.support.FakeTwilioServer;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * End-to-end load harness: embedded Kafka, the whole service, an in-process SMTP server
+ * and a Twilio Messages API stub, all in one JVM and offline. A generator publishes a
+ * realistic event mix at a fixed rate; every provider arrival is matched to its publish
+ * time. The run prints throughput and lag every few seconds and end-to-end p50/p99/p999
+ * per channel at the end.
+ * <p>
+ * Excluded from the normal build; run with
+ * {@code ./mvnw -Pload-test test -Dloadtest.rate=500 -Dloadtest.duration=60s}. Knobs:
+ * {@code loadtest.rate}, {@code loadtest.duration}, {@code loadtest.mix},
+ * {@code loadtest.smtp.latency}, {@code loadtest.smtp.error-rate},
+ * {@code loadtest.twilio.latency}, {@code loadtest.twilio.error-rate},
+ * {@code loadtest.drain-timeout}; any service property can be passed as {@code -D} too.
+ */
+@Tag("load")
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.auto-offset-reset=earliest",
+        "notification.kafka.concurrency=3",
+        "notification.retry.tier1-delay=1s",
+        "notification.retry.tier2-delay=2s",
+        "notification.retry.tier3-delay=5s",
+        "notification.retry.partitions=3",
+        "notification.ratelimit.enabled=false",
+        "notification.mail.pool.size=16",
+        "notification.spool.dir=target/loadtest-spool",
+        "notification.scheduler.dir=target/loadtest-schedule",
+        "notification.campaign.dir=target/loadtest-campaigns",
+        "spring.mail.host=localhost",
+        "spring.mail.username=",
+        "spring.mail.password=",
+        "spring.mail.properties.mail.smtp.auth=false",
+        "spring.mail.properties.mail.smtp.starttls.enable=false",
+        "twilio.account-sid=ACloadtest",
+        "twilio.auth-token=loadtest",
+        "notification.whatsapp.http.version=HTTP_1_1",
+        "notification.whatsapp.http.max-in-flight=64",
+        // per-send INFO logging would measure the console, not the service
+        "logging.level.com.example.notification_service=WARN",
+        "logging.level.notification.delivery=WARN"
+})
+@EmbeddedKafka(partitions = NotificationLoadTest.PARTITIONS, topics = NotificationLoadTest.TOPIC)
+class NotificationLoadTest {
+
+    static final String TOPIC = "notifications";
+    static final int PARTITIONS = 6;
+    private static final String GROUP = "notification-service-group";
+    private static final Duration REPORT_INTERVAL = Duration.ofSeconds(5);
+
+    private static final int RATE = Integer.getInteger("loadtest.rate", 200);
+    private static final Duration DURATION = duration("loadtest.duration", "30s");
+    private static final Duration DRAIN_TIMEOUT = duration("loadtest.drain-timeout", "60s");
+    private static final String MIX = System.getProperty("loadtest.mix", "WELCOME:35,PAYMENT_CONFIRMED:50,PROMOTION:15");
+
+    private static final FakeSmtpServer SMTP;
+    private static final FakeTwilioServer TWILIO;
+
+    static {
+        try {
+            SMTP = new FakeSmtpServer()
+                    .latency(duration("loadtest.smtp.latency", "20ms"))
+                    .errorRate(Double.parseDouble(System.getProperty("loadtest.smtp.error-rate", "0.01")))
+                    .keepMessages(false);
+            TWILIO = new FakeTwilioServer()
+                    .latency(duration("loadtest.twilio.latency", "50ms"))
+                    .errors(429, Double.parseDouble(System.getProperty("loadtest.twilio.error-rate", "0.01")))
+                    .keepRequests(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void providers(DynamicPropertyRegistry registry) {
+        registry.add("spring.mail.port", SMTP::port);
+        registry.add("notification.whatsapp.http.base-url", TWILIO::baseUrl);
+    }
+
+    @AfterAll
+    static void stopProviders() throws IOException {
+        SMTP.close();
+        TWILIO.close();
+    }
+
+    @Autowired
+    private KafkaTemplate<String, NotificationEvent> kafkaTemplate;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Autowired
+    private PhoneNormalizer phones;
+
+    @Test
+    void sustainedLoad() throws Exception {
+        long capacity = (long) RATE * DURATION.toSeconds() * 2 + 1024;
+        LatencyRecorder email = new LatencyRecorder((int) Math.min(Integer.MAX_VALUE - 8, capacity));
+        LatencyRecorder whatsApp = new LatencyRecorder((int) Math.min(Integer.MAX_VALUE - 8, capacity));
+        LoadGenerator generator = new LoadGenerator(kafkaTemplate, TOPIC, MIX, phones);
+        AtomicLong lastArrival = new AtomicLong();
+        SMTP.onDelivery(recipient -> arrived(generator, recipient, email, lastArrival));
+        TWILIO.onDelivery(recipient -> arrived(generator, recipient, whatsApp, lastArrival));
+
+        System.out.printf("%nLoad test: %d events/s for %s, mix %s%n", RATE, DURATION, MIX);
+        System.out.printf("%8s %10s %10s %10s %12s %8s%n", "time", "published", "email", "whatsapp", "delivered/s", "lag");
+
+        long start = System.nanoTime();
+        try (Admin admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString()));
+             ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor()) {
+            long[] previous = {0};
+            reporter.scheduleAtFixedRate(() -> {
+                long delivered = email.count() + whatsApp.count();
+                System.out.printf("%7ds %10d %10d %10d %12d %8d%n",
+                        TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start), generator.published(),
+                        email.count(), whatsApp.count(), (delivered - previous[0]) / REPORT_INTERVAL.toSeconds(), lag(admin));
+                previous[0] = delivered;
+            }, REPORT_INTERVAL.toMillis(), REPORT_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+
+            generator.run(RATE, DURATION);
+
+            long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+            while (email.count() + whatsApp.count() < generator.expectedDeliveries() && System.nanoTime() < drainDeadline) {
+                Thread.sleep(200);
+            }
+            reporter.shutdownNow();
+
+            long delivered = email.count() + whatsApp.count();
+            double seconds = Math.max(1, lastArrival.get() - start) / 1e9;
+            System.out.printf("%nPublished %d events, %d of %d expected channel deliveries arrived, final lag %d%n",
+                    generator.published(), delivered, generator.expectedDeliveries(), lag(admin));
+            System.out.printf("Sustained throughput: %.1f deliveries/s over %.1fs%n", delivered / seconds, seconds);
+            System.out.printf("Email    end-to-end: %s%n", email.summary());
+            System.out.printf("WhatsApp end-to-end: %s%n%n", whatsApp.summary());
+
+            assertThat(delivered).isPositive();
+        }
+    }
+
+    private static void arrived(LoadGenerator generator, String recipient, LatencyRecorder recorder, AtomicLong lastArrival) {
+        Long publishedAt = generator.takePublishedAt(recipient);
+        if (publishedAt == null) return; // a redelivery of something already counted
+        long now = System.nanoTime();
+        recorder.record(now - publishedAt);
+        lastArrival.accumulateAndGet(now, Math::max);
+    }
+
+    private static long lag(Admin admin) {
+        try {
+            Map<TopicPartition, OffsetAndMetadata> committed = admin.listConsumerGroupOffsets(GROUP)
+                    .partitionsToOffsetAndMetadata().get();
+            Map<TopicPartition, OffsetSpec> latest = new HashMap<>();
+            for (int p = 0; p < PARTITIONS; p++) latest.put(new TopicPartition(TOPIC, p), OffsetSpec.latest());
+            long lag = 0;
+            for (var entry : admin.listOffsets(latest).all().get().entrySet()) {
+                OffsetAndMetadata position = committed.get(entry.getKey());
+                lag += entry.getValue().offset() - (position == null ? 0 : position.offset());
+            }
+            return lag;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private static Duration duration(String property, String defaultValue) {
+        return DurationStyle.detectAndParse(System.getProperty(property, defaultValue));
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.notification_service.logging;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MaskingTest {
+
+    @Test
+    void keepsTheLastFourDigitsOfAPhoneNumber() {
+        assertThat(Masking.phone("+94771234567")).isEqualTo("+*******4567");
+        assertThat(Masking.phone("077 123 4567")).isEqualTo("*** *** 4567");
+        assertThat(Masking.phone("123")).isEqualTo("123");
+        assertThat(Masking.phone(null)).isEqualTo("-");
+    }
+
+    @Test
+    void keepsTheFirstCharacterAndDomainOfAnEmail() {
+        assertThat(Masking.email("nadee@example.com")).isEqualTo("n***@example.com");
+        assertThat(Masking.email("not-an-address")).isEqualTo("***");
+        assertThat(Masking.email("@example.com")).isEqualTo("***");
+    }
+}
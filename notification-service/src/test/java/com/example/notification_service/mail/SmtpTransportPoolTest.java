@@ -0,0 +1,121 @@
+package com.example.notification_service.mail;
+
+import com.example.notification_service.metrics.NotificationMetrics;
+import com.example.notification_service.support.FakeSmtpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SmtpTransportPoolTest {
+
+    private FakeSmtpServer server;
+    private JavaMailSenderImpl mailSender;
+    private SmtpTransportPool pool;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeSmtpServer();
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(server.port());
+        pool = newPool(Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        pool.close();
+        server.close();
+    }
+
+    @Test
+    void reusesConnectionsAcrossSends() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            pool.send(message("user" + i + "@example.com"));
+        }
+
+        assertThat(server.messages()).hasSize(10);
+        assertThat(server.connections()).isEqualTo(1);
+    }
+
+    @Test
+    void neverOpensMoreThanPoolSize() throws Exception {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                String to = "user" + i + "@example.com";
+                futures.add(executor.submit(() -> {
+                    pool.send(message(to));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) future.get();
+        }
+
+        assertThat(server.messages()).hasSize(40);
+        assertThat(server.connections()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void sendAllUsesOneSession() throws Exception {
+        List<MimeMessage> batch = new ArrayList<>();
+        for (int i = 0; i < 5; i++) batch.add(message("user" + i + "@example.com"));
+
+        List<MessagingException> failures = pool.sendAll(batch);
+
+        assertThat(failures).hasSize(5).containsOnlyNulls();
+        assertThat(server.messages()).hasSize(5);
+        assertThat(server.connections()).isEqualTo(1);
+    }
+
+    @Test
+    void reconnectsWhenServerDropsConnection() throws Exception {
+        pool.send(message("first@example.com"));
+        server.dropConnections();
+
+        pool.send(message("second@example.com"));
+
+        assertThat(server.messages()).hasSize(2);
+        assertThat(server.connections()).isEqualTo(2);
+    }
+
+    @Test
+    void evictsIdleConnections() throws Exception {
+        pool.close();
+        pool = newPool(Duration.ofMillis(50));
+        pool.send(message("first@example.com"));
+        assertThat(pool.idleConnections()).isEqualTo(1);
+
+        Thread.sleep(100);
+        pool.evictIdle();
+
+        assertThat(pool.idleConnections()).isZero();
+    }
+
+    private SmtpTransportPool newPool(Duration maxIdle) {
+        return new SmtpTransportPool(mailSender, new NotificationMetrics(new SimpleMeterRegistry()), true, 2, maxIdle, Duration.ofSeconds(5), Duration.ofSeconds(15));
+    }
+
+    private MimeMessage message(String to) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setFrom("noreply@example.com");
+        helper.setTo(to);
+        helper.setSubject("Test");
+        helper.setText("plain", "<p>html</p>");
+        return message;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.notification_service.metrics;
+
+import com.example.notification_service.metrics.NotificationMetrics.Outcome;
+import com.example.notification_service.metrics.NotificationMetrics.ProviderCall;
+import com.example.notification_service.model.Channel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NotificationMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final NotificationMetrics metrics = new NotificationMetrics(registry);
+
+    @Test
+    void deliveryRecordsLatencyPerChannelAndEventType() {
+        long receivedAt = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(50);
+
+        metrics.delivered(Channel.EMAIL, "PAYMENT_CONFIRMED", receivedAt);
+        metrics.delivered(Channel.EMAIL, "SOMETHING_NEW", receivedAt);
+
+        assertThat(registry.get("notification.delivery.latency")
+                .tags("channel", "email", "event_type", "PAYMENT_CONFIRMED").timer().totalTime(TimeUnit.MILLISECONDS))
+                .isGreaterThanOrEqualTo(50);
+        // unknown types share one series so a bad producer cannot blow up cardinality
+        assertThat(registry.get("notification.delivery.latency")
+                .tags("channel", "email", "event_type", "OTHER").timer().count()).isEqualTo(1);
+        assertThat(registry.get("notification.deliveries")
+                .tags("channel", "email", "result", "success", "reason", "delivered").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void firstDeliveryIsMeasuredFromJvmStartOnce() {
+        assertThat(registry.get("notification.startup.first_delivery").timeGauge().value()).isNaN();
+
+        metrics.delivered(Channel.WHATSAPP, "WELCOME", System.nanoTime());
+        double first = registry.get("notification.startup.first_delivery").timeGauge().value(TimeUnit.MILLISECONDS);
+        metrics.delivered(Channel.EMAIL, "WELCOME", System.nanoTime());
+
+        assertThat(first).isPositive();
+        assertThat(registry.get("notification.startup.first_delivery").timeGauge().value(TimeUnit.MILLISECONDS)).isEqualTo(first);
+    }
+
+    @Test
+    void readinessIsMeasuredSeparatelyFromTheFirstDelivery() {
+        assertThat(registry.get("notification.startup.partitions_assigned").timeGauge().value()).isNaN();
+
+        metrics.partitionsAssigned();
+        double assigned = registry.get("notification.startup.partitions_assigned").timeGauge().value(TimeUnit.MILLISECONDS);
+        metrics.partitionsAssigned();
+
+        assertThat(assigned).isPositive();
+        assertThat(registry.get("notification.startup.partitions_assigned").timeGauge().value(TimeUnit.MILLISECONDS)).isEqualTo(assigned);
+        assertThat(registry.get("notification.startup.ready").timeGauge().value()).isNaN();
+        assertThat(registry.get("notification.startup.first_delivery").timeGauge().value()).isNaN();
+    }
+
+    @Test
+    void outcomesAndProviderCallsAreCountedByReason() {
+        metrics.outcome(Channel.WHATSAPP, Outcome.PROVIDER_THROTTLED);
+        metrics.outcome(Channel.WHATSAPP, Outcome.DUPLICATE);
+        metrics.providerCall(ProviderCall.TWILIO_REQUEST, System.nanoTime(), false);
+
+        assertThat(registry.get("notification.deliveries")
+                .tags("channel", "whatsapp", "result", "failure", "reason", "provider_throttled").counter().count()).isEqualTo(1);
+        assertThat(registry.get("notification.deliveries")
+                .tags("channel", "whatsapp", "result", "skip", "reason", "duplicate").counter().count()).isEqualTo(1);
+        assertThat(registry.get("notification.provider.requests")
+                .tags("provider", "twilio", "operation", "request", "outcome", "error").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void inFlightGaugeFollowsRunningCalls() {
+        metrics.callStarted(Channel.WHATSAPP);
+        metrics.callStarted(Channel.WHATSAPP);
+        metrics.callFinished(Channel.WHATSAPP);
+
+        assertThat(registry.get("notification.deliveries.in_flight").tags("channel", "whatsapp").gauge().value()).isEqualTo(1);
+    }
+}
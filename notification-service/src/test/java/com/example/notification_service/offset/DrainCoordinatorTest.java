@@ -0,0 +1,106 @@
+package com.example.notification_service.offset;
+
+import com.example.notification_service.dispatch.DeliveryCoalescer;
+import com.example.notification_service.dispatch.MicroBatchDispatcher;
+import com.example.notification_service.metrics.NotificationMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.event.ConsumerStoppingEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class DrainCoordinatorTest {
+
+    private static final TopicPartition P0 = new TopicPartition("notifications", 0);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final OffsetTracker tracker = new OffsetTracker(100, Duration.ofHours(1));
+    private final DeliveryCoalescer coalescer = mock(DeliveryCoalescer.class);
+    private final DrainCoordinator coordinator = new DrainCoordinator(tracker, coalescer,
+            mock(MicroBatchDispatcher.class), new NotificationMetrics(registry));
+    private MockConsumer<String, String> consumer;
+
+    @BeforeEach
+    void setUp() {
+        consumer = new MockConsumer<>("earliest");
+        consumer.assign(List.of(P0));
+        ReflectionTestUtils.setField(coordinator, "rebalanceTimeout", Duration.ofMillis(300));
+        ReflectionTestUtils.setField(coordinator, "shutdownTimeout", Duration.ofMillis(300));
+    }
+
+    @Test
+    void aRevocationCommitsUpToTheFirstUnfinishedRecordAndCountsTheRest() {
+        for (long offset = 0; offset < 6; offset++) tracker.register("notifications", 0, offset);
+        tracker.complete("notifications", 0, 0);
+        tracker.complete("notifications", 0, 2);
+        // finishes while the drain waits
+        completeLater(3, 50);
+        completeLater(5, 50);
+
+        coordinator.onPartitionsRevokedBeforeCommit(consumer, List.of(P0));
+
+        OffsetAndMetadata committed = committed();
+        assertThat(committed.offset()).isEqualTo(1);
+        // 2, 3 and 5, relative to the committed position
+        assertThat(committed.metadata()).isEqualTo("c:1-2,4");
+        assertThat(abandoned("rebalance")).isEqualTo(2);
+        assertThat(registry.get("notification.drain.duration").tag("trigger", "rebalance").timer().count()).isOne();
+        verify(coalescer).flush();
+    }
+
+    @Test
+    void stoppingTheContainerWaitsForInFlightRecordsBeforeCommitting() {
+        for (long offset = 0; offset < 3; offset++) tracker.register("notifications", 0, offset);
+        tracker.complete("notifications", 0, 0);
+        completeLater(1, 50);
+
+        coordinator.onStopping(new ConsumerStoppingEvent(this, this, consumer, List.of(P0)));
+
+        assertThat(committed().offset()).isEqualTo(2);
+        assertThat(abandoned("shutdown")).isEqualTo(1);
+        assertThat(abandoned("rebalance")).isZero();
+        // the record left over is not ours any more; a task still queued for it skips it
+        assertThat(tracker.owns("notifications", 0, 2)).isFalse();
+    }
+
+    @Test
+    void nothingInFlightCommitsWithoutWaitingOrCountingADrain() {
+        tracker.register("notifications", 0, 0);
+        tracker.complete("notifications", 0, 0);
+
+        coordinator.onPartitionsRevokedBeforeCommit(consumer, List.of(P0));
+
+        assertThat(committed().offset()).isEqualTo(1);
+        assertThat(registry.get("notification.drain.duration").tag("trigger", "rebalance").timer().count()).isZero();
+    }
+
+    private void completeLater(long offset, long millis) {
+        Thread.ofVirtual().start(() -> {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            tracker.complete("notifications", 0, offset);
+        });
+    }
+
+    private OffsetAndMetadata committed() {
+        return consumer.committed(Set.of(P0)).get(P0);
+    }
+
+    private double abandoned(String trigger) {
+        return registry.get("notification.drain.abandoned").tag("trigger", trigger).counter().count();
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.notification_service.offset;
+
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OffsetTrackerTest {
+
+    private static final TopicPartition P0 = new TopicPartition("notifications", 0);
+
+    private MockConsumer<String, String> consumer;
+
+    @BeforeEach
+    void setUp() {
+        consumer = new MockConsumer<>("earliest");
+        consumer.assign(List.of(P0));
+    }
+
+    @Test
+    void commitsOnlyTheContiguousCompletedPrefix() {
+        OffsetTracker tracker = new OffsetTracker(1, Duration.ofHours(1));
+        for (long offset = 10; offset < 15; offset++) tracker.register("notifications", 0, offset);
+
+        tracker.complete("notifications", 0, 11);
+        tracker.complete("notifications", 0, 12);
+        tracker.complete("notifications", 0, 14);
+        tracker.maybeCommit(consumer);
+        assertThat(committed()).isEqualTo(10);
+
+        tracker.complete("notifications", 0, 10);
+        tracker.maybeCommit(consumer);
+        assertThat(committed()).isEqualTo(13);
+
+        tracker.complete("notifications", 0, 13);
+        tracker.maybeCommit(consumer);
+        assertThat(committed()).isEqualTo(15);
+        assertThat(tracker.inFlight()).isZero();
+    }
+
+    @Test
+    void batchesCommitsUntilTheCountIsReached() {
+        OffsetTracker tracker = new OffsetTracker(3, Duration.ofHours(1));
+        for (long offset = 0; offset < 3; offset++) tracker.register("notifications", 0, offset);
+
+        tracker.complete("notifications", 0, 0);
+        tracker.complete("notifications", 0, 1);
+        tracker.maybeCommit(consumer);
+        assertThat(consumer.committed(Set.of(P0))).doesNotContainKey(P0);
+
+        tracker.complete("notifications", 0, 2);
+        tracker.maybeCommit(consumer);
+        assertThat(committed()).isEqualTo(3);
+    }
+
+    @Test
+    void revokedPartitionsCommitWhatFinishedAndAreForgotten() {
+        OffsetTracker tracker = new OffsetTracker(100, Duration.ofHours(1));
+        tracker.register("notifications", 0, 0);
+        tracker.register("notifications", 0, 1);
+        tracker.complete("notifications", 0, 0);
+
+        tracker.onPartitionsRevokedBeforeCommit(consumer, List.of(P0));
+
+        assertThat(committed()).isEqualTo(1);
+        assertThat(tracker.committable(List.of(P0))).isEmpty();
+        // the late completion of a revoked record is ignored
+        tracker.complete("notifications", 0, 1);
+        assertThat(tracker.inFlight()).isZero();
+    }
+
+    @Test
+    void recordsFinishedPastTheGapAreSkippedByTheNextOwner() {
+        OffsetTracker previous = new OffsetTracker(100, Duration.ofHours(1));
+        for (long offset = 0; offset < 6; offset++) previous.register("notifications", 0, offset);
+        previous.complete("notifications", 0, 0);
+        previous.complete("notifications", 0, 2);
+        previous.complete("notifications", 0, 3);
+        previous.complete("notifications", 0, 5);
+        previous.onPartitionsRevokedBeforeCommit(consumer, List.of(P0));
+        assertThat(committed()).isEqualTo(1);
+        assertThat(consumer.committed(Set.of(P0)).get(P0).metadata()).startsWith("c:");
+
+        OffsetTracker next = new OffsetTracker(100, Duration.ofHours(1));
+        next.onPartitionsAssigned(consumer, List.of(P0));
+        assertThat(next.register("notifications", 0, 1)).isTrue();
+        assertThat(next.register("notifications", 0, 2)).isFalse();
+        assertThat(next.register("notifications", 0, 3)).isFalse();
+        assertThat(next.register("notifications", 0, 4)).isTrue();
+        assertThat(next.register("notifications", 0, 5)).isFalse();
+        assertThat(next.inFlight()).isEqualTo(2);
+
+        next.complete("notifications", 0, 1);
+        next.complete("notifications", 0, 4);
+        next.onPartitionsRevokedBeforeCommit(consumer, List.of(P0));
+        assertThat(committed()).isEqualTo(6);
+    }
+
+    @Test
+    void awaitCompletionReturnsWhatIsLeftAtTheDeadline() throws InterruptedException {
+        OffsetTracker tracker = new OffsetTracker(100, Duration.ofHours(1));
+        tracker.register("notifications", 0, 0);
+        tracker.register("notifications", 0, 1);
+        Thread.ofVirtual().start(() -> tracker.complete("notifications", 0, 0));
+
+        assertThat(tracker.awaitCompletion(List.of(P0), Duration.ofMillis(200))).isEqualTo(1);
+        assertThat(tracker.owns("notifications", 0, 1)).isTrue();
+
+        tracker.onPartitionsRevokedBeforeCommit(consumer, List.of(P0));
+        assertThat(committed()).isEqualTo(1);
+        // a task still queued for the revoked record skips it
+        assertThat(tracker.owns("notifications", 0, 1)).isFalse();
+    }
+
+    private long committed() {
+        Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(Set.of(P0));
+        return committed.get(P0).offset();
+    }
+}
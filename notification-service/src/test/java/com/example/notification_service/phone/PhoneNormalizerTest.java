@@ -0,0 +1,50 @@
+package com.example.notification_service.phone;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PhoneNormalizerTest {
+
+    private final PhoneNormalizer phones = new PhoneNormalizer("94", "0", 9, 16);
+
+    @ParameterizedTest
+    @ValueSource(strings = {"0771234567", "771234567", "94771234567", "+94771234567", "+94 77 123-4567",
+            "(077) 123 4567", "0094771234567", " 077.123.4567 "})
+    void normalizesLocalAndInternationalForms(String raw) {
+        assertThat(phones.normalize(raw).e164()).isEqualTo("+94771234567");
+        assertThat(phones.normalize(raw).whatsApp()).isEqualTo("whatsapp:+94771234567");
+    }
+
+    @Test
+    void keepsOtherCountriesAndCanonicalInput() {
+        String canonical = "+14155238886";
+
+        assertThat(phones.normalize("+1 415 523 8886").e164()).isEqualTo(canonical);
+        assertThat(phones.normalize(canonical).e164()).isSameAs(canonical);
+    }
+
+    @Test
+    void cachesByRawInput() {
+        assertThat(phones.normalize("0771234567")).isSameAs(phones.normalize("0771234567"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "   ", "077123456", "+9477123456", "077 123 45678", "07712x4567", "+94+771234567",
+            "123", "+1234567890123456", "+0771234567"})
+    void rejectsInvalidNumbersAsIllegalArguments(String raw) {
+        assertThatThrownBy(() -> phones.normalize(raw))
+                .isInstanceOf(InvalidPhoneNumberException.class)
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void theMessageOnlyShowsTheMaskedNumber() {
+        assertThatThrownBy(() -> phones.normalize("+94 77 123 45678"))
+                .hasMessageContaining("'+** ** *** *5678'")
+                .hasMessageNotContaining("77 123");
+    }
+}
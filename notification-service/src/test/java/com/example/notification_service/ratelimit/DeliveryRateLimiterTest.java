@@ -0,0 +1,42 @@
+package com.example.notification_service.ratelimit;
+
+import com.example.notification_service.model.Channel;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DeliveryRateLimiterTest {
+
+    @Test
+    void aDomainSlotIsGivenBackWhenTheChannelIsFull() throws InterruptedException {
+        // email: 1/s, burst 1; gmail.com: 10/s, burst 10
+        DeliveryRateLimiter limiter = limiter(Duration.ofMillis(100), "gmail.com=10");
+        limiter.acquire(Channel.EMAIL, "a@gmail.com");
+
+        for (int i = 0; i < 40; i++) {
+            assertThatThrownBy(() -> limiter.acquire(Channel.EMAIL, "b@gmail.com")).isInstanceOf(ThrottledException.class);
+        }
+        Thread.sleep(1_100);
+
+        // the channel has a slot again; the refused attempts did not keep the domain booked for seconds
+        limiter.acquire(Channel.EMAIL, "c@gmail.com");
+    }
+
+    @Test
+    void theWaitIsCappedAtHalfTheFanOutDeadline() {
+        DeliveryRateLimiter limiter = limiter(Duration.ofSeconds(30), "");
+        limiter.acquire(Channel.EMAIL, "a@example.com");
+
+        // the next slot is a second away: more than half of the 1s deadline
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> limiter.acquire(Channel.EMAIL, "b@example.com")).isInstanceOf(ThrottledException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(500));
+    }
+
+    private static DeliveryRateLimiter limiter(Duration maxWait, String domains) {
+        return new DeliveryRateLimiter(true, maxWait, 10, 10, 1, 1, domains, Duration.ofSeconds(1), Duration.ofSeconds(1));
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.notification_service.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void burstIsFreeThenSlotsAreSpacedByTheRate() {
+        TokenBucket bucket = new TokenBucket(10, 3);
+
+        long[] burst = {bucket.reserve(SECOND), bucket.reserve(SECOND), bucket.reserve(SECOND)};
+        long fourth = bucket.reserve(SECOND);
+        long fifth = bucket.reserve(SECOND);
+
+        assertThat(burst).containsOnly(0L);
+        assertThat(fourth).isBetween(50_000_000L, 100_000_000L);
+        assertThat(fifth - fourth).isBetween(90_000_000L, 110_000_000L);
+        assertThat(bucket.backlogNanos()).isPositive();
+    }
+
+    @Test
+    void refusesWithoutBookingWhenWaitExceedsLimit() {
+        TokenBucket bucket = new TokenBucket(1, 1);
+        bucket.reserve(SECOND);
+
+        assertThat(bucket.reserve(SECOND / 10)).isEqualTo(-1);
+        assertThat(bucket.reserve(2 * SECOND)).isBetween(SECOND / 2, SECOND);
+    }
+
+    @Test
+    void throttlingHalvesTheRateAndSuccessRecoversIt() {
+        TokenBucket bucket = new TokenBucket(10, 1);
+
+        bucket.onThrottled();
+        assertThat(bucket.currentRate()).isEqualTo(5.0);
+
+        for (int i = 0; i < 1_000; i++) bucket.onSuccess();
+        assertThat(bucket.currentRate()).isEqualTo(10.0);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.notification_service.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveLimitTest {
+
+    private static final long MS = 1_000_000;
+
+    private final AdaptiveLimit adaptive = new AdaptiveLimit(1, 64, 1.5, 0.75, 0.05);
+
+    @Test
+    void growsOnlyWhileTheLimitIsWhatHoldsDeliveriesBack() {
+        assertThat(adaptive.next(16, sample(100, 200 * MS, 0, 8), false)).isEqualTo(16);
+        assertThat(adaptive.next(16, sample(100, 200 * MS, 0, 16), false)).isEqualTo(20);
+        assertThat(adaptive.next(16, sample(100, 200 * MS, 0, 8), true)).isEqualTo(20);
+        assertThat(adaptive.next(64, sample(100, 200 * MS, 0, 64), true)).isEqualTo(64);
+    }
+
+    @Test
+    void shrinksWhenLatencyClimbsAndIsCutOnOverload() {
+        adaptive.next(32, sample(100, 200 * MS, 0, 10), false);
+
+        // latency within tolerance of the baseline: held
+        assertThat(adaptive.next(32, sample(100, 280 * MS, 0, 10), false)).isEqualTo(32);
+        // latency tripled: scaled by 1.5 / 3
+        assertThat(adaptive.next(32, sample(100, 600 * MS, 0, 10), false)).isBetween(16, 17);
+        // 10% of calls throttled or failing
+        assertThat(adaptive.next(32, sample(90, 200 * MS, 10, 32), true)).isEqualTo(24);
+        assertThat(adaptive.next(1, sample(0, 0, 5, 1), false)).isEqualTo(1);
+    }
+
+    @Test
+    void bulkheadLimitMovesWhileCallsAreRunning() {
+        Bulkhead bulkhead = new Bulkhead(2, Duration.ZERO);
+        assertThat(bulkhead.tryAcquire()).isTrue();
+        assertThat(bulkhead.tryAcquire()).isTrue();
+
+        bulkhead.setLimit(1);
+        bulkhead.release(10 * MS, true, false);
+        assertThat(bulkhead.tryAcquire()).isFalse();
+        bulkhead.release(10 * MS, true, false);
+        assertThat(bulkhead.tryAcquire()).isTrue();
+
+        bulkhead.setLimit(3);
+        assertThat(bulkhead.tryAcquire()).isTrue();
+        assertThat(bulkhead.tryAcquire()).isTrue();
+        assertThat(bulkhead.tryAcquire()).isFalse();
+
+        Bulkhead.Sample sample = bulkhead.drain();
+        assertThat(sample.completed()).isEqualTo(2);
+        assertThat(sample.peakInUse()).isEqualTo(3);
+        assertThat(bulkhead.drain().completed()).isZero();
+    }
+
+    // average latency per completed call
+    private static Bulkhead.Sample sample(long completed, long latencyNanos, long overloaded, int peakInUse) {
+        return new Bulkhead.Sample(completed, latencyNanos * completed, overloaded, peakInUse);
+    }
+}
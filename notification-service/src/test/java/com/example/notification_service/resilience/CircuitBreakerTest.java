@@ -0,0 +1,103 @@
+package com.example.notification_service.resilience;
+
+import com.example.notification_service.model.Channel;
+import com.example.notification_service.resilience.CircuitBreaker.State;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CircuitBreakerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(2);
+
+    @Test
+    void opensOnFailureRateAndFailsFast() {
+        CircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+        for (int i = 0; i < 5; i++) {
+            assertThat(breaker.tryAcquire()).isTrue();
+            breaker.onSuccess(FAST);
+        }
+        for (int i = 0; i < 4; i++) {
+            assertThat(breaker.tryAcquire()).isTrue();
+            breaker.onFailure(FAST);
+        }
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+
+        breaker.tryAcquire();
+        breaker.onFailure(FAST);
+
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+        assertThat(breaker.allowsCalls()).isFalse();
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void opensOnSlowCallRate() {
+        CircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+        for (int i = 0; i < 8; i++) {
+            breaker.tryAcquire();
+            breaker.onSuccess(SLOW);
+        }
+
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    void halfOpenProbesCloseOrReopenTheBreaker() throws InterruptedException {
+        CircuitBreaker breaker = breaker(Duration.ofMillis(20));
+        trip(breaker);
+        Thread.sleep(30);
+
+        // two probes are let through, a third caller is refused while they run
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.state()).isEqualTo(State.HALF_OPEN);
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).isFalse();
+        breaker.onSuccess(FAST);
+        breaker.onSuccess(FAST);
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+
+        trip(breaker);
+        Thread.sleep(30);
+        assertThat(breaker.tryAcquire()).isTrue();
+        breaker.onFailure(FAST);
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    void guardDoesNotCountInvalidInputAgainstTheProvider() {
+        ProviderGuard guard = new ProviderGuard(true, 10, 2, 0.5, Duration.ofSeconds(1), 0.8,
+                Duration.ofMinutes(1), 2, Duration.ofMillis(10), 1, 1);
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> guard.call(Channel.WHATSAPP, () -> {
+                throw new IllegalArgumentException("bad number");
+            })).isInstanceOf(IllegalArgumentException.class);
+        }
+        assertThat(guard.state(Channel.WHATSAPP)).isEqualTo(State.CLOSED);
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> guard.call(Channel.WHATSAPP, () -> {
+                throw new IllegalStateException("connection refused");
+            })).isInstanceOf(IllegalStateException.class);
+        }
+        assertThat(guard.state(Channel.WHATSAPP)).isEqualTo(State.OPEN);
+        assertThatThrownBy(() -> guard.checkCircuit(Channel.WHATSAPP)).isInstanceOf(CircuitOpenException.class);
+        // the other provider is unaffected
+        assertThat(guard.call(Channel.EMAIL, () -> "sent")).isEqualTo("sent");
+    }
+
+    private static CircuitBreaker breaker(Duration openDuration) {
+        return new CircuitBreaker(10, 5, 0.5, Duration.ofSeconds(1), 0.8, openDuration, 2, null);
+    }
+
+    private static void trip(CircuitBreaker breaker) {
+        while (breaker.state() != State.OPEN) {
+            if (breaker.tryAcquire()) breaker.onFailure(FAST);
+        }
+    }
+}
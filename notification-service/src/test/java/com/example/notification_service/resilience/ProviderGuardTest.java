@@ -0,0 +1,57 @@
+package com.example.notification_service.resilience;
+
+import com.example.notification_service.model.Channel;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProviderGuardTest {
+
+    // half of the calls so far over 50 ms opens the breaker; one bulkhead slot per channel
+    private final ProviderGuard guard = new ProviderGuard(true, 10, 1, 1.0, Duration.ofMillis(50), 0.5,
+            Duration.ofSeconds(30), 1, Duration.ofSeconds(2), 1, 1);
+
+    @Test
+    void waitingForABulkheadSlotIsNotASlowCall() throws Exception {
+        CountDownLatch holding = new CountDownLatch(1);
+        Thread first = Thread.ofVirtual().start(() -> assertThatThrownBy(() -> guard.call(Channel.EMAIL, () -> {
+            holding.countDown();
+            sleep(200);
+            // invalid input: gives the breaker permit back without a result
+            throw new IllegalArgumentException("bad address");
+        })).isInstanceOf(IllegalArgumentException.class));
+        assertThat(holding.await(5, TimeUnit.SECONDS)).isTrue();
+
+        long start = System.nanoTime();
+        guard.call(Channel.EMAIL, () -> { });
+        first.join();
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThan(Duration.ofMillis(100));
+        assertThat(guard.state(Channel.EMAIL)).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void aBatchIsTimedPerMessage() {
+        guard.call(Channel.EMAIL, 10, () -> sleep(100));
+
+        assertThat(guard.state(Channel.EMAIL)).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        guard.call(Channel.EMAIL, () -> sleep(100));
+
+        assertThat(guard.state(Channel.EMAIL)).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    private static Void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+}
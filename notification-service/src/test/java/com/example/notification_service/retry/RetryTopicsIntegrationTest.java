@@ -0,0 +1,119 @@
+package com.example.notification_service.retry;
+
+import com.example.notification_service.model.Channel;
+import com.example.notification_service.model.NotificationEvent;
+import com.example.notification_service.service.EmailService;
+import com.example.notification_service.service.WhatsAppService;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.auto-offset-reset=earliest",
+        "notification.retry.tier1-delay=100ms",
+        "notification.retry.tier2-delay=200ms",
+        "notification.retry.tier3-delay=300ms",
+        "notification.retry.partitions=1",
+        "notification.kafka.commit.interval=200ms",
+        // exhausted retries go to the DLT only without the local spool
+        "notification.spool.enabled=false",
+        "notification.scheduler.dir=target/retry-it-schedule",
+        "notification.campaign.dir=target/retry-it-campaigns"
+})
+@EmbeddedKafka(partitions = 1, topics = "notifications")
+class RetryTopicsIntegrationTest {
+
+    @Autowired
+    private KafkaTemplate<String, NotificationEvent> kafkaTemplate;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @MockitoBean
+    private WhatsAppService whatsAppService;
+
+    @MockitoBean
+    private EmailService emailService;
+
+    @Test
+    void failedChannelIsRetriedAloneThenDeadLettered() throws Exception {
+        doThrow(new RuntimeException("twilio down")).when(whatsAppService).sendWelcome(any(), any());
+        NotificationEvent event = NotificationEvent.builder()
+                .eventId("evt-retry-1")
+                .eventType("WELCOME")
+                .recipientPhone("0771234567")
+                .recipientEmail("bride@example.com")
+                .recipientName("Nadee")
+                .priority(1)
+                .build();
+
+        try (Consumer<String, String> dlt = dltConsumer()) {
+            kafkaTemplate.send("notifications", event.getEventId(), event);
+
+            ConsumerRecord<String, String> dead = KafkaTestUtils.getSingleRecord(dlt, RetryTopics.DLT, Duration.ofSeconds(30));
+
+            assertThat(new String(dead.headers().lastHeader(RetryTopics.CHANNEL_HEADER).value(), StandardCharsets.UTF_8))
+                    .isEqualTo(Channel.WHATSAPP.name());
+            assertThat(ByteBuffer.wrap(dead.headers().lastHeader(RetryTopics.ATTEMPT_HEADER).value()).getInt())
+                    .isEqualTo(4);
+            assertThat(dead.value()).contains("evt-retry-1");
+        }
+
+        // first attempt plus one per retry tier, while the email that succeeded is never resent
+        verify(whatsAppService, timeout(5_000).times(4)).sendWelcome("0771234567", "Nadee");
+        verify(emailService, times(1)).sendWelcome("bride@example.com", "Nadee");
+        // the source record is committed once its delivery (and hand-off to the retry tier) finished
+        assertThat(committedOffset()).isEqualTo(1);
+    }
+
+    private long committedOffset() throws Exception {
+        TopicPartition partition = new TopicPartition("notifications", 0);
+        try (Admin admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString()))) {
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (true) {
+                OffsetAndMetadata committed = admin.listConsumerGroupOffsets("notification-service-group")
+                        .partitionsToOffsetAndMetadata().get().get(partition);
+                if ((committed != null && committed.offset() > 0) || System.nanoTime() > deadline) {
+                    return committed == null ? -1 : committed.offset();
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    private Consumer<String, String> dltConsumer() {
+        Map<String, Object> props = KafkaTestUtils.consumerProps(broker, "dlt-test", false);
+        props.put("auto.offset.reset", "earliest");
+        Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(), new StringDeserializer()).createConsumer();
+        consumer.subscribe(List.of(RetryTopics.DLT));
+        return consumer;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.notification_service.scheduler;
+
+import com.example.notification_service.model.NotificationEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScheduleStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void unacknowledgedEventsAreReplayedAfterARestart() throws IOException {
+        ScheduleStore store = new ScheduleStore(dir, 64 * 1024, 64, 0.25, new JsonMapper());
+        store.open((position, event) -> { });
+        long first = store.append(event("evt-1"));
+        store.append(event("evt-2"));
+        store.ack(first);
+        store.close();
+
+        ScheduleStore reopened = new ScheduleStore(dir, 64 * 1024, 64, 0.25, new JsonMapper());
+        List<String> waiting = new ArrayList<>();
+        reopened.open((position, event) -> waiting.add(event.getEventId()));
+
+        assertThat(waiting).containsExactly("evt-2");
+        assertThat(reopened.pending()).isEqualTo(1);
+        reopened.close();
+    }
+
+    private static NotificationEvent event(String id) {
+        NotificationEvent event = new NotificationEvent();
+        event.setEventId(id);
+        event.setEventType("APPOINTMENT_REMINDER");
+        event.setSendAt(LocalDateTime.now().plusHours(1));
+        return event;
+    }
+}
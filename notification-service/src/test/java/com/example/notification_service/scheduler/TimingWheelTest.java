@@ -0,0 +1,48 @@
+package com.example.notification_service.scheduler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimingWheelTest {
+
+    @Test
+    void timersFireInDeadlineOrderAcrossLevels() throws InterruptedException {
+        long start = System.currentTimeMillis();
+        // 10ms x 8 buckets: level 0 spans 80ms, level 1 640ms, so these land on three levels
+        TimingWheel wheel = new TimingWheel(10, 8, start);
+        assertThat(wheel.add(start + 700, 3)).isTrue();
+        assertThat(wheel.add(start + 30, 1)).isTrue();
+        assertThat(wheel.add(start + 150, 2)).isTrue();
+        assertThat(wheel.size()).isEqualTo(3);
+
+        List<Long> fired = new ArrayList<>();
+        long giveUp = start + 5_000;
+        while (fired.size() < 3 && System.currentTimeMillis() < giveUp) {
+            wheel.advance(50, payload -> {
+                fired.add(payload);
+                // a timer fires on the tick its deadline falls in
+                assertThat(System.currentTimeMillis()).isGreaterThanOrEqualTo(start + deadlineOf(payload) - 10);
+            });
+        }
+
+        assertThat(fired).containsExactly(1L, 2L, 3L);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void deadlineWithinTheCurrentTickIsNotAdded() {
+        long now = System.currentTimeMillis();
+        TimingWheel wheel = new TimingWheel(100, 8, now);
+
+        assertThat(wheel.add(now - 1_000, 1)).isFalse();
+        assertThat(wheel.size()).isZero();
+    }
+
+    private static long deadlineOf(long payload) {
+        return payload == 1 ? 30 : payload == 2 ? 150 : 700;
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.notification_service.spool;
+
+import com.example.notification_service.model.Channel;
+import com.example.notification_service.model.NotificationEvent;
+import com.example.notification_service.spool.DeliverySpool.SpoolEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class DeliverySpoolTest {
+
+    @TempDir
+    Path dir;
+
+    private DeliverySpool spool;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (spool != null) spool.close();
+    }
+
+    @Test
+    void pendingDeliveriesSurviveARestart() throws IOException {
+        spool = open(64);
+        spool.append(Channel.WHATSAPP, event("evt-1"));
+        spool.append(Channel.EMAIL, event("evt-2"));
+        spool.append(Channel.WHATSAPP, event("evt-3"));
+        spool.ack(spool.peek(Channel.WHATSAPP, 1).getFirst());
+        spool.close();
+
+        spool = open(64);
+
+        assertThat(spool.pending()).isEqualTo(2);
+        assertThat(ids(spool.peek(Channel.WHATSAPP, 10))).containsExactly("evt-3");
+        assertThat(ids(spool.peek(Channel.EMAIL, 10))).containsExactly("evt-2");
+    }
+
+    @Test
+    void tornEntryAtTheTailIsIgnoredOnRecovery() throws IOException {
+        spool = open(64);
+        spool.append(Channel.EMAIL, event("evt-1"));
+        spool.append(Channel.EMAIL, event("evt-2"));
+        spool.close();
+        // flip a payload byte of the second entry, as if the write never finished
+        try (RandomAccessFile file = new RandomAccessFile(segments().getFirst().toFile(), "rw")) {
+            int second = SpoolSegment.HEADER + file.readInt();
+            file.seek(second + SpoolSegment.HEADER + 2);
+            file.write('#');
+        }
+
+        spool = open(64);
+
+        assertThat(ids(spool.peek(Channel.EMAIL, 10))).containsExactly("evt-1");
+    }
+
+    @Test
+    void acknowledgedSegmentsAreDeleted() throws IOException {
+        spool = open(8);
+        for (int i = 0; i < 20; i++) spool.append(Channel.EMAIL, event("evt-" + i));
+        assertThat(segments()).hasSize(3);
+
+        spool.peek(Channel.EMAIL, 20).forEach(spool::ack);
+
+        assertThat(spool.pending()).isZero();
+        assertThat(segments()).hasSize(1);
+    }
+
+    @Test
+    void compactionCopiesLiveEntriesOutOfSparseSegments() throws IOException {
+        spool = open(8);
+        for (int i = 0; i < 12; i++) spool.append(Channel.EMAIL, event("evt-" + i));
+        List<SpoolEntry> first = spool.peek(Channel.EMAIL, 7);
+        first.forEach(spool::ack);
+
+        spool.compact();
+
+        assertThat(segments()).hasSize(1);
+        assertThat(ids(spool.peek(Channel.EMAIL, 10)))
+                .containsExactly("evt-8", "evt-9", "evt-10", "evt-11", "evt-7");
+    }
+
+    @Test
+    void replayCountsSurviveCompactionAndARestart() throws IOException {
+        spool = open(8);
+        for (int i = 0; i < 8; i++) spool.append(Channel.EMAIL, event("evt-" + i));
+        List<SpoolEntry> entries = spool.peek(Channel.EMAIL, 8);
+        entries.subList(0, 7).forEach(spool::ack);
+        spool.append(Channel.EMAIL, event("evt-8"));
+        assertThat(spool.replayFailed(entries.get(7))).isEqualTo(1);
+        assertThat(spool.replayFailed(entries.get(7))).isEqualTo(2);
+
+        spool.compact();
+        spool.close();
+        spool = open(8);
+
+        assertThat(spool.peek(Channel.EMAIL, 10))
+                .extracting(entry -> entry.event().getEventId(), SpoolEntry::replays)
+                .containsExactly(tuple("evt-8", 0), tuple("evt-7", 2));
+    }
+
+    @Test
+    void compactionKeepsASegmentWhoseEntryNoLongerFitsASegment() throws IOException {
+        spool = open(8);
+        NotificationEvent large = NotificationEvent.builder().eventId("evt-large").eventType("WELCOME")
+                .recipientEmail("large@example.com").templateData(Map.of("body", "x".repeat(20_000))).build();
+        spool.append(Channel.EMAIL, large);
+        for (int i = 0; i < 7; i++) spool.append(Channel.EMAIL, event("evt-" + i));
+        spool.peek(Channel.EMAIL, 8).subList(1, 7).forEach(spool::ack);
+        spool.close();
+
+        // restarted with smaller segments than the large entry needs
+        spool = open(8, DataSize.ofKilobytes(16));
+        spool.compact();
+
+        assertThat(spool.pending()).isEqualTo(2);
+        assertThat(ids(spool.peek(Channel.EMAIL, 10))).containsExactly("evt-large", "evt-6");
+        spool.close();
+        spool = open(8, DataSize.ofKilobytes(16));
+        assertThat(ids(spool.peek(Channel.EMAIL, 10))).containsExactly("evt-large", "evt-6");
+    }
+
+    private DeliverySpool open(int segmentEntries) throws IOException {
+        return open(segmentEntries, DataSize.ofKilobytes(64));
+    }
+
+    private DeliverySpool open(int segmentEntries, DataSize segmentSize) throws IOException {
+        DeliverySpool spool = new DeliverySpool(new JsonMapper());
+        ReflectionTestUtils.setField(spool, "enabled", true);
+        ReflectionTestUtils.setField(spool, "directory", dir);
+        ReflectionTestUtils.setField(spool, "segmentSize", segmentSize);
+        ReflectionTestUtils.setField(spool, "segmentEntries", segmentEntries);
+        ReflectionTestUtils.setField(spool, "compactThreshold", 0.25);
+        spool.open();
+        return spool;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.toString().endsWith(SpoolSegment.SUFFIX)).sorted().toList();
+        }
+    }
+
+    private static NotificationEvent event(String id) {
+        return NotificationEvent.builder().eventId(id).eventType("WELCOME").recipientEmail(id + "@example.com").build();
+    }
+
+    private static List<String> ids(List<SpoolEntry> entries) {
+        return entries.stream().map(entry -> entry.event().getEventId()).toList();
+    }
+}
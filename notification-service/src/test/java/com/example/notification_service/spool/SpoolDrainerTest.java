@@ -0,0 +1,119 @@
+package com.example.notification_service.spool;
+
+import com.example.notification_service.dispatch.ChannelDeliverer;
+import com.example.notification_service.model.Channel;
+import com.example.notification_service.model.NotificationEvent;
+import com.example.notification_service.resilience.CircuitOpenException;
+import com.example.notification_service.retry.DeliveryFailureHandler;
+import com.example.notification_service.retry.RetryTopics;
+import com.example.notification_service.whatsapp.WhatsAppSendException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SpoolDrainerTest {
+
+    @TempDir
+    Path dir;
+
+    private final ChannelDeliverer deliverer = mock(ChannelDeliverer.class);
+    private final DeliveryFailureHandler failureHandler = mock(DeliveryFailureHandler.class);
+    private final NotificationEvent event = NotificationEvent.builder()
+            .eventId("evt-1").eventType("WELCOME").recipientPhone("+94771234567").build();
+    private DeliverySpool spool;
+    private SpoolDrainer drainer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        spool = new DeliverySpool(new JsonMapper());
+        ReflectionTestUtils.setField(spool, "enabled", true);
+        ReflectionTestUtils.setField(spool, "directory", dir);
+        ReflectionTestUtils.setField(spool, "segmentSize", DataSize.ofKilobytes(64));
+        ReflectionTestUtils.setField(spool, "segmentEntries", 64);
+        ReflectionTestUtils.setField(spool, "compactThreshold", 0.25);
+        spool.open();
+        spool.append(Channel.WHATSAPP, event);
+
+        drainer = new SpoolDrainer(spool, deliverer, failureHandler, mock(RetryTopics.class));
+        ReflectionTestUtils.setField(drainer, "batchSize", 16);
+        ReflectionTestUtils.setField(drainer, "concurrency", 1);
+        ReflectionTestUtils.setField(drainer, "maxReplays", 3);
+        ReflectionTestUtils.setField(drainer, "budget", Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        drainer.stop();
+        spool.close();
+    }
+
+    @Test
+    void aPermanentRejectionIsDeadLetteredOnTheFirstReplay() {
+        when(deliverer.deliver(Channel.WHATSAPP, event))
+                .thenThrow(new WhatsAppSendException(400, 63016, "outside the allowed window"));
+
+        drainer.drain();
+
+        verify(failureHandler).deadLetter(eq(Channel.WHATSAPP), eq(event), anyInt(), any(WhatsAppSendException.class));
+        assertThat(spool.pending()).isZero();
+    }
+
+    @Test
+    void anEntryThatKeepsFailingIsDeadLetteredAtTheCap() {
+        when(deliverer.deliver(Channel.WHATSAPP, event))
+                .thenThrow(new WhatsAppSendException(503, null, "unavailable"));
+
+        drainer.drain();
+        drainer.drain();
+        assertThat(spool.pending()).isEqualTo(1);
+        verify(failureHandler, never()).deadLetter(any(), any(), anyInt(), any());
+
+        drainer.drain();
+
+        verify(failureHandler).deadLetter(eq(Channel.WHATSAPP), eq(event), eq(3), any(WhatsAppSendException.class));
+        assertThat(spool.pending()).isZero();
+    }
+
+    @Test
+    void aRunStopsTakingBatchesOnceItsBudgetIsSpent() {
+        spool.append(Channel.WHATSAPP, event);
+        spool.append(Channel.WHATSAPP, event);
+        ReflectionTestUtils.setField(drainer, "batchSize", 1);
+        ReflectionTestUtils.setField(drainer, "budget", Duration.ZERO);
+        when(deliverer.deliver(Channel.WHATSAPP, event)).thenReturn(true);
+
+        drainer.drain();
+        assertThat(spool.pending()).isEqualTo(2);
+
+        drainer.drain();
+        drainer.drain();
+        assertThat(spool.pending()).isZero();
+    }
+
+    @Test
+    void anOpenCircuitDoesNotCountAsAFailedReplay() {
+        when(deliverer.deliver(Channel.WHATSAPP, event)).thenThrow(new CircuitOpenException(Channel.WHATSAPP));
+
+        for (int i = 0; i < 5; i++) drainer.drain();
+
+        verify(failureHandler, never()).deadLetter(any(), any(), anyInt(), any());
+        assertThat(spool.peek(Channel.WHATSAPP, 1).getFirst().replays()).isZero();
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.notification_service.support;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Minimal in-process SMTP server (no TLS, no AUTH) that accepts every message and keeps
+ * the raw DATA section. Good enough for JavaMail with {@code mail.smtp.auth=false}.
+ * <p>
+ * For load tests, a per-message latency and a share of transient {@code 451} replies can
+ * be injected, and a listener is told about every accepted recipient.
+ */
+public class FakeSmtpServer implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final List<String> messages = new CopyOnWriteArrayList<>();
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger connections = new AtomicInteger();
+    private volatile boolean running = true;
+    private volatile boolean keepMessages = true;
+    private volatile Duration latency = Duration.ZERO;
+    private volatile double errorRate;
+    private volatile Consumer<String> onDelivery = recipient -> { };
+
+    public FakeSmtpServer() throws IOException {
+        serverSocket = new ServerSocket(0);
+        // platform threads: JavaMail clients pin their carrier while blocked in synchronized socket reads
+        Thread.ofPlatform().daemon().name("fake-smtp-accept").start(this::acceptLoop);
+    }
+
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    public List<String> messages() {
+        return messages;
+    }
+
+    /** Delay before the reply to every message's DATA. */
+    public FakeSmtpServer latency(Duration latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /** Answers {@code 451} (try again later) to the given share (0..1) of messages. */
+    public FakeSmtpServer errorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /** Stops keeping message bodies, so long runs do not fill the heap. */
+    public FakeSmtpServer keepMessages(boolean keepMessages) {
+        this.keepMessages = keepMessages;
+        return this;
+    }
+
+    /** Called with each recipient address of every accepted message. */
+    public FakeSmtpServer onDelivery(Consumer<String> onDelivery) {
+        this.onDelivery = onDelivery;
+        return this;
+    }
+
+    /** Number of TCP connections accepted so far. */
+    public int connections() {
+        return connections.get();
+    }
+
+    /** Closes every open client connection, as a server restart or idle timeout would. */
+    public void dropConnections() {
+        for (Socket client : clients) {
+            try {
+                client.close();
+            } catch (IOException ignored) {
+            }
+        }
+        clients.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        dropConnections();
+        serverSocket.close();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket client = serverSocket.accept();
+                connections.incrementAndGet();
+                clients.add(client);
+                Thread.ofPlatform().daemon().name("fake-smtp-client").start(() -> handle(client));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void handle(Socket client) {
+        try (client;
+             BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+             OutputStream out = client.getOutputStream()) {
+            reply(out, "220 fake-smtp ready");
+            String line;
+            List<String> recipients = new ArrayList<>();
+            while ((line = in.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                switch (command) {
+                    case "EHLO" -> reply(out, "250-fake-smtp\r\n250 8BITMIME");
+                    case "HELO", "NOOP" -> reply(out, "250 OK");
+                    case "MAIL", "RSET" -> {
+                        recipients.clear();
+                        reply(out, "250 OK");
+                    }
+                    case "RCPT" -> {
+                        recipients.add(address(line));
+                        reply(out, "250 OK");
+                    }
+                    case "DATA" -> {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        StringBuilder data = keepMessages ? new StringBuilder() : null;
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            if (data != null) data.append(line.startsWith("..") ? line.substring(1) : line).append("\r\n");
+                        }
+                        if (!latency.isZero()) sleep(latency);
+                        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                            reply(out, "451 4.3.0 Try again later");
+                        } else {
+                            if (data != null) messages.add(data.toString());
+                            recipients.forEach(onDelivery);
+                            reply(out, "250 OK queued");
+                        }
+                        recipients.clear();
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "502 Command not implemented");
+                }
+            }
+        } catch (IOException ignored) {
+            // client went away or connection was dropped on purpose
+        } finally {
+            clients.remove(client);
+        }
+    }
+
+    private static String address(String rcptLine) {
+        int open = rcptLine.indexOf('<');
+        int close = rcptLine.indexOf('>', open + 1);
+        return open >= 0 && close > open ? rcptLine.substring(open + 1, close) : rcptLine.substring(Math.min(8, rcptLine.length())).trim();
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void reply(OutputStream out, String text) throws IOException {
+        out.write((text + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.notification_service.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * In-process stand-in for the Twilio Messages API
+ * ({@code POST /2010-04-01/Accounts/{sid}/Messages.json}). Answers 201 with a message
+ * resource by default; latency and an error status for a share of requests can be set,
+ * and a listener is told the {@code To} address of every accepted message.
+ */
+public class FakeTwilioServer implements AutoCloseable {
+
+    public record Request(String path, String authorization, Map<String, String> form) {
+    }
+
+    private final HttpServer server;
+    private final List<Request> requests = new CopyOnWriteArrayList<>();
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile Duration latency = Duration.ZERO;
+    private volatile int errorStatus = 429;
+    private volatile double errorRate;
+    private volatile boolean keepRequests = true;
+    private volatile Consumer<String> onDelivery = to -> { };
+
+    public FakeTwilioServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/2010-04-01/Accounts/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool(Thread.ofPlatform().daemon().factory()));
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public List<Request> requests() {
+        return requests;
+    }
+
+    /** Highest number of requests that were being handled at the same time. */
+    public int maxInFlight() {
+        return maxInFlight.get();
+    }
+
+    public FakeTwilioServer latency(Duration latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /** Answers {@code status} to the given share (0..1) of requests. */
+    public FakeTwilioServer errors(int status, double rate) {
+        this.errorStatus = status;
+        this.errorRate = rate;
+        return this;
+    }
+
+    /** Stops keeping requests, so long runs do not fill the heap. */
+    public FakeTwilioServer keepRequests(boolean keepRequests) {
+        this.keepRequests = keepRequests;
+        return this;
+    }
+
+    /** Called with the {@code To} address of every accepted message. */
+    public FakeTwilioServer onDelivery(Consumer<String> onDelivery) {
+        this.onDelivery = onDelivery;
+        return this;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+        try {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            Map<String, String> form = parseForm(body);
+            if (keepRequests) {
+                requests.add(new Request(exchange.getRequestURI().getPath(),
+                        exchange.getRequestHeaders().getFirst("Authorization"), form));
+            }
+            if (!latency.isZero()) Thread.sleep(latency.toMillis());
+
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                respond(exchange, errorStatus, "{\"code\":20429,\"message\":\"Too Many Requests\",\"status\":" + errorStatus + "}");
+            } else {
+                String sid = "SM" + String.format("%032d", sequence.incrementAndGet());
+                onDelivery.accept(form.get("To"));
+                respond(exchange, 201, "{\"sid\":\"" + sid + "\",\"status\":\"queued\"}");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parseForm(String body) {
+        Map<String, String> form = new LinkedHashMap<>();
+        for (String pair : body.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq < 0) continue;
+            form.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return form;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
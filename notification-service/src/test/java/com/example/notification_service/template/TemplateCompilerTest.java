@@ -0,0 +1,56 @@
+package com.example.notification_service.template;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TemplateCompilerTest {
+
+    @Test
+    void rendersPlaceholdersWithFormats() {
+        CompiledTemplate template = TemplateCompiler.compile("t", "Hi {{name:html}}, total Rs.{{amount:pad8}} ({{raw}})");
+
+        String out = template.render(Map.of("name", "<Ann & Bo>", "amount", "12.50", "raw", "<b>"));
+
+        assertThat(out).isEqualTo("Hi &lt;Ann &amp; Bo&gt;, total Rs.   12.50 (<b>)");
+    }
+
+    @Test
+    void rendersSectionsOnlyWhenValuePresent() {
+        CompiledTemplate template = TemplateCompiler.compile("t",
+                "{{#discount}}Discount {{discount}}\n{{/discount}}{{^items}}No items{{/items}}");
+
+        assertThat(template.render(Map.of("discount", "0", "items", ""))).isEqualTo("No items");
+        assertThat(template.render(Map.of("discount", "150", "items", "1x Saree"))).isEqualTo("Discount 150\n");
+    }
+
+    @Test
+    void bindingRendersAllButTheOpenKeys() {
+        CompiledTemplate template = TemplateCompiler.compile("t",
+                "{{title:html}} for {{name:html}}{{#offer}} - {{offer}}{{/offer}}{{#name}}!{{/name}}");
+
+        CompiledTemplate bound = template.bind(Map.of("title", "A & B", "offer", "20% off"), Set.of("name"));
+
+        assertThat(bound.render(Map.of("name", "<Ann>"))).isEqualTo("A &amp; B for &lt;Ann&gt; - 20% off!");
+        assertThat(bound.render(Map.of())).isEqualTo("A &amp; B for  - 20% off");
+        assertThat(bound.staticLength()).isEqualTo("A &amp; B for  - 20% off!".length());
+    }
+
+    @Test
+    void missingValuesRenderEmpty() {
+        assertThat(TemplateCompiler.compile("t", "[{{missing}}]").render(Map.of())).isEqualTo("[]");
+    }
+
+    @Test
+    void rejectsUnbalancedSections() {
+        assertThatThrownBy(() -> TemplateCompiler.compile("t", "{{#a}}open"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("never closed");
+        assertThatThrownBy(() -> TemplateCompiler.compile("t", "{{#a}}x{{/b}}"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
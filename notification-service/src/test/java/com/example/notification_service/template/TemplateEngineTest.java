@@ -0,0 +1,43 @@
+package com.example.notification_service.template;
+
+import com.example.notification_service.metrics.NotificationMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TemplateEngineTest {
+
+    private TemplateEngine templates;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        templates = new TemplateEngine(new NotificationMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(templates, "directory", "");
+        ReflectionTestUtils.setField(templates, "renderCacheSize", 16);
+        templates.load();
+    }
+
+    @Test
+    void rendersAndCachesImmutableValueMaps() {
+        String first = templates.render("whatsapp/welcome.txt", Map.of("name", "Nadee"));
+        String second = templates.render("whatsapp/welcome.txt", Map.of("name", "Nadee"));
+
+        assertThat(first).contains("Nadee");
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    void rendersButDoesNotCacheNullValues() {
+        Map<String, String> values = new HashMap<>();
+        values.put("name", null);
+
+        assertThat(templates.render("whatsapp/welcome.txt", values)).isNotNull();
+        assertThat(templates.render("whatsapp/welcome.txt", values)).isNotNull();
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.notification_service.whatsapp;
+
+import com.example.notification_service.metrics.NotificationMetrics;
+import com.example.notification_service.ratelimit.ProviderThrottling;
+import com.example.notification_service.support.FakeTwilioServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HttpWhatsAppTransportTest {
+
+    private FakeTwilioServer twilio;
+    private HttpWhatsAppTransport transport;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        twilio = new FakeTwilioServer();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (transport != null) transport.close();
+        twilio.close();
+    }
+
+    @Test
+    void postsFormEncodedMessageWithBasicAuth() {
+        transport = transport(4, Duration.ofSeconds(5));
+
+        WhatsAppTransport.WhatsAppReceipt receipt =
+                transport.send("whatsapp:+94771234567", "whatsapp:+14155238886", "Hi & welcome").join();
+
+        assertThat(receipt.sid()).startsWith("SM");
+        assertThat(receipt.status()).isEqualTo("queued");
+        FakeTwilioServer.Request request = twilio.requests().getFirst();
+        assertThat(request.path()).isEqualTo("/2010-04-01/Accounts/AC123/Messages.json");
+        assertThat(request.authorization())
+                .isEqualTo("Basic " + Base64.getEncoder().encodeToString("AC123:secret".getBytes()));
+        assertThat(request.form())
+                .containsEntry("To", "whatsapp:+94771234567")
+                .containsEntry("From", "whatsapp:+14155238886")
+                .containsEntry("Body", "Hi & welcome");
+    }
+
+    @Test
+    void rateLimitResponseIsRecognisedAsThrottling() {
+        twilio.errors(429, 1.0);
+        transport = transport(4, Duration.ofSeconds(5));
+
+        assertThatThrownBy(() -> transport.send("whatsapp:+1", "whatsapp:+2", "x").join())
+                .isInstanceOf(CompletionException.class)
+                .cause()
+                .isInstanceOfSatisfying(WhatsAppSendException.class, e -> {
+                    assertThat(e.getStatusCode()).isEqualTo(429);
+                    assertThat(e.getErrorCode()).isEqualTo(20429);
+                })
+                .satisfies(e -> assertThat(ProviderThrottling.isThrottled(e)).isTrue());
+    }
+
+    @Test
+    void boundsRequestsInFlight() {
+        twilio.latency(Duration.ofMillis(100));
+        transport = transport(2, Duration.ofSeconds(5));
+
+        List<CompletableFuture<WhatsAppTransport.WhatsAppReceipt>> sends = new ArrayList<>();
+        for (int i = 0; i < 8; i++) sends.add(transport.send("whatsapp:+1", "whatsapp:+2", "m" + i));
+        CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+
+        assertThat(twilio.requests()).hasSize(8);
+        assertThat(twilio.maxInFlight()).isLessThanOrEqualTo(2);
+        assertThat(transport.availableSlots()).isEqualTo(2);
+    }
+
+    @Test
+    void slowResponseTimesOutAndFreesTheSlot() {
+        twilio.latency(Duration.ofSeconds(2));
+        transport = transport(1, Duration.ofMillis(200));
+
+        assertThatThrownBy(() -> transport.send("whatsapp:+1", "whatsapp:+2", "x").join())
+                .hasCauseInstanceOf(HttpTimeoutException.class);
+        assertThat(transport.availableSlots()).isEqualTo(1);
+    }
+
+    private HttpWhatsAppTransport transport(int maxInFlight, Duration requestTimeout) {
+        return new HttpWhatsAppTransport(new NotificationMetrics(new SimpleMeterRegistry()), new JsonMapper(), "AC123", "secret", twilio.baseUrl(), HttpClient.Version.HTTP_1_1,
+                maxInFlight, Duration.ofSeconds(2), requestTimeout, Duration.ofSeconds(5));
+    }
+}